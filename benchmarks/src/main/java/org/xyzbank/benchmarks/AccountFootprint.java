@@ -0,0 +1,101 @@
+package org.xyzbank.benchmarks;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.repository.TableBankRepository;
+import org.xyzbank.service.BankService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compara la memoria y las pausas de GC de dos repositorios con un libro muy grande, ambos detrás de
+ * BankService:
+ *  - objects: InMemoryBankRepository, un BankAccount (y su número String) y un Client por cuenta.
+ *  - table: TableBankRepository, filas de 56 bytes fuera del heap y un byte[] por cliente; los objetos
+ *    solo existen mientras se usan.
+ * Tras cargar las cuentas fuerza varias recolecciones completas, que deben recorrer todo lo vivo, e informa
+ * el heap ocupado, la memoria fuera del heap y la duración de esas recolecciones; después aplica
+ * depósitos aleatorios con BankService durante unos segundos e informa el tiempo de GC que generan.
+ * Cada motor se mide en su propia JVM para que no se influyan:
+ *   java -Xmx24g -Dfootprint.engine=objects -Dfootprint.accounts=50000000 -cp benchmarks.jar org.xyzbank.benchmarks.AccountFootprint
+ *   java -Xmx8g -XX:MaxDirectMemorySize=4g -Dfootprint.engine=table -Dfootprint.accounts=50000000 -cp ... (idem)
+ * Con un cliente por cuenta. El heap incluye las claves que guarda el propio generador (16 bytes por cuenta).
+ * En table cada búsqueda de una cuenta que nadie usa crea su objeto y una referencia débil, que sobrevive a
+ * la siguiente recolección joven: los depósitos aleatorios miden también ese coste.
+ */
+public class AccountFootprint {
+
+    private static final int FULL_GCS = 3;
+
+    public static void main(String[] args) {
+        String engine = System.getProperty("footprint.engine", "table");
+        int accounts = Integer.getInteger("footprint.accounts", 50_000_000);
+        int seconds = Integer.getInteger("footprint.seconds", 10);
+
+        TableBankRepository table = engine.equals("objects") ? null : new TableBankRepository(accounts);
+        BankRepository repository = table != null ? table : new InMemoryBankRepository();
+        // Las claves se guardan en arrays de primitivos para que el propio generador no añada objetos al heap.
+        long[] msbs = new long[accounts];
+        long[] lsbs = new long[accounts];
+        long loadStart = System.nanoTime();
+        for (int i = 0; i < accounts; i++) {
+            UUID number = UUID.randomUUID();
+            msbs[i] = number.getMostSignificantBits();
+            lsbs[i] = number.getLeastSignificantBits();
+            Client client = new Client("Name", "Surname", Integer.toString(i), "c" + i + "@xyzbank.com");
+            repository.addClient(client);
+            repository.addAccount(client, new BankAccount(number.toString(), BankAccount.AccountType.CORRIENTE));
+        }
+        System.out.printf("Engine %s: loaded %,d accounts in %.1f s%n", engine, accounts,
+                (System.nanoTime() - loadStart) / 1e9);
+
+        // Con table, las entradas de los objetos ya liberados se retiran en la siguiente búsqueda que crea uno.
+        System.gc();
+        repository.getAccountByNumber(new UUID(msbs[0], lsbs[0]).toString());
+
+        long gcStart = totalGcMillis();
+        long fullStart = System.nanoTime();
+        for (int i = 0; i < FULL_GCS; i++) {
+            System.gc();
+        }
+        long fullMillis = (System.nanoTime() - fullStart) / 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        long offHeap = table == null ? 0 : table.getOffHeapBytes();
+        System.out.printf("Heap used: %,d MB (%.1f bytes/account), off-heap: %,d MB%n",
+                heapUsed >> 20, (double) heapUsed / accounts, offHeap >> 20);
+        System.out.printf("Full GC with live book: %.0f ms each (GC beans: %d ms)%n",
+                (double) fullMillis / FULL_GCS, totalGcMillis() - gcStart);
+
+        BankService service = new BankService(repository);
+        gcStart = totalGcMillis();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long operations = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 10_000; i++) {
+                int index = random.nextInt(accounts);
+                service.deposit(new UUID(msbs[index], lsbs[index]).toString(), 100);
+            }
+            operations += 10_000;
+        }
+        System.out.printf("Random deposits: %,d ops in %d s, GC time %d ms%n",
+                operations, seconds, totalGcMillis() - gcStart);
+        if (!service.checkAggregates().isEmpty()) {
+            throw new IllegalStateException("Aggregates differ: " + service.checkAggregates());
+        }
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+}
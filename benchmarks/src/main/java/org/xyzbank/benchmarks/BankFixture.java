@@ -0,0 +1,47 @@
+package org.xyzbank.benchmarks;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+
+/**
+ * Construye un banco en memoria con un cliente y una cuenta por cliente, para usarlo en los benchmarks.
+ */
+final class BankFixture {
+
+    // Saldo inicial suficiente para que los retiros de los benchmarks no se rechacen.
+    static final long INITIAL_BALANCE = 1_000_000_000_00L;
+
+    final BankRepository repository;
+    final BankService service;
+    final String[] accountNumbers;
+    final String[] dnis;
+
+    /**
+     * '@param accounts Número de clientes (y cuentas) a crear.
+     * '@param accountType Tipo de las cuentas.
+     * '@param funded Si las cuentas empiezan con INITIAL_BALANCE.
+     */
+    BankFixture(int accounts, BankAccount.AccountType accountType, boolean funded) {
+        this(new InMemoryBankRepository(), accounts, accountType, funded);
+    }
+
+    /**
+     * Igual que el anterior, sobre el repositorio indicado.
+     */
+    BankFixture(BankRepository repository, int accounts, BankAccount.AccountType accountType, boolean funded) {
+        this.repository = repository;
+        this.service = new BankService(repository);
+        accountNumbers = new String[accounts];
+        dnis = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            dnis[i] = "DNI" + i;
+            service.registerClient("Name" + i, "Surname" + i, dnis[i], "client" + i + "@xyzbank.com");
+            accountNumbers[i] = service.openBankAccount(dnis[i], accountType);
+            if (funded) {
+                service.deposit(accountNumbers[i], INITIAL_BALANCE);
+            }
+        }
+    }
+}
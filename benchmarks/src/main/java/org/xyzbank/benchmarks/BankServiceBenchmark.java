@@ -0,0 +1,74 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coste de las operaciones de BankService sobre bancos de 1K, 100K y 1M cuentas.
+ * El número de hilos se elige con la opción -t de JMH o con BenchmarkRunner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BankServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int accounts;
+
+    private BankFixture bank;
+    private final AtomicLong nextClient = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, true);
+    }
+
+    private String randomAccount() {
+        return bank.accountNumbers[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    @Benchmark
+    public void deposit() {
+        bank.service.deposit(randomAccount(), 100);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        bank.service.withdraw(randomAccount(), 100);
+    }
+
+    @Benchmark
+    public long checkBalance() {
+        return bank.service.checkBalance(randomAccount());
+    }
+
+    @Benchmark
+    public void registerClient() {
+        long id = nextClient.incrementAndGet();
+        bank.service.registerClient("Name", "Surname", "NEW" + id, "new" + id + "@xyzbank.com");
+    }
+
+    @Benchmark
+    public void openBankAccount() {
+        bank.service.openBankAccount(bank.dnis[ThreadLocalRandom.current().nextInt(accounts)],
+                BankAccount.AccountType.AHORROS);
+    }
+}
@@ -0,0 +1,79 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xyzbank.batch.BatchOperation;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara aplicar un lote de movimientos con BankService.processBatch frente a llamar a
+ * deposit/withdraw operación por operación capturando las excepciones de los rechazos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BatchBenchmark {
+
+    @Param({"10000"})
+    int accounts;
+
+    @Param({"100000"})
+    int batchSize;
+
+    private BankFixture bank;
+    private List<BatchOperation> operations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = new BankFixture(accounts, BankAccount.AccountType.AHORROS, false);
+        Random random = new Random(42);
+        operations = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String accountNumber = bank.accountNumbers[random.nextInt(accounts)];
+            long amount = 1 + random.nextInt(10_000);
+            operations.add(random.nextBoolean()
+                    ? BatchOperation.deposit(accountNumber, amount)
+                    : BatchOperation.withdraw(accountNumber, amount));
+        }
+    }
+
+    @Benchmark
+    public TransactionStatus[] processBatch() {
+        return bank.service.processBatch(operations);
+    }
+
+    @Benchmark
+    public void oneByOne(Blackhole blackhole) {
+        for (BatchOperation operation : operations) {
+            try {
+                if (operation.getType() == BatchOperation.Type.DEPOSIT) {
+                    bank.service.deposit(operation.getAccountNumber(), operation.getAmount());
+                } else {
+                    bank.service.withdraw(operation.getAccountNumber(), operation.getAmount());
+                }
+            } catch (IllegalArgumentException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de benchmarks. Ejecuta las suites que coinciden con los argumentos
+ * (todas si no hay) una vez por cada número de hilos, con el perfilador gc activado para informar
+ * la tasa de asignación de memoria además del rendimiento y el tiempo medio.
+ * *
+ * Propiedades del sistema:
+ *  - bench.threads: lista de números de hilos separados por comas (por defecto "1,4,<núcleos>").
+ * Cualquier otra opción de JMH (-p, -wi, -i, -f, ...) se pasa tal cual en los argumentos.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String threadList = System.getProperty("bench.threads",
+                "1,4," + Runtime.getRuntime().availableProcessors());
+        for (String threads : threadList.split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .addProfiler(GCProfiler.class)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build())
+                    .run();
+        }
+    }
+}
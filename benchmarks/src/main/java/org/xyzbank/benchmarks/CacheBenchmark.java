@@ -0,0 +1,124 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.repository.CachedBankRepository;
+import org.xyzbank.repository.FileKeyValueStore;
+import org.xyzbank.repository.InMemoryBankRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Depósitos y consultas de saldo con acceso sesgado a las cuentas (distribución Zipf: unas pocas cuentas
+ * concentran la mayoría de las operaciones), sobre el repositorio en memoria y sobre CachedBankRepository
+ * con un almacén en fichero y una caché de cacheEntries cuentas. Al terminar informa la tasa de aciertos,
+ * las expulsiones, las escrituras pendientes y el retraso de la escritura diferida.
+ * Para un libro mayor que el heap, bajar -Xmx (jvmArgsAppend) por debajo de lo que ocupa en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CacheBenchmark {
+
+    @Param({"cached", "memory"})
+    String repository;
+
+    @Param({"1000000"})
+    int accounts;
+
+    @Param({"100000"})
+    int cacheEntries;
+
+    @Param({"0.99"})
+    double skew;
+
+    private Path directory;
+    private BankFixture bank;
+    private double[] cumulative;        // Probabilidad acumulada de cada rango de la distribución Zipf
+    private int[] accountOfRank;        // Rango -> cuenta, para que las cuentas activas no sean las primeras
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BankRepository bankRepository;
+        if (repository.equals("cached")) {
+            directory = Files.createTempDirectory("bank-cache");
+            bankRepository = new CachedBankRepository(new FileKeyValueStore(directory.resolve("bank.store")),
+                    cacheEntries, 100);
+        } else {
+            bankRepository = new InMemoryBankRepository();
+        }
+        bank = new BankFixture(bankRepository, accounts, BankAccount.AccountType.CORRIENTE, false);
+        cumulative = new double[accounts];
+        double sum = 0;
+        for (int rank = 0; rank < accounts; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < accounts; rank++) {
+            cumulative[rank] /= sum;
+        }
+        accountOfRank = new int[accounts];
+        Arrays.setAll(accountOfRank, i -> i);
+        Random random = new Random(42);
+        for (int i = accounts - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = accountOfRank[i];
+            accountOfRank[i] = accountOfRank[j];
+            accountOfRank[j] = swap;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (bank.repository instanceof CachedBankRepository cached) {
+            System.out.printf("%nCache: hit rate %.4f, %,d evictions, %,d pending writes, flush lag %d ms%n",
+                    cached.getHitRate(), cached.getEvictions(), cached.getPendingWrites(), cached.getFlushLagMillis());
+        }
+        bank.repository.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private String pick() {
+        int rank = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        rank = rank >= 0 ? rank : Math.min(-rank - 1, accounts - 1);
+        return bank.accountNumbers[accountOfRank[rank]];
+    }
+
+    @Benchmark
+    public void deposit() {
+        bank.service.deposit(pick(), 100);
+    }
+
+    @Benchmark
+    public long checkBalance() {
+        return bank.service.checkBalance(pick());
+    }
+}
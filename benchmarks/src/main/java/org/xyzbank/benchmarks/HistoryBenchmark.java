@@ -0,0 +1,94 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.MovementType;
+import org.xyzbank.model.TransactionHistory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Historial de movimientos de una cuenta: coste de anexar, de consultar los últimos N y de generar una
+ * página de extracto por rango de fechas sobre un historial ya poblado. Al terminar informa los bytes
+ * ocupados por movimiento, para estimar la memoria de 100M movimientos históricos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final long STEP_MILLIS = 60_000;                 // Un movimiento por minuto
+
+    @Param({"1000000"})
+    int movements;
+
+    private TransactionHistory history;
+    private TransactionHistory appendOnly;
+    private long appendTime;
+    private long appendBalance;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new TransactionHistory();
+        fill(history, movements);
+        appendOnly = new TransactionHistory();
+        appendTime = START_MILLIS;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%nHistory footprint: %d movements, %d bytes, %.2f bytes/movement%n",
+                history.size(), history.memoryBytes(), (double) history.memoryBytes() / history.size());
+    }
+
+    @Benchmark
+    public long record() {
+        synchronized (this) {
+            appendTime += STEP_MILLIS;
+            appendBalance += 1_050;
+            appendOnly.record(appendTime, MovementType.DEPOSIT, 1_050, appendBalance);
+        }
+        return appendOnly.size();
+    }
+
+    @Benchmark
+    public List<TransactionHistory.Movement> lastMovements() {
+        return history.last(50);
+    }
+
+    @Benchmark
+    public List<TransactionHistory.Movement> statementPage() {
+        // Página de 50 movimientos que empieza en un instante aleatorio del historial.
+        long from = START_MILLIS + ThreadLocalRandom.current().nextLong(movements - 50) * STEP_MILLIS;
+        return history.range(from, from + 30L * 24 * 3600 * 1000, 0, 50);
+    }
+
+    /* Puebla el historial con depósitos y retiros de montos variados, como los de una cuenta real. */
+    static void fill(TransactionHistory history, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long balance = 0;
+        for (int i = 0; i < count; i++) {
+            long amount = 100 + random.nextLong(200_000);
+            MovementType type = random.nextInt(3) == 0 ? MovementType.WITHDRAW : MovementType.DEPOSIT;
+            balance += type == MovementType.DEPOSIT ? amount : -amount;
+            history.record(START_MILLIS + i * STEP_MILLIS, type, amount, balance);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coste de las claves de idempotencia en los depósitos:
+ *  - plain: depósito sin clave, como referencia.
+ *  - keyed: cada depósito con una clave nueva (alta en la tabla).
+ *  - retried: cada clave se usa retries veces seguidas por los hilos que coincidan, como clientes que
+ *    reintentan a la vez la misma petición; solo el primer uso aplica el depósito.
+ * retried se hace sobre una única cuenta para que los reintentos compitan por ella, y al terminar comprueba
+ * que su saldo es exactamente un depósito por clave.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IdempotencyBenchmark {
+
+    private static final long AMOUNT = 100;
+
+    @Param({"100000"})
+    int accounts;
+
+    @Param({"4"})
+    int retries;
+
+    private BankFixture bank;
+    private final AtomicLong nextKey = new AtomicLong();
+    private final AtomicLong nextRetry = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long uses = nextRetry.get();
+        if (uses > 0) {
+            long keys = (uses + retries - 1) / retries;
+            long balance = bank.service.checkBalance(bank.accountNumbers[0]);
+            System.out.printf("%nRetried keys: %,d, balance %,d, expected %,d: %s%n", keys, balance,
+                    keys * AMOUNT, keys * AMOUNT == balance ? "OK" : "MISMATCH");
+        }
+    }
+
+    private String randomAccount() {
+        return bank.accountNumbers[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    @Benchmark
+    public void plain() {
+        bank.service.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void keyed() {
+        bank.service.deposit(randomAccount(), AMOUNT, nextKey.incrementAndGet());
+    }
+
+    @Benchmark
+    public void retried() {
+        bank.service.deposit(bank.accountNumbers[0], AMOUNT, nextRetry.getAndIncrement() / retries);
+    }
+}
@@ -0,0 +1,195 @@
+package org.xyzbank.benchmarks;
+
+import org.xyzbank.metrics.LatencyHistogram;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.server.BankServer;
+import org.xyzbank.server.ConnectionThreads;
+import org.xyzbank.service.BankService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para BankServer: abre muchas conexiones concurrentes, cada una enviando ráfagas
+ * encadenadas de peticiones (consultas de saldo, depósitos, retiros y transferencias entre cuentas
+ * aleatorias), y al final informa el rendimiento y los percentiles de latencia de cada petición.
+ * Sin load.host arranca un servidor en el mismo proceso, con un banco solo en memoria.
+ * *
+ * Propiedades del sistema:
+ *  - load.host / load.port: servidor a cargar (por defecto uno en proceso, en un puerto libre).
+ *  - load.connections: conexiones concurrentes (por defecto 10000).
+ *  - load.pipeline: peticiones enviadas por ráfaga en cada conexión (por defecto 16).
+ *  - load.accounts: cuentas creadas antes de la prueba (por defecto 10000).
+ *  - load.warmupSeconds / load.seconds: calentamiento y duración de la medición (por defecto 5 y 30).
+ * Con 10000 conexiones en el mismo proceso hacen falta unos 20000 descriptores de fichero (ulimit -n).
+ */
+public class LoadGenerator {
+
+    private static final String AMOUNT = "1.00";
+    private static final int SETUP_BURST = 256;
+
+    public static void main(String[] args) throws Exception {
+        String host = System.getProperty("load.host");
+        int connections = Integer.getInteger("load.connections", 10_000);
+        int pipeline = Integer.getInteger("load.pipeline", 16);
+        int accounts = Integer.getInteger("load.accounts", 10_000);
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("load.warmupSeconds", 5));
+        long measureNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("load.seconds", 30));
+
+        BankServer server = host == null ? new BankServer(new BankService(new InMemoryBankRepository()), 0) : null;
+        String targetHost = host == null ? "localhost" : host;
+        int port = server != null ? server.getPort() : Integer.getInteger("load.port", 9090);
+        System.out.printf("Target %s:%d, %d connections, pipeline %d, %s threads%n", targetHost, port, connections,
+                pipeline, ConnectionThreads.isVirtual() ? "virtual" : "platform");
+
+        String[] accountNumbers = createAccounts(targetHost, port, accounts);
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + measureNanos;
+        CountDownLatch done = new CountDownLatch(connections);
+        ExecutorService clients = ConnectionThreads.newPerTaskExecutor("load-client");
+        for (int i = 0; i < connections; i++) {
+            clients.execute(() -> {
+                try {
+                    runConnection(targetHost, port, pipeline, accountNumbers, measureStart, end, latencies, completed, errors);
+                } catch (IOException e) {
+                    errors.increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        clients.shutdown();
+
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        double seconds = measureNanos / 1e9;
+        System.out.printf("Completed %d requests in %.1f s: %.0f req/s, %d errors%n",
+                completed.sum(), seconds, completed.sum() / seconds, errors.sum());
+        System.out.printf("Latency ms: mean %.3f, p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                snapshot.getMean() / 1e6, snapshot.getPercentile(50) / 1e6, snapshot.getPercentile(99) / 1e6,
+                snapshot.getPercentile(99.9) / 1e6, snapshot.getMax() / 1e6);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /* Registra los clientes y abre y financia sus cuentas por una sola conexión, en ráfagas encadenadas.
+     * Las ráfagas se limitan para no llenar los búferes del socket en ambos sentidos a la vez.
+     */
+    private static String[] createAccounts(String host, int port, int accounts) throws IOException {
+        String run = Long.toString(System.currentTimeMillis(), 36);     // Evita DNI repetidos entre ejecuciones
+        String[] accountNumbers = new String[accounts];
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = reader(socket);
+             Writer out = writer(socket)) {
+            for (int from = 0; from < accounts; from += SETUP_BURST) {
+                int to = Math.min(accounts, from + SETUP_BURST);
+                for (int i = from; i < to; i++) {
+                    out.write("REGISTER,Load,Client," + run + "-" + i + ",load" + run + "x" + i + "@xyzbank.com\n");
+                    out.write("OPEN," + run + "-" + i + ",CORRIENTE\n");
+                }
+                out.flush();
+                for (int i = from; i < to; i++) {
+                    check(in.readLine());
+                    accountNumbers[i] = check(in.readLine()).substring("OK,".length());
+                    out.write("DEPOSIT," + accountNumbers[i] + ",1000000.00\n");
+                }
+                out.flush();
+                for (int i = from; i < to; i++) {
+                    check(in.readLine());
+                }
+            }
+        }
+        return accountNumbers;
+    }
+
+    /* Bucle de una conexión: envía ráfagas de peticiones y espera sus respuestas hasta el final. */
+    private static void runConnection(String host, int port, int pipeline, String[] accountNumbers, long measureStart,
+                                      long end, LatencyHistogram latencies, LongAdder completed, LongAdder errors)
+            throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder burst = new StringBuilder(pipeline * 96);
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = reader(socket);
+             Writer out = writer(socket)) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                long sent = System.nanoTime();
+                if (sent >= end) {
+                    return;
+                }
+                burst.setLength(0);
+                for (int i = 0; i < pipeline; i++) {
+                    appendRequest(burst, random, accountNumbers);
+                }
+                out.append(burst).flush();
+                for (int i = 0; i < pipeline; i++) {
+                    String response = in.readLine();
+                    if (response == null) {
+                        throw new IOException("Server closed the connection");
+                    }
+                    long now = System.nanoTime();
+                    if (sent >= measureStart && now < end) {
+                        latencies.record(now - sent);
+                        completed.increment();
+                        if (!response.startsWith("OK")) {
+                            errors.increment();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* Mezcla: 40% saldo, 25% depósito, 20% retiro, 15% transferencia. */
+    private static void appendRequest(StringBuilder burst, ThreadLocalRandom random, String[] accountNumbers) {
+        String account = accountNumbers[random.nextInt(accountNumbers.length)];
+        int kind = random.nextInt(100);
+        if (kind < 40) {
+            burst.append("BALANCE,").append(account);
+        } else if (kind < 65) {
+            burst.append("DEPOSIT,").append(account).append(',').append(AMOUNT);
+        } else if (kind < 85) {
+            burst.append("WITHDRAW,").append(account).append(',').append(AMOUNT);
+        } else {
+            String other = accountNumbers[random.nextInt(accountNumbers.length)];
+            if (other.equals(account)) {
+                burst.append("BALANCE,").append(account);
+            } else {
+                burst.append("TRANSFER,").append(account).append(',').append(other).append(',').append(AMOUNT);
+            }
+        }
+        burst.append('\n');
+    }
+
+    private static String check(String response) {
+        if (response == null || !response.startsWith("OK")) {
+            throw new IllegalStateException("Setup request failed: " + response);
+        }
+        return response;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static Writer writer(Socket socket) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+}
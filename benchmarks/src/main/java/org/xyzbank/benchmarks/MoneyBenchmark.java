@@ -0,0 +1,69 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Money;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la aritmética de saldos en céntimos (long) con la versión anterior en double:
+ * un depósito y un retiro con la comprobación del límite de sobregiro, y el análisis de montos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private double doubleBalance;
+    private long longBalance;
+    private String amountText = "1234.56";       // No final, para que JIT no lo trate como constante
+    private final BankAccount account = new BankAccount("benchmark", BankAccount.AccountType.CORRIENTE);
+
+    /* Reproduce el camino anterior: saldo double y límite -500.00 en coma flotante. */
+    @Benchmark
+    public double doubleDepositWithdraw() {
+        doubleBalance += 10.10;
+        if (doubleBalance - 10.05 >= -500.00) {
+            doubleBalance -= 10.05;
+        }
+        return doubleBalance;
+    }
+
+    @Benchmark
+    public long longDepositWithdraw() {
+        longBalance += 1010;
+        if (longBalance - 1005 >= BankAccount.OVERDRAFT_LIMIT) {
+            longBalance -= 1005;
+        }
+        return longBalance;
+    }
+
+    @Benchmark
+    public long accountDepositWithdraw() {
+        account.tryDeposit(1010);
+        account.tryWithdraw(1005);
+        return account.getBalance();
+    }
+
+    @Benchmark
+    public double parseDouble() {
+        return Double.parseDouble(amountText);
+    }
+
+    @Benchmark
+    public long parseCents() {
+        return Money.parse(amountText);
+    }
+}
@@ -0,0 +1,81 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Alta masiva de clientes: registrar un cliente y abrirle una cuenta, con cada esquema de números de
+ * cuenta. SECURE_RANDOM es el camino anterior (UUID.randomUUID); ejecutar con varios hilos
+ * (bench.threads) para ver la contención en SecureRandom. También compara la validación del correo con
+ * String.matches, que compila el patrón en cada llamada, frente al patrón precompilado de Client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OnboardingBenchmark {
+
+    private static final String EMAIL_REGEX = "^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$";
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+
+    @Param({"SECURE_RANDOM", "THREAD_SEEDED", "TIME_ORDERED"})
+    AccountNumberGenerator.Scheme scheme;
+
+    @Param({"false"})
+    boolean checkDigits;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private AccountNumberGenerator generator;
+    private BankService service;
+    private String email = "client.name-1@xyzbank.com";      // No final, para que JIT no lo trate como constante
+
+    // Cada iteración empieza con un repositorio vacío, para que su tamaño no influya en la medida.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        generator = AccountNumberGenerator.of(scheme, checkDigits);
+        service = new BankService(new InMemoryBankRepository(), null, null, generator);
+    }
+
+    @Benchmark
+    public String registerAndOpen() {
+        long id = sequence.incrementAndGet();
+        String dni = Long.toString(id);
+        service.registerClient("Name", "Surname", dni, "client" + id + "@xyzbank.com");
+        return service.openBankAccount(dni, BankAccount.AccountType.AHORROS);
+    }
+
+    @Benchmark
+    public String generateNumber() {
+        return generator.next();
+    }
+
+    @Benchmark
+    public boolean emailStringMatches() {
+        return email.matches(EMAIL_REGEX);
+    }
+
+    @Benchmark
+    public boolean emailPrecompiled() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+}
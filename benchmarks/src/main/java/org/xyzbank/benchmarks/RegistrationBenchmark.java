@@ -0,0 +1,43 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de registrar N clientes en un repositorio vacío. Con el almacén indexado por DNI el tiempo
+ * debe crecer linealmente con N (no cuadráticamente, como con la búsqueda lineal anterior).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RegistrationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int clients;
+
+    @Benchmark
+    public BankRepository registerClients() {
+        BankRepository repository = new InMemoryBankRepository();
+        BankService service = new BankService(repository);
+        for (int i = 0; i < clients; i++) {
+            service.registerClient("Name", "Surname", "DNI" + i, "client" + i + "@xyzbank.com");
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,56 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.BankAggregates;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informes del banco: consultar los totales mantenidos de forma incremental frente a recalcularlos
+ * recorriendo todas las cuentas, y el coste que mantenerlos añade a cada depósito.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    @Param({"1000000"})
+    int accounts;
+
+    private BankFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, true);
+    }
+
+    @Benchmark
+    public BankAggregates.Totals incremental() {
+        return fixture.repository.getAggregates().snapshot();
+    }
+
+    @Benchmark
+    public BankAggregates.Totals recompute() {
+        return BankAggregates.recompute(fixture.repository.getAllClients());
+    }
+
+    @Benchmark
+    public void deposit() {
+        fixture.service.deposit(fixture.accountNumbers[ThreadLocalRandom.current().nextInt(accounts)], 100);
+    }
+}
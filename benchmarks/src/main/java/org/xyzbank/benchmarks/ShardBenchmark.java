@@ -0,0 +1,92 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.TransactionStatus;
+import org.xyzbank.shard.ShardedBankService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el diseño de una sola estructura (BankService, con un bloqueo por cuenta) con el modo por
+ * particiones (ShardedBankService, un hilo escritor por partición) aplicando depósitos y retiros sobre
+ * cuentas aleatorias. Cada invocación aplica una ráfaga de BURST operaciones; en el modo por particiones
+ * se envían todas y se espera a la última, como haría un cliente encadenando peticiones.
+ * Ejecutar con -p shards=1,2,4,... y varios hilos (bench.threads) para ver el escalado con los núcleos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardBenchmark {
+
+    private static final int BURST = 64;
+
+    @Param({"1", "4"})
+    int shards;
+
+    @Param({"100000"})
+    int accounts;
+
+    private BankFixture locked;
+    private BankFixture partitioned;
+    private ShardedBankService sharded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        locked = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, true);
+        partitioned = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, true);
+        sharded = new ShardedBankService(partitioned.service, shards, 16 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sharded.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void singleStructure() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] numbers = locked.accountNumbers;
+        for (int i = 0; i < BURST; i++) {
+            String account = numbers[random.nextInt(numbers.length)];
+            if ((i & 1) == 0) {
+                locked.service.deposit(account, 1_000);
+            } else {
+                locked.service.withdraw(account, 1_000);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public TransactionStatus sharded() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] numbers = partitioned.accountNumbers;
+        CompletableFuture<TransactionStatus> last = null;
+        for (int i = 0; i < BURST; i++) {
+            String account = numbers[random.nextInt(numbers.length)];
+            last = (i & 1) == 0 ? sharded.deposit(account, 1_000) : sharded.withdraw(account, 1_000);
+        }
+        // Se espera solo a la última; las colas acotadas limitan lo que queda pendiente en las demás particiones.
+        return last.join();
+    }
+}
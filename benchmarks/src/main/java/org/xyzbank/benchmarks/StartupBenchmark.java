@@ -0,0 +1,114 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+import org.xyzbank.snapshot.SnapshotManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tiempo de arranque: cargar la instantánea y reproducir la cola del diario, frente a reproducir el
+ * diario completo. La preparación crea el banco una vez, guarda la instantánea (que compacta el diario)
+ * y añade una cola de movimientos posteriores.
+ * Para 10M cuentas hace falta un heap grande (ajustar -Xmx en @Fork o con -jvmArgsAppend).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class StartupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    int accounts;
+
+    @Param({"100000"})
+    int tailOperations;
+
+    private Path directory;
+    private Path snapshotFile;
+    private Path fullJournalFile;
+    private Path tailJournalFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bank-startup");
+        snapshotFile = directory.resolve("bank.snapshot");
+        fullJournalFile = directory.resolve("full.journal");
+        tailJournalFile = directory.resolve("bank.journal");
+        String[] accountNumbers = new String[accounts];
+        // Escribe el mismo historial en un diario que nunca se compacta y en otro con instantánea.
+        try (TransactionJournal full = new TransactionJournal(fullJournalFile, SyncPolicy.INTERVAL, 1000);
+             TransactionJournal tail = new TransactionJournal(tailJournalFile, SyncPolicy.INTERVAL, 1000)) {
+            BankRepository fullRepository = new InMemoryBankRepository();
+            BankService fullService = new BankService(fullRepository, full);
+            BankRepository repository = new InMemoryBankRepository();
+            BankService service = new BankService(repository, tail);
+            for (int i = 0; i < accounts; i++) {
+                String dni = "DNI" + i;
+                service.registerClient("Name", "Surname", dni, "client" + i + "@xyzbank.com");
+                service.openBankAccount(dni, BankAccount.AccountType.CORRIENTE);
+                accountNumbers[i] = repository.getClientByDni(dni).getAccounts().get(0).getAccountNumber();
+                fullService.registerClient("Name", "Surname", dni, "client" + i + "@xyzbank.com");
+                fullRepository.addAccount(fullRepository.getClientByDni(dni),
+                        new BankAccount(accountNumbers[i], BankAccount.AccountType.CORRIENTE));
+                full.appendOpenBankAccount(dni, accountNumbers[i], BankAccount.AccountType.CORRIENTE);
+            }
+            new SnapshotManager(snapshotFile, repository, tail).takeSnapshot();
+            for (int i = 0; i < tailOperations; i++) {
+                String accountNumber = accountNumbers[i % accounts];
+                service.deposit(accountNumber, 100);
+                fullService.deposit(accountNumber, 100);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BankRepository snapshotAndTail() {
+        BankRepository repository = new InMemoryBankRepository();
+        try (TransactionJournal journal = new TransactionJournal(tailJournalFile, SyncPolicy.INTERVAL, 1000)) {
+            long position = new SnapshotManager(snapshotFile, repository, journal).load();
+            new BankService(repository, journal).recoverFromJournal(position);
+        }
+        return repository;
+    }
+
+    @Benchmark
+    public BankRepository fullJournalReplay() {
+        BankRepository repository = new InMemoryBankRepository();
+        try (TransactionJournal journal = new TransactionJournal(fullJournalFile, SyncPolicy.INTERVAL, 1000)) {
+            new BankService(repository, journal).recoverFromJournal();
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,68 @@
+package org.xyzbank.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyzbank.model.BankAccount;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contención de BankService.transfer con dos distribuciones de cuentas:
+ *  - UNIFORM: origen y destino uniformes entre todas las cuentas (casi nunca comparten bloqueo).
+ *  - HOT: el 90% de las transferencias toca una de unas pocas cuentas "calientes".
+ * Ejecutar con varios hilos (-t) para ver el escalado con cuentas disjuntas frente a la contención.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final int HOT_ACCOUNTS = 8;
+
+    public enum Distribution { UNIFORM, HOT }
+
+    @Param({"UNIFORM", "HOT"})
+    Distribution distribution;
+
+    @Param({"100000"})
+    int accounts;
+
+    private BankFixture bank;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = new BankFixture(accounts, BankAccount.AccountType.CORRIENTE, true);
+    }
+
+    private int pick(ThreadLocalRandom random) {
+        if (distribution == Distribution.HOT && random.nextInt(10) < 9) {
+            return random.nextInt(HOT_ACCOUNTS);
+        }
+        return random.nextInt(accounts);
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = pick(random);
+        int to = pick(random);
+        if (from == to) {
+            to = (to + 1) % accounts;
+        }
+        bank.service.transfer(bank.accountNumbers[from], bank.accountNumbers[to], 1);
+    }
+}
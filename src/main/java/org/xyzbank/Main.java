@@ -1,25 +1,119 @@
 package org.xyzbank;
 
-import org.xyzbank.repository.BankRepository;   // Importa la clase BankRepository, que maneja el almacenamiento de datos.
+import org.xyzbank.audit.AuditLog;
+import org.xyzbank.audit.OverflowPolicy;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.repository.BankRepository;   // Importa la interfaz BankRepository, que maneja el almacenamiento de datos.
+import org.xyzbank.repository.CachedBankRepository;
+import org.xyzbank.repository.FileKeyValueStore;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.repository.TableBankRepository;
+import org.xyzbank.server.BankServer;
 import org.xyzbank.service.BankService;     // Importa la clase BankService, que gestiona las operaciones bancarias.
+import org.xyzbank.service.IdempotencyTable;
+import org.xyzbank.snapshot.Checkpointer;
+import org.xyzbank.snapshot.SnapshotManager;
+import org.xyzbank.snapshot.StoreCheckpointer;
+
+import java.nio.file.Path;
 
 /** Clase principal del sistema bancario.
- * Inicializar los componentes necesarios (repositorio y servicio)
- * y arranca la interfaz de usuario por consola.
+ * Inicializar los componentes necesarios (repositorio, diario, instantáneas y servicio),
+ * recupera el estado guardado y arranca la interfaz de usuario por consola y, si se configura, el servidor TCP.
+ * *
+ * Configuración mediante propiedades del sistema:
+ *  - bank.journal.path: fichero del diario de transacciones (por defecto "bank.journal").
+ *  - bank.journal.sync: política de sincronización, EVERY_OP o INTERVAL (por defecto EVERY_OP).
+ *  - bank.journal.syncMillis: intervalo de sincronización en milisegundos para INTERVAL (por defecto 10).
+ *  - bank.snapshot.path: fichero de la instantánea del repositorio (por defecto "bank.snapshot").
+ *  - bank.snapshot.periodMillis: intervalo entre instantáneas (o checkpoints del almacén) en milisegundos
+ *    (por defecto 60000).
+ *  - bank.store.path: fichero del almacén persistente; con la propiedad, el libro se guarda en él y en memoria
+ *    solo quedan las entradas activas (CachedBankRepository), en lugar de instantáneas del libro completo.
+ *  - bank.store.cacheEntries: máximo de clientes, y de cuentas, en caché (por defecto 1000000).
+ *  - bank.store.flushMillis: intervalo de la escritura diferida de saldos en milisegundos (por defecto 100).
+ *  - bank.table.accounts: número máximo de cuentas; con la propiedad (y sin almacén), el libro se guarda en
+ *    tablas compactas con las cuentas fuera del heap (TableBankRepository), con instantáneas como en memoria.
+ *  - bank.audit.dir: directorio de los ficheros de auditoría (por defecto "audit").
+ *  - bank.audit.capacity: capacidad del búfer de auditoría en eventos (por defecto 65536).
+ *  - bank.audit.overflow: política con el búfer lleno, DROP o BLOCK (por defecto DROP).
+ *  - bank.audit.maxFileBytes: tamaño a partir del cual se rota el fichero (por defecto 67108864).
+ *  - bank.accountNumbers: esquema de los números de cuenta, SECURE_RANDOM, THREAD_SEEDED o TIME_ORDERED
+ *    (por defecto SECURE_RANDOM).
+ *  - bank.accountNumbers.checkDigits: true para añadir dígitos de control a los números (por defecto false).
+ *  - bank.dedup.capacity: claves de idempotencia recordadas como máximo (por defecto 1000000).
+ *  - bank.dedup.ttlMillis: tiempo durante el que se recuerda cada clave, en milisegundos (por defecto 600000).
+ *  - bank.server.port: puerto del servidor TCP; sin la propiedad no se abre ningún puerto.
+ *  - bank.console: false para no arrancar la consola y atender solo por red (por defecto true).
  */
 public class Main {
     public static void main(String[] args) {
 
-        // Crea una instancia de BankRepository, que será utilizada para almacenar y gestionar
-        // los datos de clientes y cuentas bancarias.
-        BankRepository repository = new BankRepository();
+        // Abre el diario de transacciones donde se registra cada operación para sobrevivir a reinicios.
+        Path journalPath = Path.of(System.getProperty("bank.journal.path", "bank.journal"));
+        SyncPolicy syncPolicy = SyncPolicy.valueOf(System.getProperty("bank.journal.sync", "EVERY_OP").toUpperCase());
+        long syncMillis = Long.parseLong(System.getProperty("bank.journal.syncMillis", "10"));
+        Path snapshotPath = Path.of(System.getProperty("bank.snapshot.path", "bank.snapshot"));
+        long snapshotPeriod = Long.parseLong(System.getProperty("bank.snapshot.periodMillis", "60000"));
+        Path auditDirectory = Path.of(System.getProperty("bank.audit.dir", "audit"));
+        int auditCapacity = Integer.parseInt(System.getProperty("bank.audit.capacity", "65536"));
+        OverflowPolicy auditOverflow = OverflowPolicy.valueOf(System.getProperty("bank.audit.overflow", "DROP").toUpperCase());
+        long auditFileBytes = Long.parseLong(System.getProperty("bank.audit.maxFileBytes", "67108864"));
+        AccountNumberGenerator.Scheme numberScheme = AccountNumberGenerator.Scheme.valueOf(
+                System.getProperty("bank.accountNumbers", "SECURE_RANDOM").toUpperCase());
+        boolean checkDigits = Boolean.parseBoolean(System.getProperty("bank.accountNumbers.checkDigits", "false"));
+        String serverPort = System.getProperty("bank.server.port");
+        boolean console = Boolean.parseBoolean(System.getProperty("bank.console", "true"));
+        String storePath = System.getProperty("bank.store.path");
+        int cacheEntries = Integer.parseInt(System.getProperty("bank.store.cacheEntries", "1000000"));
+        long flushMillis = Long.parseLong(System.getProperty("bank.store.flushMillis", "100"));
+        String tableAccounts = System.getProperty("bank.table.accounts");
+        int dedupCapacity = Integer.parseInt(System.getProperty("bank.dedup.capacity", "1000000"));
+        long dedupTtl = Long.parseLong(System.getProperty("bank.dedup.ttlMillis", "600000"));
+
+        // Crea el repositorio que será utilizado para almacenar y gestionar los datos de clientes y cuentas
+        // bancarias: en memoria, en tablas compactas o, si se configura un almacén, con el libro en disco y una caché.
+        CachedBankRepository cachedRepository = storePath == null ? null
+                : new CachedBankRepository(new FileKeyValueStore(Path.of(storePath)), cacheEntries, flushMillis);
+        BankRepository repository = cachedRepository != null ? cachedRepository
+                : tableAccounts != null ? new TableBankRepository(Long.parseLong(tableAccounts))
+                : new InMemoryBankRepository();
+
+        try (repository;
+             TransactionJournal journal = new TransactionJournal(journalPath, syncPolicy, syncMillis);
+             Checkpointer checkpoints = cachedRepository != null ? new StoreCheckpointer(cachedRepository, journal)
+                     : new SnapshotManager(snapshotPath, repository, journal);
+             AuditLog auditLog = new AuditLog(auditDirectory, auditCapacity, auditOverflow, auditFileBytes)) {
+            // Crea una instancia de BankService, pasándole el repositorio, el diario y la auditoría como dependencias.
+            // Esto permite que el servicio interactúe con los datos a través del repositorio.
+            BankService service = new BankService(repository, journal, auditLog,
+                    AccountNumberGenerator.of(numberScheme, checkDigits), new IdempotencyTable(dedupCapacity, dedupTtl));
+
+            // Carga la última instantánea (o checkpoint) y reproduce solo la cola del diario que no cubre.
+            long checkpointPosition = checkpoints.load();
+            long recovered = service.recoverFromJournal(checkpointPosition);
+            System.out.println("Recovered " + recovered + " operations from " + journalPath);
 
-        // Crea una instancia de BankService, pasándole el repositorio como dependencia.
-        // Esto permite que el servicio interactúe con los datos a través del repositorio.
-        BankService service = new BankService(repository);
+            // Programa las instantáneas (o checkpoints) periódicas, que además compactan el diario.
+            checkpoints.start(snapshotPeriod);
 
-        // Inicia la interfaz de usuario por consola para permitir al usuario interactuar con el sistema bancario,
-        // como registrar clientes, abrir cuentas y realizar transacciones.
-        service.startConsoleInterface();
+            // Abre el servidor TCP, si se configuró un puerto; se cierra al salir del bloque.
+            try (BankServer server = serverPort == null ? null : new BankServer(service, Integer.parseInt(serverPort))) {
+                if (server != null) {
+                    System.out.println("Listening on port " + server.getPort());
+                }
+                if (console) {
+                    // Inicia la interfaz de usuario por consola para permitir al usuario interactuar con el sistema
+                    // bancario, como registrar clientes, abrir cuentas y realizar transacciones.
+                    service.startConsoleInterface();
+                } else if (server != null) {
+                    server.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
-}
\ No newline at end of file
+}
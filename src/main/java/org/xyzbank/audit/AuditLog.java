@@ -0,0 +1,230 @@
+package org.xyzbank.audit;
+
+import org.xyzbank.model.Money;
+import org.xyzbank.model.MovementType;
+import org.xyzbank.model.TransactionStatus;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de auditoría asíncrono de depósitos, retiros y transferencias, incluidos los rechazados.
+ * Quien publica copia los campos del evento (cuenta, tipo, monto, saldo resultante, motivo de rechazo)
+ * en una ranura de un búfer circular preasignado, reservada con un CAS: no hay bloqueos ni se crean
+ * objetos. Un hilo consumidor en segundo plano recoge los eventos por lotes y los escribe en ficheros
+ * CSV rotativos (audit-00001.csv, audit-00002.csv, ...) que se cambian al superar un tamaño máximo.
+ * Si el búfer está lleno se aplica la política configurada: descartar y contar, o esperar.
+ */
+public class AuditLog implements AutoCloseable {
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 200_000;
+    private static final String HEADER = "timestamp,account,type,amount,balance,status\n";
+
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final Path directory;
+    private final long maxFileBytes;
+
+    // Ranuras del búfer circular, en columnas; una ranura está publicada cuando published[i] == secuencia + 1.
+    private final long[] timestamps;
+    private final String[] accounts;
+    private final byte[] types;
+    private final long[] amounts;
+    private final long[] balances;
+    private final byte[] statuses;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed = new AtomicLong();     // Siguiente secuencia a reservar
+    private volatile long consumed;                          // Siguiente secuencia a consumir
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private volatile boolean failed;                        // El consumidor no puede escribir
+    private Writer writer;
+    private long fileBytes;
+    private int fileIndex;
+
+    /**
+     * '@param directory Directorio donde se escriben los ficheros de auditoría.
+     * '@param capacity Capacidad del búfer (se redondea a una potencia de dos).
+     * '@param overflowPolicy Política cuando el búfer está lleno.
+     * '@param maxFileBytes Tamaño a partir del cual se rota el fichero.
+     */
+    public AuditLog(Path directory, int capacity, OverflowPolicy overflowPolicy, long maxFileBytes) {
+        if (capacity <= 0 || maxFileBytes <= 0 || overflowPolicy == null) {
+            throw new IllegalArgumentException("Capacity and file size must be positive and policy is mandatory");
+        }
+        int size = Integer.highestOneBit(capacity - 1 == 0 ? 1 : capacity - 1) << 1;
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.timestamps = new long[size];
+        this.accounts = new String[size];
+        this.types = new byte[size];
+        this.amounts = new long[size];
+        this.balances = new long[size];
+        this.statuses = new byte[size];
+        this.published = new AtomicLongArray(size);
+        try {
+            Files.createDirectories(directory);
+            fileIndex = nextFreeIndex();
+            openNextFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit directory " + directory, e);
+        }
+        consumer = new Thread(this::consume, "audit-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Publica un evento de auditoría.
+     * '@param accountNumber Número de la cuenta.
+     * '@param type Tipo de movimiento.
+     * '@param amount Monto en céntimos.
+     * '@param balance Saldo de la cuenta tras la operación (sin cambios si se rechazó).
+     * '@param status Resultado; APPLIED o el motivo del rechazo.
+     * '@return false si el evento se descartó por estar lleno el búfer.
+     */
+    public boolean publish(String accountNumber, MovementType type, long amount, long balance, TransactionStatus status) {
+        if (failed) {
+            dropped.increment();
+            return false;
+        }
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                if (overflowPolicy == OverflowPolicy.DROP || failed) {
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(1_000);       // Contrapresión: esperar a que el consumidor avance
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        accounts[slot] = accountNumber;
+        types[slot] = (byte) type.ordinal();
+        amounts[slot] = amount;
+        balances[slot] = balance;
+        statuses[slot] = (byte) status.ordinal();
+        published.lazySet(slot, sequence + 1);      // Publica los campos anteriores al consumidor
+        return true;
+    }
+
+    /**
+     * '@return Número de eventos descartados por búfer lleno.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * '@return Número de eventos escritos a fichero.
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Detiene el consumidor tras escribir los eventos pendientes y cierra el fichero actual.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* Bucle del hilo consumidor: recoge lotes de eventos publicados, los escribe y libera sus ranuras. */
+    private void consume() {
+        MovementType[] eventTypes = MovementType.values();
+        TransactionStatus[] statusValues = TransactionStatus.values();
+        StringBuilder line = new StringBuilder(128);
+        try {
+            while (true) {
+                long next = consumed;
+                int batch = 0;
+                while (batch < MAX_BATCH) {
+                    int slot = (int) next & mask;
+                    if (published.get(slot) != next + 1) {
+                        break;
+                    }
+                    line.setLength(0);
+                    line.append(timestamps[slot]).append(',')
+                            .append(accounts[slot]).append(',')
+                            .append(eventTypes[types[slot]]).append(',')
+                            .append(Money.format(amounts[slot])).append(',')
+                            .append(Money.format(balances[slot])).append(',')
+                            .append(statusValues[statuses[slot]]).append('\n');
+                    accounts[slot] = null;
+                    write(line);
+                    next++;
+                    batch++;
+                }
+                if (batch > 0) {
+                    writer.flush();
+                    written.add(batch);
+                    consumed = next;        // Libera las ranuras para los productores
+                } else if (!running) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            writer.close();
+        } catch (IOException e) {
+            // Sin fichero no hay dónde auditar: se informa y los eventos siguientes se descartan.
+            failed = true;
+            System.err.println("Audit log stopped: " + e.getMessage());
+        }
+    }
+
+    private void write(CharSequence line) throws IOException {
+        if (fileBytes >= maxFileBytes) {
+            writer.close();
+            openNextFile();
+        }
+        writer.append(line);
+        fileBytes += line.length();
+    }
+
+    private void openNextFile() throws IOException {
+        Path file = directory.resolve(String.format("audit-%05d.csv", fileIndex++));
+        writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 1 << 16);
+        writer.write(HEADER);
+        fileBytes = HEADER.length();
+    }
+
+    private int nextFreeIndex() {
+        int index = 1;
+        while (Files.exists(directory.resolve(String.format("audit-%05d.csv", index)))) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,9 @@
+package org.xyzbank.audit;
+
+/**
+ * Qué hacer cuando el búfer de auditoría está lleno.
+ */
+public enum OverflowPolicy {
+    DROP,   // Descartar el evento y contarlo; quien publica nunca espera
+    BLOCK   // Esperar a que el consumidor libere espacio (contrapresión)
+}
@@ -0,0 +1,120 @@
+package org.xyzbank.batch;
+
+import org.xyzbank.model.Money;
+import org.xyzbank.model.TransactionStatus;
+import org.xyzbank.service.BankService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lee ficheros de movimientos (nóminas, liquidaciones) en formato CSV y los aplica por lotes.
+ * Cada línea tiene la forma "TIPO,número de cuenta,monto", con TIPO DEPOSIT o WITHDRAW y el monto en
+ * unidades (por ejemplo "DEPOSIT,0f8e...,1500.00"). Las líneas vacías y las que empiezan por '#' se ignoran.
+ * El fichero se lee de forma secuencial en bloques de tamaño fijo, por lo que la memoria usada no depende
+ * del tamaño del fichero.
+ */
+public class BatchFileIngester {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BankService bankService;
+    private final int chunkSize;
+
+    /**
+     * '@param bankService Servicio sobre el que se aplican los lotes.
+     * '@param chunkSize Número de operaciones por lote.
+     */
+    public BatchFileIngester(BankService bankService, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.bankService = bankService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Procesa el fichero completo y devuelve el número de operaciones por resultado.
+     * '@param file Fichero CSV de movimientos.
+     * '@param listener Receptor del resultado de cada línea, o null si solo interesa el resumen.
+     * '@return Número de operaciones por resultado.
+     */
+    public Map<TransactionStatus, Long> ingest(Path file, BatchListener listener) {
+        Map<TransactionStatus, Long> summary = new EnumMap<>(TransactionStatus.class);
+        List<BatchOperation> chunk = new ArrayList<>(chunkSize);
+        long[] lineNumbers = new long[chunkSize];
+        try (BufferedReader reader = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                BatchOperation operation = parse(line);
+                if (operation == null) {
+                    summary.merge(TransactionStatus.MALFORMED, 1L, Long::sum);
+                    if (listener != null) {
+                        listener.onResult(lineNumber, null, TransactionStatus.MALFORMED);
+                    }
+                    continue;
+                }
+                lineNumbers[chunk.size()] = lineNumber;
+                chunk.add(operation);
+                if (chunk.size() == chunkSize) {
+                    apply(chunk, lineNumbers, summary, listener);
+                }
+            }
+            apply(chunk, lineNumbers, summary, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read batch file " + file, e);
+        }
+        return summary;
+    }
+
+    private void apply(List<BatchOperation> chunk, long[] lineNumbers, Map<TransactionStatus, Long> summary,
+                       BatchListener listener) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionStatus[] results = bankService.processBatch(chunk);
+        for (int i = 0; i < results.length; i++) {
+            summary.merge(results[i], 1L, Long::sum);
+            if (listener != null) {
+                listener.onResult(lineNumbers[i], chunk.get(i), results[i]);
+            }
+        }
+        chunk.clear();
+    }
+
+    /* Interpreta una línea "TIPO,cuenta,monto"; devuelve null si está mal formada. */
+    private static BatchOperation parse(String line) {
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        if (second < 0 || line.indexOf(',', second + 1) >= 0) {
+            return null;
+        }
+        String type = line.substring(0, first).trim();
+        String accountNumber = line.substring(first + 1, second).trim();
+        try {
+            long amount = Money.parse(line.substring(second + 1));
+            if (type.equalsIgnoreCase("DEPOSIT")) {
+                return BatchOperation.deposit(accountNumber, amount);
+            }
+            if (type.equalsIgnoreCase("WITHDRAW")) {
+                return BatchOperation.withdraw(accountNumber, amount);
+            }
+        } catch (IllegalArgumentException e) {
+            // Monto no válido: la línea se informa como mal formada.
+        }
+        return null;
+    }
+}
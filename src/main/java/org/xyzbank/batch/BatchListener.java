@@ -0,0 +1,17 @@
+package org.xyzbank.batch;
+
+import org.xyzbank.model.TransactionStatus;
+
+/**
+ * Recibe el resultado de cada línea procesada por BatchFileIngester.
+ */
+@FunctionalInterface
+public interface BatchListener {
+
+    /**
+     * '@param lineNumber Número de línea en el fichero (empezando en 1).
+     * '@param operation Operación leída, o null si la línea está mal formada.
+     * '@param status Resultado de la operación.
+     */
+    void onResult(long lineNumber, BatchOperation operation, TransactionStatus status);
+}
@@ -0,0 +1,51 @@
+package org.xyzbank.batch;
+
+/**
+ * Operación individual dentro de un lote: un depósito o un retiro sobre una cuenta.
+ */
+public class BatchOperation {
+
+    public enum Type {
+        DEPOSIT,    // Depósito
+        WITHDRAW    // Retiro
+    }
+
+    private final Type type;
+    private final String accountNumber;
+    private final long amount;          // Monto en céntimos
+
+    /**
+     * '@param type Tipo de operación.
+     * '@param accountNumber Número de la cuenta.
+     * '@param amount Monto en céntimos.
+     * '@throws IllegalArgumentException si el tipo o el número de cuenta son nulos.
+     */
+    public BatchOperation(Type type, String accountNumber, long amount) {
+        if (type == null || accountNumber == null) {
+            throw new IllegalArgumentException("Operation type and account number are mandatory");
+        }
+        this.type = type;
+        this.accountNumber = accountNumber;
+        this.amount = amount;
+    }
+
+    public static BatchOperation deposit(String accountNumber, long amount) {
+        return new BatchOperation(Type.DEPOSIT, accountNumber, amount);
+    }
+
+    public static BatchOperation withdraw(String accountNumber, long amount) {
+        return new BatchOperation(Type.WITHDRAW, accountNumber, amount);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+}
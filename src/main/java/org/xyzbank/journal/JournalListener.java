@@ -0,0 +1,22 @@
+package org.xyzbank.journal;
+
+import org.xyzbank.model.BankAccount;
+
+/**
+ * Receptor de los registros del diario durante la recuperación.
+ * Cada metodo corresponde a un tipo de operación registrada, en el mismo orden en que se escribió,
+ * y recibe la posición lógica del final del registro en el diario. Los movimientos de dinero reciben
+ * además el instante en que se aplicaron.
+ */
+public interface JournalListener {
+
+    void onRegisterClient(long position, String firstName, String lastName, String dni, String email);
+
+    void onOpenBankAccount(long position, String dni, String accountNumber, BankAccount.AccountType accountType);
+
+    void onDeposit(long position, long timestamp, String accountNumber, long amount);
+
+    void onWithdraw(long position, long timestamp, String accountNumber, long amount);
+
+    void onTransfer(long position, long timestamp, String fromAccountNumber, String toAccountNumber, long amount);
+}
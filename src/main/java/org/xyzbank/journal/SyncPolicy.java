@@ -0,0 +1,9 @@
+package org.xyzbank.journal;
+
+/**
+ * Política de sincronización a disco (fsync) del diario de transacciones.
+ */
+public enum SyncPolicy {
+    EVERY_OP,   // Cada operación espera a estar en disco; las operaciones concurrentes comparten un mismo fsync
+    INTERVAL    // Un hilo en segundo plano sincroniza cada N milisegundos; las operaciones no esperan
+}
@@ -0,0 +1,468 @@
+package org.xyzbank.journal;
+
+import org.xyzbank.model.BankAccount;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de transacciones (write-ahead log) en formato binario y de solo anexado.
+ * Cada operación que modifica el estado del banco se escribe como un registro en un FileChannel:
+ *   [int longitud][byte tipo][datos][int CRC32 de tipo + datos]
+ * La sincronización a disco usa "group commit": con EVERY_OP cada operación espera a que su registro
+ * esté en disco, pero un único fsync cubre todos los registros escritos hasta ese momento, de modo que
+ * las operaciones concurrentes comparten el mismo fsync. Con INTERVAL un hilo en segundo plano
+ * sincroniza periódicamente y las operaciones no esperan.
+ * Al arrancar, replay() recorre los registros y descarta una cola incompleta o corrupta (por ejemplo,
+ * si el proceso murió a mitad de una escritura).
+ * Los llamadores anotan cada operación antes de aplicarla (write-ahead): si un append lanza una excepción,
+ * la operación no debe aplicarse. Una escritura fallida se deshace truncando el registro a medias; si ni
+ * eso es posible, o si falla un fsync, el diario queda inutilizable y rechaza los appends siguientes, para
+ * no anotar operaciones detrás de un registro roto que la recuperación descartaría.
+ * Quien anota y después aplica lo hace entre beginApply() y endApply(); getAppliedPosition() espera a que
+ * terminen esos tramos en curso, de modo que una instantánea o un checkpoint no den por aplicado un registro
+ * que aún no ha llegado al repositorio.
+ * *
+ * Las posiciones del diario son lógicas: cuentan bytes desde el inicio de la historia y no cambian
+ * cuando compact() descarta la parte ya cubierta por una instantánea. La cabecera guarda la posición
+ * lógica del primer registro que contiene el fichero.
+ */
+public class TransactionJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x58595a4a;        // "XYZJ"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;          // magic + versión + posición base
+    private static final int MAX_RECORD_SIZE = 256 * 1024;
+
+    private static final byte REGISTER_CLIENT = 1;
+    private static final byte OPEN_ACCOUNT = 2;
+    private static final byte DEPOSIT = 3;
+    private static final byte WITHDRAW = 4;
+    private static final byte TRANSFER = 5;
+
+    private final Path path;
+    private final SyncPolicy syncPolicy;
+    private volatile FileChannel channel;       // Se reemplaza al compactar (bajo compactLock, this y syncLock)
+    private volatile long basePosition;         // Posición lógica del primer registro del fichero
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_RECORD_SIZE);   // Reutilizado bajo el bloqueo de escritura
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+    private final Object compactLock = new Object();          // Serializa las compactaciones
+    private final ScheduledExecutorService syncScheduler;
+    // Lectura: anotar y aplicar una operación; escritura: leer la posición aplicada sin tramos a medias.
+    private final ReentrantReadWriteLock applyLock = new ReentrantReadWriteLock();
+
+    private volatile long writtenPosition;     // Fin lógico del último registro escrito
+    private volatile boolean failed;           // Una escritura o un fsync fallaron sin poder deshacerse
+    private long syncedPosition;               // Fin del último registro sincronizado a disco (protegido por syncLock)
+
+    /**
+     * Abre (o crea) el diario en la ruta indicada.
+     * '@param path Ruta del fichero del diario.
+     * '@param syncPolicy Política de sincronización a disco.
+     * '@param syncIntervalMillis Intervalo entre sincronizaciones cuando la política es INTERVAL.
+     * '@throws UncheckedIOException si el fichero no se puede abrir o no es un diario válido.
+     */
+    public TransactionJournal(Path path, SyncPolicy syncPolicy, long syncIntervalMillis) {
+        if (syncPolicy == null || syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Sync policy is mandatory and interval must be positive");
+        }
+        this.path = path;
+        this.syncPolicy = syncPolicy;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(channel, 0);
+            } else {
+                readHeader();
+            }
+            this.writtenPosition = logical(channel.size());
+            this.syncedPosition = writtenPosition;
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + path, e);
+        }
+        if (syncPolicy == SyncPolicy.INTERVAL) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Devuelve la posición lógica del final del último registro escrito.
+     * Siempre coincide con un límite entre registros.
+     */
+    public long getWrittenPosition() {
+        return writtenPosition;
+    }
+
+    /**
+     * Empieza un tramo de anotar en el diario y aplicar la operación. Los tramos no se excluyen entre sí;
+     * debe cerrarse con endApply() en un finally, y sin esperar dentro a awaitDurable.
+     */
+    public void beginApply() {
+        applyLock.readLock().lock();
+    }
+
+    /**
+     * Termina el tramo empezado con beginApply().
+     */
+    public void endApply() {
+        applyLock.readLock().unlock();
+    }
+
+    /**
+     * Devuelve una posición, en un límite entre registros, hasta la que todos los registros escritos ya están
+     * aplicados: espera a que terminen los tramos beginApply()/endApply() en curso. Es la posición que puede
+     * cubrir una instantánea o un checkpoint.
+     */
+    public long getAppliedPosition() {
+        applyLock.writeLock().lock();
+        try {
+            return writtenPosition;
+        } finally {
+            applyLock.writeLock().unlock();
+        }
+    }
+
+    // Métodos para anexar registros. Devuelven la posición final del registro, a usar con awaitDurable.
+    // Los movimientos de dinero guardan su instante (ms desde epoch) para reconstruir el historial.
+
+    public synchronized long appendRegisterClient(String firstName, String lastName, String dni, String email) {
+        beginRecord(REGISTER_CLIENT);
+        putString(firstName);
+        putString(lastName);
+        putString(dni);
+        putString(email);
+        return endRecord();
+    }
+
+    public synchronized long appendOpenBankAccount(String dni, String accountNumber, BankAccount.AccountType accountType) {
+        beginRecord(OPEN_ACCOUNT);
+        putString(dni);
+        putString(accountNumber);
+        buffer.put((byte) accountType.ordinal());
+        return endRecord();
+    }
+
+    public synchronized long appendDeposit(long timestamp, String accountNumber, long amount) {
+        beginRecord(DEPOSIT);
+        buffer.putLong(timestamp);
+        putString(accountNumber);
+        buffer.putLong(amount);
+        return endRecord();
+    }
+
+    public synchronized long appendWithdraw(long timestamp, String accountNumber, long amount) {
+        beginRecord(WITHDRAW);
+        buffer.putLong(timestamp);
+        putString(accountNumber);
+        buffer.putLong(amount);
+        return endRecord();
+    }
+
+    public synchronized long appendTransfer(long timestamp, String fromAccountNumber, String toAccountNumber, long amount) {
+        beginRecord(TRANSFER);
+        buffer.putLong(timestamp);
+        putString(fromAccountNumber);
+        putString(toAccountNumber);
+        buffer.putLong(amount);
+        return endRecord();
+    }
+
+    /**
+     * Espera a que el registro que termina en la posición indicada esté sincronizado a disco.
+     * Solo espera con la política EVERY_OP; un único fsync cubre a todos los hilos que esperan.
+     * '@param position Posición devuelta por uno de los metodos append.
+     */
+    public void awaitDurable(long position) {
+        if (syncPolicy != SyncPolicy.EVERY_OP) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedPosition < position) {
+                forceToDisk();
+            }
+        }
+    }
+
+    /**
+     * Sincroniza a disco todos los registros escritos hasta el momento.
+     */
+    public void sync() {
+        synchronized (syncLock) {
+            if (syncedPosition < writtenPosition) {
+                forceToDisk();
+            }
+        }
+    }
+
+    /**
+     * Recorre los registros válidos del diario, en orden, notificando al receptor los que terminan
+     * después de la posición indicada. Si encuentra un registro incompleto o con CRC inválido, lo
+     * descarta junto con el resto del fichero, ya que corresponde a una escritura interrumpida.
+     * '@param listener Receptor que aplica cada registro.
+     * '@param fromPosition Posición lógica ya cubierta (por ejemplo, por una instantánea); 0 para todo.
+     * '@return Número de registros aplicados.
+     * '@throws IllegalStateException si el diario ya no contiene los registros desde esa posición.
+     */
+    public synchronized long replay(JournalListener listener, long fromPosition) {
+        if (fromPosition < basePosition) {
+            throw new IllegalStateException("Journal starts at " + basePosition + ", cannot replay from " + fromPosition);
+        }
+        long applied = 0;
+        long goodPosition = HEADER_SIZE;
+        try {
+            channel.position(HEADER_SIZE);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            byte[] record = new byte[MAX_RECORD_SIZE];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    in.readFully(record, 0, length);
+                    int checksum = in.readInt();
+                    crc.reset();
+                    crc.update(record, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;      // Cola incompleta: el proceso murió a mitad de una escritura.
+                }
+                goodPosition += Integer.BYTES + length + Integer.BYTES;
+                long position = logical(goodPosition);
+                if (position > fromPosition) {
+                    apply(ByteBuffer.wrap(record, 0, length), position, listener);
+                    applied++;
+                }
+            }
+            if (goodPosition < channel.size()) {
+                channel.truncate(goodPosition);
+            }
+            channel.position(goodPosition);
+            writtenPosition = logical(goodPosition);
+            synchronized (syncLock) {
+                syncedPosition = Math.min(syncedPosition, writtenPosition);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay journal", e);
+        }
+        return applied;
+    }
+
+    /**
+     * Descarta del fichero los registros que terminan en o antes de la posición indicada, normalmente
+     * la posición cubierta por una instantánea ya guardada. Copia la cola restante a un fichero nuevo
+     * y lo sustituye de forma atómica. La copia se hace sin bloquear las escrituras, que siguen anexando al
+     * fichero anterior; solo lo escrito durante la copia se añade con las escrituras en espera, justo antes
+     * del cambio de fichero.
+     * '@param upToPosition Posición lógica, en un límite entre registros, hasta la que descartar.
+     */
+    public void compact(long upToPosition) {
+        synchronized (compactLock) {
+            long copiedEnd;
+            synchronized (this) {
+                if (upToPosition <= basePosition) {
+                    return;
+                }
+                if (upToPosition > writtenPosition) {
+                    throw new IllegalArgumentException("Cannot compact beyond the end of the journal");
+                }
+                copiedEnd = writtenPosition;
+            }
+            // Solo compact() cambia el fichero y la posición base, y compactLock lo serializa: aquí son estables.
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(target, upToPosition);
+                long copied = HEADER_SIZE + transfer(physical(upToPosition), physical(copiedEnd), target, HEADER_SIZE);
+                target.force(true);
+                synchronized (this) {
+                    synchronized (syncLock) {
+                        transfer(physical(copiedEnd), physical(writtenPosition), target, copied);
+                        target.force(true);
+                        channel.close();
+                        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        syncDirectory(path);
+                        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                        basePosition = upToPosition;
+                        channel.position(channel.size());
+                        syncedPosition = writtenPosition;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot compact journal", e);
+            }
+        }
+    }
+
+    /* Copia el tramo [from, to) del fichero actual al destino a partir de la posición indicada; devuelve
+     * los bytes copiados. Son lecturas posicionales: no mueven la posición de escritura del diario.
+     */
+    private long transfer(long from, long to, FileChannel target, long targetPosition) throws IOException {
+        long size = to - from;
+        long copied = 0;
+        while (copied < size) {
+            copied += channel.transferTo(from + copied, size - copied, target.position(targetPosition + copied));
+        }
+        return copied;
+    }
+
+    /**
+     * Sincroniza lo pendiente y cierra el diario.
+     */
+    @Override
+    public void close() {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal", e);
+        }
+    }
+
+    private void apply(ByteBuffer record, long position, JournalListener listener) {
+        byte type = record.get();
+        switch (type) {
+            case REGISTER_CLIENT -> listener.onRegisterClient(position, getString(record), getString(record),
+                    getString(record), getString(record));
+            case OPEN_ACCOUNT -> listener.onOpenBankAccount(position, getString(record), getString(record),
+                    BankAccount.AccountType.values()[record.get()]);
+            case DEPOSIT -> listener.onDeposit(position, record.getLong(), getString(record), record.getLong());
+            case WITHDRAW -> listener.onWithdraw(position, record.getLong(), getString(record), record.getLong());
+            case TRANSFER -> listener.onTransfer(position, record.getLong(), getString(record), getString(record),
+                    record.getLong());
+            default -> throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    private void beginRecord(byte type) {
+        if (failed) {
+            throw new IllegalStateException("Journal is unusable after a failed write: " + path);
+        }
+        buffer.clear();
+        buffer.putInt(0);       // Longitud, se completa en endRecord
+        buffer.put(type);
+    }
+
+    private long endRecord() {
+        int length = buffer.position() - Integer.BYTES;
+        buffer.putInt(0, length);
+        crc.reset();
+        crc.update(buffer.duplicate().position(Integer.BYTES).limit(buffer.position()));
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        long start = physical(writtenPosition);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Quitar lo que se llegó a escribir del registro, para que los siguientes no queden detrás de él.
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException | RuntimeException truncateFailure) {
+                failed = true;
+                e.addSuppressed(truncateFailure);
+            }
+            throw new UncheckedIOException("Cannot write to journal", e);
+        }
+        writtenPosition += Integer.BYTES + length + Integer.BYTES;
+        return writtenPosition;
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for journal: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void forceToDisk() {
+        long target = writtenPosition;      // Todo lo escrito hasta aquí queda cubierto por este fsync
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            // Tras un fsync fallido no se sabe qué llegó a disco: no se anota nada más.
+            failed = true;
+            throw new UncheckedIOException("Cannot sync journal", e);
+        }
+        syncedPosition = target;
+    }
+
+    private long logical(long physicalPosition) {
+        return basePosition + physicalPosition - HEADER_SIZE;
+    }
+
+    private long physical(long logicalPosition) {
+        return logicalPosition - basePosition + HEADER_SIZE;
+    }
+
+    /* Sincroniza el directorio del fichero, para que el cambio de nombre sobreviva a una caída. */
+    private static void syncDirectory(Path file) throws IOException {
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private static void writeHeader(FileChannel target, long base) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(base).flip();
+        target.truncate(0);
+        target.write(header, 0);
+        target.force(true);
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a bank journal file");
+        }
+        basePosition = header.getLong();
+    }
+}
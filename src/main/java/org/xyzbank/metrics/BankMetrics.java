@@ -0,0 +1,63 @@
+package org.xyzbank.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de las operaciones de BankService: un contador por operación y resultado, y un histograma
+ * de latencias por operación. Los contadores son LongAdder (repartidos por hilo) y el histograma también
+ * usa franjas, de modo que registrar no serializa a los hilos ni crea objetos.
+ */
+public class BankMetrics {
+
+    private final LongAdder[][] counters;
+    private final LatencyHistogram[] latencies;
+
+    public BankMetrics() {
+        Operation[] operations = Operation.values();
+        counters = new LongAdder[operations.length][Outcome.values().length];
+        latencies = new LatencyHistogram[operations.length];
+        for (Operation operation : operations) {
+            for (Outcome outcome : Outcome.values()) {
+                counters[operation.ordinal()][outcome.ordinal()] = new LongAdder();
+            }
+            latencies[operation.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Registra una operación terminada: cuenta su resultado y su latencia desde el instante de inicio.
+     * '@param operation Operación medida.
+     * '@param outcome Resultado de la operación.
+     * '@param startNanos Valor de System.nanoTime() al empezar la operación.
+     */
+    public void record(Operation operation, Outcome outcome, long startNanos) {
+        counters[operation.ordinal()][outcome.ordinal()].increment();
+        latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Cuenta un resultado sin latencia (por ejemplo, cada elemento de un lote).
+     */
+    public void count(Operation operation, Outcome outcome) {
+        counters[operation.ordinal()][outcome.ordinal()].increment();
+    }
+
+    /**
+     * Toma una instantánea de todos los contadores e histogramas.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Operation, long[]> counts = new EnumMap<>(Operation.class);
+        Map<Operation, LatencyHistogram.Snapshot> histograms = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            long[] outcomes = new long[Outcome.values().length];
+            for (Outcome outcome : Outcome.values()) {
+                outcomes[outcome.ordinal()] = counters[operation.ordinal()][outcome.ordinal()].sum();
+            }
+            counts.put(operation, outcomes);
+            histograms.put(operation, latencies[operation.ordinal()].snapshot());
+        }
+        return new MetricsSnapshot(counts, histograms);
+    }
+}
@@ -0,0 +1,62 @@
+package org.xyzbank.metrics;
+
+import java.util.Map;
+
+/**
+ * Copia inmutable de las métricas en un instante, para consultarlas o exportarlas.
+ */
+public class MetricsSnapshot {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final Map<Operation, long[]> counts;
+    private final Map<Operation, LatencyHistogram.Snapshot> latencies;
+
+    MetricsSnapshot(Map<Operation, long[]> counts, Map<Operation, LatencyHistogram.Snapshot> latencies) {
+        this.counts = counts;
+        this.latencies = latencies;
+    }
+
+    /**
+     * '@return Número de operaciones con el resultado indicado.
+     */
+    public long getCount(Operation operation, Outcome outcome) {
+        return counts.get(operation)[outcome.ordinal()];
+    }
+
+    /**
+     * '@return Distribución de latencias de la operación, en nanosegundos.
+     */
+    public LatencyHistogram.Snapshot getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Exporta las métricas en formato de texto, una métrica por línea, por ejemplo:
+     *   bank_operations_total{operation="withdraw",outcome="rejected_overdraft_limit"} 3
+     *   bank_latency_nanos{operation="withdraw",quantile="0.99"} 2047
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Operation, long[]> entry : counts.entrySet()) {
+            String operation = entry.getKey().name().toLowerCase();
+            for (Outcome outcome : Outcome.values()) {
+                out.append("bank_operations_total{operation=\"").append(operation)
+                        .append("\",outcome=\"").append(outcome.name().toLowerCase()).append("\"} ")
+                        .append(entry.getValue()[outcome.ordinal()]).append('\n');
+            }
+            LatencyHistogram.Snapshot latency = latencies.get(entry.getKey());
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                out.append("bank_latency_nanos{operation=\"").append(operation)
+                        .append("\",quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ")
+                        .append(latency.getPercentile(PERCENTILES[i])).append('\n');
+            }
+            out.append("bank_latency_nanos_max{operation=\"").append(operation).append("\"} ")
+                    .append(latency.getMax()).append('\n');
+            out.append("bank_latency_nanos_mean{operation=\"").append(operation).append("\"} ")
+                    .append(Math.round(latency.getMean())).append('\n');
+        }
+        return out.toString();
+    }
+}
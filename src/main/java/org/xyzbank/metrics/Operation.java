@@ -0,0 +1,15 @@
+package org.xyzbank.metrics;
+
+/**
+ * Operaciones públicas de BankService que se miden.
+ */
+public enum Operation {
+    REGISTER_CLIENT,
+    OPEN_BANK_ACCOUNT,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    CHECK_BALANCE,
+    STATEMENT,
+    PROCESS_BATCH
+}
@@ -0,0 +1,27 @@
+package org.xyzbank.metrics;
+
+import org.xyzbank.model.TransactionStatus;
+
+/**
+ * Resultado de una operación a efectos de métricas.
+ */
+public enum Outcome {
+    SUCCESS,                            // Operación aplicada
+    REJECTED_SAVINGS_NEGATIVE_BALANCE,  // Retiro rechazado: la cuenta de AHORROS quedaría en negativo
+    REJECTED_OVERDRAFT_LIMIT,           // Retiro rechazado: la cuenta CORRIENTE superaría el sobregiro
+    NOT_FOUND,                          // Cuenta o cliente inexistente
+    INVALID;                            // Cualquier otro rechazo (monto, formato, duplicados...)
+
+    /**
+     * Traduce el resultado de un movimiento a su categoría de métricas.
+     */
+    public static Outcome of(TransactionStatus status) {
+        return switch (status) {
+            case APPLIED -> SUCCESS;
+            case SAVINGS_NEGATIVE_BALANCE -> REJECTED_SAVINGS_NEGATIVE_BALANCE;
+            case OVERDRAFT_LIMIT_EXCEEDED -> REJECTED_OVERDRAFT_LIMIT;
+            case ACCOUNT_NOT_FOUND -> NOT_FOUND;
+            default -> INVALID;
+        };
+    }
+}
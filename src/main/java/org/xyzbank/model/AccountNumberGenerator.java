@@ -0,0 +1,168 @@
+// Generadores de números de cuenta
+package org.xyzbank.model;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Genera los números de las cuentas nuevas. Todos los esquemas producen UUID en su forma canónica de
+ * 36 caracteres, para que el formato de los números no cambie con el esquema elegido:
+ *  - SECURE_RANDOM: UUID.randomUUID(), aleatorio de 122 bits con SecureRandom. Es el esquema por
+ *    defecto, pero todos los hilos comparten el mismo SecureRandom y puede bloquearse o competir
+ *    en aperturas masivas.
+ *  - THREAD_SEEDED: UUID versión 4 con un generador por hilo, derivado de una única semilla de SecureRandom.
+ *    Igual de improbable de repetir, sin contención entre hilos.
+ *  - TIME_ORDERED: UUID versión 7, con los milisegundos desde epoch en los 48 bits altos, un contador
+ *    de 12 bits y 62 bits aleatorios. Dentro del proceso nunca se repite (marca de tiempo y contador
+ *    son estrictamente crecientes) y los números quedan ordenados por fecha de apertura.
+ * Opcionalmente se añaden dos dígitos de control (ISO 7064 mod 97-10, como en el IBAN) tras un guion,
+ * que detectan cualquier error de un carácter y casi todas las transposiciones al teclear un número.
+ */
+@FunctionalInterface
+public interface AccountNumberGenerator {
+
+    /**
+     * '@return Un número de cuenta nuevo.
+     */
+    String next();
+
+    /**
+     * Comprueba, sin buscarlo, si un número puede ser de una cuenta de este generador: con dígitos de
+     * control, que sean correctos; sin ellos, cualquier número se acepta.
+     * '@param accountNumber Número a comprobar.
+     * '@return false si el número es seguro que no existe (por ejemplo, con un carácter mal tecleado).
+     */
+    default boolean accepts(String accountNumber) {
+        return true;
+    }
+
+    /**
+     * Esquemas de generación disponibles.
+     */
+    enum Scheme {
+        SECURE_RANDOM,
+        THREAD_SEEDED,
+        TIME_ORDERED
+    }
+
+    /**
+     * '@param scheme Esquema de generación.
+     * '@param checkDigits Si se añaden dígitos de control.
+     * '@return Un generador con el esquema indicado.
+     */
+    static AccountNumberGenerator of(Scheme scheme, boolean checkDigits) {
+        AccountNumberGenerator generator = switch (scheme) {
+            case SECURE_RANDOM -> () -> UUID.randomUUID().toString();
+            case THREAD_SEEDED -> new ThreadSeeded();
+            case TIME_ORDERED -> new TimeOrdered();
+        };
+        return checkDigits ? new WithCheckDigits(generator) : generator;
+    }
+
+    /**
+     * Añade a un número sus dos dígitos de control.
+     * '@param number Número sin dígitos de control.
+     * '@return El número seguido de un guion y los dos dígitos.
+     */
+    static String withCheckDigits(String number) {
+        int check = 98 - mod97(number, number.length(), 0);
+        return number + (check < 10 ? "-0" : "-") + check;
+    }
+
+    /**
+     * '@param number Número con dígitos de control, como los genera withCheckDigits.
+     * '@return true si los dígitos de control son correctos.
+     */
+    static boolean hasValidCheckDigits(String number) {
+        int length = number.length();
+        if (length < 4 || number.charAt(length - 3) != '-') {
+            return false;
+        }
+        char tens = number.charAt(length - 2);
+        char units = number.charAt(length - 1);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return false;
+        }
+        return mod97(number, length - 3, (tens - '0') * 10 + (units - '0')) == 1;
+    }
+
+    /* Resto módulo 97 de los primeros caracteres alfanuméricos del número (cada uno como su valor en base
+     * 36, de 0 a 35) seguidos de los dos dígitos indicados. Los guiones se ignoran.
+     */
+    private static int mod97(String number, int length, int trailing) {
+        int remainder = 0;
+        for (int i = 0; i < length; i++) {
+            int value = Character.digit(number.charAt(i), 36);
+            if (value >= 0) {
+                remainder = (remainder * (value < 10 ? 10 : 100) + value) % 97;
+            }
+        }
+        return (remainder * 100 + trailing) % 97;
+    }
+
+    /* Añade los dígitos de control a los números de otro generador y solo acepta números que los tengan
+     * correctos. */
+    final class WithCheckDigits implements AccountNumberGenerator {
+        private final AccountNumberGenerator numbers;
+
+        WithCheckDigits(AccountNumberGenerator numbers) {
+            this.numbers = numbers;
+        }
+
+        @Override
+        public String next() {
+            return withCheckDigits(numbers.next());
+        }
+
+        @Override
+        public boolean accepts(String accountNumber) {
+            return hasValidCheckDigits(accountNumber);
+        }
+    }
+
+    /* UUID versión 4 a partir de un generador por hilo. La semilla se pide a SecureRandom una sola vez por
+     * generador; la de cada hilo se deriva de ella y del identificador del hilo, como en ThreadLocalRandom,
+     * así que un hilo nuevo (por ejemplo, uno virtual por petición) no compite por ningún estado compartido.
+     */
+    final class ThreadSeeded implements AccountNumberGenerator {
+        private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+        private final long seed = new SecureRandom().nextLong();
+        private final ThreadLocal<SplittableRandom> randoms = ThreadLocal.withInitial(
+                () -> new SplittableRandom(mix64(seed + Thread.currentThread().getId() * GOLDEN_GAMMA)));
+
+        @Override
+        public String next() {
+            SplittableRandom random = randoms.get();
+            long msb = (random.nextLong() & ~0xF000L) | 0x4000L;                 // Versión 4
+            long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | Long.MIN_VALUE;   // Variante IETF
+            return new UUID(msb, lsb).toString();
+        }
+
+        /* Mezcla de 64 bits (variante 13 de Stafford), para que hilos con identificadores seguidos no
+         * empiecen en puntos cercanos de la secuencia. */
+        private static long mix64(long value) {
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            return value ^ (value >>> 31);
+        }
+    }
+
+    /* UUID versión 7: marca de tiempo en milisegundos, contador y bits aleatorios. */
+    final class TimeOrdered implements AccountNumberGenerator {
+        private final AtomicLong lastStamp = new AtomicLong();      // (milisegundos << 12) | contador
+
+        @Override
+        public String next() {
+            long now = System.currentTimeMillis() << 12;
+            // Si en el mismo milisegundo se agota el contador, se toma prestado el siguiente milisegundo.
+            long stamp = lastStamp.updateAndGet(previous -> Math.max(now, previous + 1));
+            long msb = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);             // Versión 7
+            long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | Long.MIN_VALUE;
+            return new UUID(msb, lsb).toString();
+        }
+    }
+}
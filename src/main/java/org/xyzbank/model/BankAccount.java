@@ -4,6 +4,9 @@ package org.xyzbank.model;
 /**
  * La clase BankAccount contiene los detalles de una cuenta bancaria,
  * incluyendo el número de cuenta, saldo actual y tipo de cuenta.
+ * Las operaciones sobre el saldo se sincronizan sobre la propia cuenta (un bloqueo por cuenta),
+ * de modo que hilos concurrentes no pierden actualizaciones ni violan los límites de retiro,
+ * y operaciones sobre cuentas distintas no compiten entre sí.
  */
 public class BankAccount {
 
@@ -12,9 +15,16 @@ public class BankAccount {
         CORRIENTE   // Cuenta corriente
     }
 
-    private String accountNumber;       // Número único de la cuenta bancaria
-    private double balance;             // Saldo actual de la cuenta
-    private AccountType accountType;    // Tipo de cuenta (AHORROS o CORRIENTE)
+    // Límite de sobregiro de las cuentas corrientes, en céntimos (-500.00)
+    public static final long OVERDRAFT_LIMIT = -500_00L;
+
+    private final String accountNumber;     // Número único de la cuenta bancaria
+    private long balance;               // Saldo actual de la cuenta, en céntimos
+    private final AccountType accountType;  // Tipo de cuenta (AHORROS o CORRIENTE)
+    private long journalPosition;       // Posición en el diario del último movimiento aplicado
+    private long totalDeposited;        // Volumen depositado desde la apertura, en céntimos
+    private long totalWithdrawn;        // Volumen retirado desde la apertura, en céntimos
+    private final TransactionHistory history = new TransactionHistory();   // Movimientos de la cuenta
 
     /**
      * Constructor para inicializar una cuenta bancaria con el número de cuenta y tipo.
@@ -29,7 +39,7 @@ public class BankAccount {
         }
         this.accountNumber = accountNumber;
         this.accountType = accountType;
-        this.balance = 0.0;     // Inicializa el saldo en 0.0
+        this.balance = 0L;      // Inicializa el saldo en 0.00
     }
 
     // Métodos Getters y Setters para acceder y modificar los atributos de la clase
@@ -37,11 +47,11 @@ public class BankAccount {
         return accountNumber;
     }
 
-    public double getBalance() {
+    public synchronized long getBalance() {
         return balance;
     }
 
-    public void setBalance(double balance) {
+    public synchronized void setBalance(long balance) {
         this.balance = balance;
     }
 
@@ -49,43 +59,138 @@ public class BankAccount {
         return accountType;
     }
 
+    public TransactionHistory getHistory() {
+        return history;
+    }
+
+    public synchronized long getJournalPosition() {
+        return journalPosition;
+    }
+
+    public synchronized void setJournalPosition(long journalPosition) {
+        this.journalPosition = journalPosition;
+    }
+
+    public synchronized long getTotalDeposited() {
+        return totalDeposited;
+    }
+
+    public synchronized long getTotalWithdrawn() {
+        return totalWithdrawn;
+    }
+
+    /**
+     * Restablece los volúmenes depositado y retirado al cargar la cuenta de una instantánea o del almacén.
+     * '@param totalDeposited Volumen depositado, en céntimos.
+     * '@param totalWithdrawn Volumen retirado, en céntimos.
+     */
+    public synchronized void setVolumes(long totalDeposited, long totalWithdrawn) {
+        this.totalDeposited = totalDeposited;
+        this.totalWithdrawn = totalWithdrawn;
+    }
+
+    /**
+     * Suma un movimiento aplicado a los volúmenes de la cuenta; las transferencias no cuentan.
+     * Se llama con la cuenta bloqueada, junto con el cambio de saldo, para que los volúmenes se guarden
+     * siempre con el saldo y la posición en el diario que les corresponden.
+     * '@param type Tipo de movimiento.
+     * '@param amount Monto en céntimos.
+     */
+    public synchronized void recordVolume(MovementType type, long amount) {
+        if (type == MovementType.DEPOSIT) {
+            totalDeposited += amount;
+        } else if (type == MovementType.WITHDRAW) {
+            totalWithdrawn += amount;
+        }
+    }
+
     /**
      * Metodo para DEPOSITAR dinero en la cuenta.
-     * '@param amount Cantidad a depositar.
+     * '@param amount Cantidad a depositar, en céntimos.
      * '@throws IllegalArgumentException si el monto es negativo.
      */
-    public void deposit(double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Deposit amount must be positive");
+    public synchronized void deposit(long amount) {
+        TransactionStatus status = tryDeposit(amount);
+        if (status != TransactionStatus.APPLIED) {
+            throw new IllegalArgumentException(status.describe("Deposit"));
         }
-        this.balance += amount;
+    }
 
-        // Registro de log para auditoría de la operación de depósito
-//        System.out.println("Deposited " + amount + " into account " + accountNumber + ". New balance: " + balance);
+    /**
+     * Metodo para DEPOSITAR dinero en la cuenta sin lanzar excepciones.
+     * '@param amount Cantidad a depositar, en céntimos.
+     * '@return APPLIED si se depositó, INVALID_AMOUNT si el monto no es positivo o BALANCE_OVERFLOW si el
+     * saldo no cabría en un long.
+     */
+    public synchronized TransactionStatus tryDeposit(long amount) {
+        TransactionStatus status = checkDeposit(balance, amount);
+        if (status == TransactionStatus.APPLIED) {
+            this.balance += amount;
+        }
+        return status;
     }
 
     /**
      * Metodo para RETIRAR dinero de la cuenta, con validaciones según el tipo de cuenta.
-     * '@param amount Cantidad a retirar.
+     * '@param amount Cantidad a retirar, en céntimos.
      * '@throws IllegalArgumentException si el monto es negativo o no cumple las reglas del tipo de cuenta.
      */
-    public void withdraw(double amount) {
+    public synchronized void withdraw(long amount) {
+        TransactionStatus status = tryWithdraw(amount);
+        if (status != TransactionStatus.APPLIED) {
+            throw new IllegalArgumentException(status.describe("Withdrawal"));
+        }
+    }
+
+    /**
+     * Metodo para RETIRAR dinero de la cuenta sin lanzar excepciones, con las mismas reglas que withdraw.
+     * '@param amount Cantidad a retirar, en céntimos.
+     * '@return APPLIED si se retiró, o el motivo del rechazo.
+     */
+    public synchronized TransactionStatus tryWithdraw(long amount) {
+        TransactionStatus status = checkWithdrawal(accountType, balance, amount);
+        if (status == TransactionStatus.APPLIED) {
+            this.balance -= amount;
+        }
+        return status;
+    }
+
+    /**
+     * Reglas de un depósito, para validarlo sin aplicarlo (por ejemplo, antes de anotarlo en el diario).
+     * '@param balance Saldo actual, en céntimos.
+     * '@param amount Cantidad a depositar, en céntimos.
+     * '@return APPLIED si el depósito es válido, o el motivo del rechazo.
+     */
+    public static TransactionStatus checkDeposit(long balance, long amount) {
         if (amount <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive");
+            return TransactionStatus.INVALID_AMOUNT;
         }
-        if (this.accountType == AccountType.AHORROS && this.balance - amount < 0) {
-//            System.out.println("Withdrawal of " + amount + " rejected for account " + accountNumber + ". Insufficient balance.");
-//            throw new IllegalArgumentException("Insufficient balance for savings account");
-            throw new IllegalArgumentException("Savings accounts cannot have a negative balance");
+        // Con saldo no positivo la suma no puede desbordar; con saldo positivo se compara sin sumar.
+        if (balance > 0 && amount > Long.MAX_VALUE - balance) {
+            return TransactionStatus.BALANCE_OVERFLOW;
         }
-        if (this.accountType == AccountType.CORRIENTE && this.balance - amount < -500.00) {
-//            System.out.println("Withdrawal of " + amount + " rejected for account " + accountNumber + ". Overdraft limit exceeded.");
-//            throw new IllegalArgumentException("Overdraft limit exceeded for current account");
-            throw new IllegalArgumentException("Checking accounts cannot exceed overdraft limit of -500.00");
+        return TransactionStatus.APPLIED;
+    }
+
+    /**
+     * Reglas de un retiro según el tipo de cuenta, para validarlo sin aplicarlo.
+     * Las comparaciones no restan del saldo, para que un monto enorme no desborde y pase el límite.
+     * '@param accountType Tipo de la cuenta.
+     * '@param balance Saldo actual, en céntimos.
+     * '@param amount Cantidad a retirar, en céntimos.
+     * '@return APPLIED si el retiro es válido, o el motivo del rechazo.
+     */
+    public static TransactionStatus checkWithdrawal(AccountType accountType, long balance, long amount) {
+        if (amount <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+        if (accountType == AccountType.AHORROS && balance < amount) {
+            return TransactionStatus.SAVINGS_NEGATIVE_BALANCE;
+        }
+        // balance - amount < OVERDRAFT_LIMIT, escrito de forma que ningún término desborda (amount > 0).
+        if (accountType == AccountType.CORRIENTE && balance < amount + OVERDRAFT_LIMIT) {
+            return TransactionStatus.OVERDRAFT_LIMIT_EXCEEDED;
         }
-        this.balance -= amount;
+        return TransactionStatus.APPLIED;
     }
 }
-
-//Podrías implementar un sistema de registro para rastrear retiros rechazados por superar el límite de sobregiro.
-
@@ -2,18 +2,27 @@
 package org.xyzbank.model;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * La clase Client contiene información personal del cliente y una lista de cuentas bancarias asociadas.
  * Los campos obligatorios son: nombre, apellido, DNI y correo electrónico.
  */
 public class Client {
+    // Patrón del correo, compilado una sola vez en lugar de en cada String.matches.
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+    // A partir de este número de cuentas, los duplicados se buscan en un conjunto en vez de recorrer la lista.
+    private static final int INDEXED_ACCOUNTS = 8;
+
     private String firstName;
     private String lastName;
     private String dni;
     private String email;
     private List<BankAccount> accounts;     // Lista de cuentas bancarias asociadas al cliente
+    private Set<String> accountNumbers;     // Números de las cuentas; solo se crea con muchas cuentas
 
     /**
      * Constructor para inicializar un cliente con los datos obligatorios como parámetros.
@@ -27,7 +36,7 @@ public class Client {
             throw new IllegalArgumentException("All fields are mandatory and cannot be blank");
         }
         // Validación formato válido de correo
-        if (!email.matches("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$")) {
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
             throw new IllegalArgumentException("Invalid email format");
         }
         this.firstName = firstName;
@@ -60,14 +69,51 @@ public class Client {
 
     /**
      * Metodo para agregar una cuenta bancaria a la lista de cuentas del cliente.
-     * Valida que no exista ya una cuenta con el mismo número.
+     * Valida que no exista ya una cuenta con el mismo número: recorriendo la lista mientras el cliente tiene
+     * pocas cuentas, y con un conjunto de números a partir de INDEXED_ACCOUNTS.
      * '@param account La cuenta bancaria que se va a asociar al cliente.
      * '@throws IllegalArgumentException si ya existe una cuenta con el mismo número.
      */
     public void addAccount(BankAccount account) {
-        if (accounts.stream().anyMatch(existingAccount -> existingAccount.getAccountNumber().equals(account.getAccountNumber()))) {
+        String accountNumber = account.getAccountNumber();
+        // La mayoría de clientes tiene pocas cuentas: un recorrido simple es más barato que un conjunto.
+        if (accountNumbers == null && accounts.size() >= INDEXED_ACCOUNTS) {
+            accountNumbers = new HashSet<>();
+            for (BankAccount existingAccount : accounts) {
+                accountNumbers.add(existingAccount.getAccountNumber());
+            }
+        }
+        boolean duplicate;
+        if (accountNumbers != null) {
+            duplicate = !accountNumbers.add(accountNumber);
+        } else {
+            duplicate = false;
+            for (BankAccount existingAccount : accounts) {
+                if (existingAccount.getAccountNumber().equals(accountNumber)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+        }
+        if (duplicate) {
             throw new IllegalArgumentException("An account with the same number already exists");
         }
         this.accounts.add(account);
     }
+
+    /**
+     * Metodo para quitar una cuenta bancaria del cliente, por ejemplo al deshacer un alta que no se pudo
+     * guardar. Mantiene sincronizados la lista y el conjunto de números.
+     * '@param account La cuenta bancaria que se va a quitar.
+     * '@return true si la cuenta estaba asociada al cliente.
+     */
+    public boolean removeAccount(BankAccount account) {
+        if (!accounts.remove(account)) {
+            return false;
+        }
+        if (accountNumbers != null) {
+            accountNumbers.remove(account.getAccountNumber());
+        }
+        return true;
+    }
 }
@@ -0,0 +1,95 @@
+// Utilidades para manejar montos de dinero como enteros en céntimos
+package org.xyzbank.model;
+
+import java.math.BigDecimal;
+
+/**
+ * La clase Money agrupa las conversiones entre montos escritos por el usuario (por ejemplo "150.25")
+ * y montos internos en unidades menores (céntimos) representados como long primitivos.
+ * Trabajar en céntimos evita la deriva de redondeo de double y mantiene las comparaciones exactas.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;                  // Decimales de la moneda
+    public static final long CENTS_PER_UNIT = 100L;     // Céntimos por unidad monetaria
+
+    private static final long NOT_PLAIN = Long.MIN_VALUE;
+    private static final int MAX_PLAIN_DIGITS = 15;     // Cabe en long sin desbordar al pasar a céntimos
+
+    private Money() {
+    }
+
+    /**
+     * Convierte un monto escrito en unidades (por ejemplo "150.25") a céntimos.
+     * '@param text Monto en unidades, con como máximo dos decimales.
+     * '@return El monto en céntimos.
+     * '@throws IllegalArgumentException si el texto no es un monto válido o tiene más de dos decimales.
+     */
+    public static long parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Amount is mandatory");
+        }
+        String value = text.trim();
+        long plain = parsePlain(value);
+        if (plain != NOT_PLAIN) {
+            return plain;
+        }
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            if (amount.stripTrailingZeros().scale() > SCALE) {
+                throw new IllegalArgumentException("Amount cannot have more than " + SCALE + " decimals");
+            }
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        }
+    }
+
+    /* Camino rápido para montos simples ("-1234.5", "20", "0.07") sin crear objetos intermedios.
+     * Devuelve NOT_PLAIN si el texto tiene otra forma (exponentes, signo '+', etc.).
+     */
+    private static long parsePlain(String value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = length > 0 && value.charAt(0) == '-';
+        if (negative) {
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            units = units * 10 + (value.charAt(i++) - '0');
+            digits++;
+        }
+        if (digits == 0 || digits > MAX_PLAIN_DIGITS) {
+            return NOT_PLAIN;
+        }
+        long cents = 0;
+        if (i < length) {
+            if (value.charAt(i++) != '.' || i == length || length - i > SCALE) {
+                return NOT_PLAIN;
+            }
+            for (int decimals = 0; decimals < SCALE; decimals++) {
+                char c = i < length ? value.charAt(i++) : '0';
+                if (c < '0' || c > '9') {
+                    return NOT_PLAIN;
+                }
+                cents = cents * 10 + (c - '0');
+            }
+        }
+        long result = units * CENTS_PER_UNIT + cents;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Convierte un monto en céntimos a su representación en unidades (por ejemplo 15025 -> "150.25").
+     * '@param cents Monto en céntimos.
+     * '@return El monto formateado con dos decimales.
+     */
+    public static String format(long cents) {
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long remainder = Math.abs(cents % CENTS_PER_UNIT);
+        String sign = cents < 0 ? "-" : "";
+        return sign + units + (remainder < 10 ? ".0" : ".") + remainder;
+    }
+}
@@ -0,0 +1,12 @@
+// Tipos de movimiento sobre una cuenta
+package org.xyzbank.model;
+
+/**
+ * Tipo de movimiento sobre una cuenta, usado en el historial y en la auditoría.
+ */
+public enum MovementType {
+    DEPOSIT,        // Depósito
+    WITHDRAW,       // Retiro
+    TRANSFER_OUT,   // Salida de la cuenta de origen de una transferencia
+    TRANSFER_IN     // Entrada en la cuenta de destino de una transferencia
+}
@@ -0,0 +1,351 @@
+// Historial de movimientos de una cuenta bancaria
+package org.xyzbank.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Historial de movimientos de una cuenta, de solo anexado y codificado de forma compacta.
+ * No se crea un objeto por movimiento: los movimientos se guardan en bloques (chunks) de bytes, cada uno
+ * con hasta CHUNK_ENTRIES movimientos codificados como enteros de longitud variable:
+ *   [diferencia de tiempo con el movimiento anterior, en ms][monto << 2 | tipo]
+ * Un monto de 2^61 céntimos o más no cabe junto al tipo: se escribe entonces [tipo] (un monto 0, que
+ * nunca se da) seguido del monto completo en un varint propio.
+ * Cada bloque guarda aparte, en arrays de primitivos, su instante inicial, el saldo antes de su primer
+ * movimiento y el índice global de su primer movimiento; así las consultas por rango de fechas y de
+ * "últimos N" localizan el bloque con una búsqueda binaria y solo decodifican ese tramo.
+ * Un movimiento típico ocupa entre 4 y 7 bytes.
+ * Los instantes se fuerzan a ser no decrecientes para que el historial quede ordenado por fecha.
+ */
+public class TransactionHistory {
+
+    private static final int CHUNK_ENTRIES = 256;           // Movimientos por bloque
+    private static final int INITIAL_CHUNK_BYTES = 32;      // Los bloques crecen según se llenan
+    private static final int MAX_ENTRY_BYTES = 21;          // Dos varint de long y el tipo como máximo
+    private static final long MAX_PACKED_AMOUNT = Long.MAX_VALUE >>> 2;    // Mayor monto que cabe con el tipo
+    private static final MovementType[] TYPES = MovementType.values();
+    // Arrays vacíos compartidos por todos los historiales sin movimientos; newChunk() los sustituye por
+    // copias propias antes de escribir.
+    private static final byte[][] NO_CHUNKS = new byte[0][];
+    private static final int[] NO_INTS = new int[0];
+    private static final long[] NO_LONGS = new long[0];
+
+    // Metadatos por bloque, en columnas
+    private byte[][] chunks = NO_CHUNKS;
+    private int[] chunkBytes = NO_INTS;             // Bytes usados de cada bloque
+    private int[] chunkEntries = NO_INTS;           // Movimientos en cada bloque
+    private long[] chunkFirstIndex = NO_LONGS;      // Índice global del primer movimiento
+    private long[] chunkFirstTime = NO_LONGS;       // Instante del primer movimiento
+    private long[] chunkOpening = NO_LONGS;         // Saldo antes del primer movimiento
+    private int chunkCount;
+
+    private long size;                  // Número total de movimientos
+    private long lastTime;              // Instante del último movimiento
+
+    /**
+     * Anexa un movimiento al historial.
+     * '@param timestamp Instante del movimiento, en milisegundos desde epoch.
+     * '@param type Tipo de movimiento.
+     * '@param amount Monto en céntimos (positivo).
+     * '@param balanceAfter Saldo de la cuenta tras el movimiento.
+     */
+    public synchronized void record(long timestamp, MovementType type, long amount, long balanceAfter) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Movement amount must be positive");
+        }
+        long time = Math.max(timestamp, lastTime);
+        int chunk = chunkCount - 1;
+        if (chunk < 0 || chunkEntries[chunk] == CHUNK_ENTRIES) {
+            if (chunk >= 0) {
+                // El bloque lleno ya no crece: se recorta a su tamaño exacto.
+                chunks[chunk] = Arrays.copyOf(chunks[chunk], chunkBytes[chunk]);
+            }
+            chunk = newChunk(time, balanceAfter - signed(type, amount));
+        }
+        byte[] data = chunks[chunk];
+        if (chunkBytes[chunk] + MAX_ENTRY_BYTES > data.length) {
+            data = chunks[chunk] = Arrays.copyOf(data, Math.max(data.length * 2, chunkBytes[chunk] + MAX_ENTRY_BYTES));
+        }
+        long delta = chunkEntries[chunk] == 0 ? 0 : time - lastTime;
+        int position = writeVarLong(data, chunkBytes[chunk], delta);
+        if (amount <= MAX_PACKED_AMOUNT) {
+            chunkBytes[chunk] = writeVarLong(data, position, amount << 2 | type.ordinal());
+        } else {
+            position = writeVarLong(data, position, type.ordinal());
+            chunkBytes[chunk] = writeVarLong(data, position, amount);
+        }
+        chunkEntries[chunk]++;
+        size++;
+        lastTime = time;
+    }
+
+    /**
+     * '@return Número de movimientos registrados.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Devuelve los últimos movimientos, del más antiguo al más reciente.
+     * '@param count Número máximo de movimientos.
+     */
+    public synchronized List<Movement> last(int count) {
+        long from = Math.max(0, size - Math.max(0, count));
+        return collect(from, Long.MIN_VALUE, Long.MAX_VALUE, 0, count);
+    }
+
+    /**
+     * Devuelve una página de los movimientos con instante en [fromMillis, toMillis], en orden cronológico.
+     * '@param fromMillis Instante inicial (incluido).
+     * '@param toMillis Instante final (incluido).
+     * '@param offset Movimientos del rango a saltar (página * tamaño de página).
+     * '@param limit Número máximo de movimientos a devolver.
+     */
+    public synchronized List<Movement> range(long fromMillis, long toMillis, long offset, int limit) {
+        // Primer bloque que puede contener movimientos >= fromMillis: el último que empieza antes de fromMillis.
+        int chunk = Math.max(0, lowerBound(chunkFirstTime, fromMillis) - 1);
+        long fromIndex = chunkCount == 0 ? 0 : chunkFirstIndex[chunk];
+        return collect(fromIndex, fromMillis, toMillis, offset, limit);
+    }
+
+    /**
+     * Estimación de la memoria ocupada por el historial, en bytes (datos y metadatos, sin cabeceras
+     * de objeto de la JVM salvo las de los bloques).
+     */
+    public synchronized long memoryBytes() {
+        long bytes = (long) chunks.length * (Integer.BYTES * 2 + Long.BYTES * 3 + 8);
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += 16 + chunks[i].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Recorre en bruto los bloques con los primeros movimientos del historial, para guardarlos en una
+     * instantánea. Bajo el bloqueo del historial solo se toman las referencias a los bloques y, en el último,
+     * cuántos bytes ocupan esos movimientos; el visitante se llama después, sin bloqueo, y puede tardar lo
+     * que haga falta: lo ya escrito en un bloque no cambia nunca (el historial es de solo anexado).
+     * '@param movements Número de movimientos a recorrer, como mucho size(); normalmente el tamaño leído
+     * junto con el saldo de la cuenta.
+     */
+    public void forEachChunk(long movements, ChunkVisitor visitor) {
+        int count;
+        byte[][] data;
+        int[] bytes;
+        int[] entries;
+        long[] firstTime;
+        long[] opening;
+        synchronized (this) {
+            count = Math.max(0, upperBound(chunkFirstIndex, Math.min(movements, size) - 1));
+            data = Arrays.copyOf(chunks, count);
+            bytes = Arrays.copyOf(chunkBytes, count);
+            entries = Arrays.copyOf(chunkEntries, count);
+            firstTime = Arrays.copyOf(chunkFirstTime, count);
+            opening = Arrays.copyOf(chunkOpening, count);
+            if (count > 0) {
+                // El último bloque puede tener movimientos posteriores: se cortan.
+                int last = count - 1;
+                entries[last] = (int) (Math.min(movements, size) - chunkFirstIndex[last]);
+                int position = 0;
+                for (int i = 0; i < entries[last]; i++) {
+                    position = skipEntry(data[last], position);
+                }
+                bytes[last] = position;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            visitor.visit(firstTime[i], opening[i], entries[i], data[i], bytes[i]);
+        }
+    }
+
+    /**
+     * Añade un bloque en bruto leído de una instantánea; los bloques deben llegar en orden.
+     * '@param firstTime Instante del primer movimiento del bloque.
+     * '@param opening Saldo antes del primer movimiento.
+     * '@param entries Número de movimientos del bloque.
+     * '@param data Datos codificados del bloque.
+     */
+    public synchronized void appendChunk(long firstTime, long opening, int entries, byte[] data) {
+        int chunk = newChunk(firstTime, opening);
+        chunks[chunk] = data;
+        chunkBytes[chunk] = data.length;
+        chunkEntries[chunk] = entries;
+        // Recorre el bloque para recuperar el instante del último movimiento.
+        long time = firstTime;
+        int position = 0;
+        for (int i = 0; i < entries; i++) {
+            time += readVarLong(data, position);
+            position = skipEntry(data, position);
+        }
+        size += entries;
+        lastTime = time;
+    }
+
+    /* Decodifica los movimientos desde el índice global indicado, filtrando por rango de tiempo. */
+    private List<Movement> collect(long fromIndex, long fromMillis, long toMillis, long offset, int limit) {
+        List<Movement> result = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        if (limit <= 0 || chunkCount == 0) {
+            return result;
+        }
+        long skipped = 0;
+        for (int chunk = Math.max(0, upperBound(chunkFirstIndex, fromIndex) - 1); chunk < chunkCount; chunk++) {
+            if (chunkFirstTime[chunk] > toMillis) {
+                break;
+            }
+            byte[] data = chunks[chunk];
+            long time = chunkFirstTime[chunk];
+            long running = chunkOpening[chunk];
+            int position = 0;
+            for (int i = 0; i < chunkEntries[chunk]; i++) {
+                time += readVarLong(data, position);
+                position = nextPosition(data, position);
+                long packed = readVarLong(data, position);
+                position = nextPosition(data, position);
+                MovementType type = TYPES[(int) (packed & 3)];
+                long amount = packed >>> 2;
+                if (amount == 0) {
+                    amount = readVarLong(data, position);
+                    position = nextPosition(data, position);
+                }
+                running += signed(type, amount);
+                if (chunkFirstIndex[chunk] + i < fromIndex || time < fromMillis) {
+                    continue;
+                }
+                if (time > toMillis) {
+                    return result;
+                }
+                if (skipped++ < offset) {
+                    continue;
+                }
+                result.add(new Movement(time, type, amount, running));
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int newChunk(long firstTime, long opening) {
+        if (chunkCount == chunks.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            chunkBytes = Arrays.copyOf(chunkBytes, capacity);
+            chunkEntries = Arrays.copyOf(chunkEntries, capacity);
+            chunkFirstIndex = Arrays.copyOf(chunkFirstIndex, capacity);
+            chunkFirstTime = Arrays.copyOf(chunkFirstTime, capacity);
+            chunkOpening = Arrays.copyOf(chunkOpening, capacity);
+        }
+        int chunk = chunkCount++;
+        chunks[chunk] = new byte[INITIAL_CHUNK_BYTES];
+        chunkBytes[chunk] = 0;
+        chunkEntries[chunk] = 0;
+        chunkFirstIndex[chunk] = size;
+        chunkFirstTime[chunk] = firstTime;
+        chunkOpening[chunk] = opening;
+        return chunk;
+    }
+
+    /* Número de bloques cuyo valor inicial es <= key (los arrays están ordenados). */
+    private int upperBound(long[] values, long key) {
+        return key == Long.MAX_VALUE ? chunkCount : lowerBound(values, key + 1);
+    }
+
+    /* Número de bloques cuyo valor inicial es < key. */
+    private int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = chunkCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long signed(MovementType type, long amount) {
+        return type == MovementType.DEPOSIT || type == MovementType.TRANSFER_IN ? amount : -amount;
+    }
+
+    private static int writeVarLong(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(byte[] data, int position) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = data[position++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return value;
+    }
+
+    /* Salta un movimiento completo: la diferencia de tiempo, el monto con el tipo y, si lo hay, el monto aparte. */
+    private static int skipEntry(byte[] data, int position) {
+        position = nextPosition(data, position);
+        boolean separateAmount = readVarLong(data, position) >>> 2 == 0;
+        position = nextPosition(data, position);
+        return separateAmount ? nextPosition(data, position) : position;
+    }
+
+    private static int nextPosition(byte[] data, int position) {
+        while (data[position++] < 0) {
+            // Avanza hasta el último byte del varint
+        }
+        return position;
+    }
+
+    /**
+     * Recibe los bloques en bruto del historial.
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        void visit(long firstTime, long opening, int entries, byte[] data, int length);
+    }
+
+    /**
+     * Movimiento decodificado del historial, tal como se muestra en un extracto.
+     */
+    public static class Movement {
+        private final long timestamp;
+        private final MovementType type;
+        private final long amount;
+        private final long balanceAfter;
+
+        public Movement(long timestamp, MovementType type, long amount, long balanceAfter) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.amount = amount;
+            this.balanceAfter = balanceAfter;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public MovementType getType() {
+            return type;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        public long getBalanceAfter() {
+            return balanceAfter;
+        }
+    }
+}
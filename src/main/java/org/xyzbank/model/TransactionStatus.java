@@ -0,0 +1,31 @@
+// Resultado de aplicar un movimiento sobre una cuenta
+package org.xyzbank.model;
+
+/**
+ * Resultado de un depósito o retiro. Permite informar rechazos sin lanzar una excepción por cada uno,
+ * por ejemplo en el procesamiento por lotes.
+ */
+public enum TransactionStatus {
+    APPLIED("Transaction applied"),
+    INVALID_AMOUNT("amount must be positive"),
+    SAVINGS_NEGATIVE_BALANCE("Savings accounts cannot have a negative balance"),
+    OVERDRAFT_LIMIT_EXCEEDED("Checking accounts cannot exceed overdraft limit of -500.00"),
+    ACCOUNT_NOT_FOUND("Account not found"),
+    MALFORMED("Malformed operation"),
+    BALANCE_OVERFLOW("Amount exceeds the maximum balance of the account");   // Al final: la auditoría guarda el ordinal
+
+    private final String message;
+
+    TransactionStatus(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Describe el resultado para la operación indicada, con el mismo texto que las excepciones
+     * de BankAccount (por ejemplo "Withdrawal amount must be positive").
+     * '@param operation Nombre de la operación: "Deposit", "Withdrawal" o "Transfer".
+     */
+    public String describe(String operation) {
+        return this == INVALID_AMOUNT ? operation + " " + message : message;
+    }
+}
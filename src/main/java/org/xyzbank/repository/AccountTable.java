@@ -0,0 +1,204 @@
+package org.xyzbank.repository;
+
+import org.xyzbank.model.BankAccount;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Tabla compacta de cuentas fuera del heap, con la que TableBankRepository guarda libros de decenas de
+ * millones de cuentas. Cada cuenta es una fila de ancho fijo de 56 bytes en una tabla hash de
+ * direccionamiento abierto con sondeo lineal:
+ *   [long mitad alta del UUID][long mitad baja][long saldo][long posición en el diario]
+ *   [long total depositado][long total retirado][int titular + 1][byte tipo][byte marcas][2 bytes de relleno]
+ * La clave es el número de cuenta como UUID de 128 bits en dos long, más la marca CHECK_DIGITS si el número
+ * lleva dígitos de control (que se calculan del UUID, así que no hace falta guardarlos). El titular es el
+ * índice del cliente en ClientTable; un titular 0 marca una fila libre. Las filas viven en segmentos de
+ * memoria directa, así que el recolector de basura no las recorre: el heap solo contiene unos pocos objetos,
+ * sea cual sea el número de cuentas.
+ * *
+ * La capacidad se fija al crear la tabla (con un factor de carga máximo de 0.75 sobre lo esperado).
+ * Las altas se serializan entre sí; las búsquedas no bloquean, y las columnas de saldo se leen y escriben
+ * con bloqueos repartidos por fila.
+ */
+final class AccountTable {
+
+    static final byte CHECK_DIGITS = 1;
+
+    private static final int ROW_BYTES = 56;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int BALANCE = 16;
+    private static final int POSITION = 24;
+    private static final int DEPOSITED = 32;
+    private static final int WITHDRAWN = 40;
+    private static final int OWNER = 48;
+    private static final int TYPE = 52;
+    private static final int FLAGS = 53;
+    private static final int SEGMENT_ROWS_BITS = 25;                 // 32M filas (1,75 GB) por segmento
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_ROWS_BITS;
+    private static final int LOCK_STRIPES = 4096;
+    private static final BankAccount.AccountType[] TYPES = BankAccount.AccountType.values();
+
+    private static final VarHandle INT_VIEW =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] segments;
+    private final long capacity;
+    private final long maxSize;
+    private final int hashShift;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object insertLock = new Object();
+    private volatile long size;
+
+    /**
+     * '@param expectedAccounts Número de cuentas previsto; la tabla no crece más allá.
+     */
+    AccountTable(long expectedAccounts) {
+        if (expectedAccounts <= 0) {
+            throw new IllegalArgumentException("Expected accounts must be positive");
+        }
+        long wanted = Math.max(16, (long) Math.ceil(expectedAccounts / 0.75));
+        this.capacity = Long.highestOneBit(wanted - 1) << 1;
+        this.maxSize = capacity - capacity / 8;          // Deja siempre filas libres para cortar los sondeos
+        this.hashShift = Long.numberOfLeadingZeros(capacity) + 1;
+        int segmentCount = (int) ((capacity + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+        this.segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long rows = Math.min(SEGMENT_ROWS, capacity - (long) i * SEGMENT_ROWS);
+            segments[i] = ByteBuffer.allocateDirect((int) (rows * ROW_BYTES)).order(ByteOrder.nativeOrder());
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Da de alta una cuenta con el saldo, la posición y los volúmenes que ya tenga el objeto (por ejemplo,
+     * al cargarla de una instantánea).
+     * '@param msb Mitad alta del UUID del número.
+     * '@param lsb Mitad baja.
+     * '@param flags CHECK_DIGITS si el número lleva dígitos de control, o 0.
+     * '@param ownerIndex Índice del titular (0 o mayor).
+     * '@param account Cuenta de la que se copian el tipo y las columnas de saldo.
+     * '@return La fila de la cuenta.
+     * '@throws IllegalArgumentException si ya existe una cuenta con ese UUID.
+     * '@throws IllegalStateException si la tabla está llena.
+     */
+    long insert(long msb, long lsb, byte flags, int ownerIndex, BankAccount account) {
+        if (ownerIndex < 0 || ownerIndex == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Owner index must be valid");
+        }
+        synchronized (insertLock) {
+            if (size >= maxSize) {
+                throw new IllegalStateException("Account table is full: " + size + " accounts");
+            }
+            for (long row = home(msb, lsb); ; row = (row + 1) & (capacity - 1)) {
+                ByteBuffer segment = segment(row);
+                int offset = offset(row);
+                if ((int) INT_VIEW.getAcquire(segment, offset + OWNER) == 0) {
+                    segment.putLong(offset + MSB, msb);
+                    segment.putLong(offset + LSB, lsb);
+                    segment.put(offset + TYPE, (byte) account.getAccountType().ordinal());
+                    segment.put(offset + FLAGS, flags);
+                    store(row, account);
+                    // Publica la fila: quien lea el titular con getAcquire ve también los campos anteriores.
+                    INT_VIEW.setRelease(segment, offset + OWNER, ownerIndex + 1);
+                    size++;
+                    return row;
+                }
+                if (segment.getLong(offset + MSB) == msb && segment.getLong(offset + LSB) == lsb) {
+                    throw new IllegalArgumentException("An account with the same number already exists");
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca la fila de una cuenta sin bloquear.
+     * '@return La fila, o -1 si no hay ninguna con ese UUID y esas marcas.
+     */
+    long find(long msb, long lsb, byte flags) {
+        for (long row = home(msb, lsb); ; row = (row + 1) & (capacity - 1)) {
+            ByteBuffer segment = segment(row);
+            int offset = offset(row);
+            if ((int) INT_VIEW.getAcquire(segment, offset + OWNER) == 0) {
+                return -1;
+            }
+            if (segment.getLong(offset + MSB) == msb && segment.getLong(offset + LSB) == lsb) {
+                return segment.get(offset + FLAGS) == flags ? row : -1;
+            }
+        }
+    }
+
+    BankAccount.AccountType getAccountType(long row) {
+        return TYPES[segment(row).get(offset(row) + TYPE)];
+    }
+
+    int getOwnerIndex(long row) {
+        return (int) INT_VIEW.getAcquire(segment(row), offset(row) + OWNER) - 1;
+    }
+
+    /**
+     * Copia el saldo, la posición en el diario y los volúmenes de la fila en una cuenta recién creada.
+     */
+    void load(long row, BankAccount account) {
+        ByteBuffer segment = segment(row);
+        int offset = offset(row);
+        synchronized (lockOf(row)) {
+            account.setBalance(segment.getLong(offset + BALANCE));
+            account.setJournalPosition(segment.getLong(offset + POSITION));
+            account.setVolumes(segment.getLong(offset + DEPOSITED), segment.getLong(offset + WITHDRAWN));
+        }
+    }
+
+    /**
+     * Escribe en la fila el saldo, la posición en el diario y los volúmenes actuales de la cuenta, leídos
+     * juntos bajo su bloqueo.
+     */
+    void store(long row, BankAccount account) {
+        ByteBuffer segment = segment(row);
+        int offset = offset(row);
+        synchronized (account) {
+            synchronized (lockOf(row)) {
+                segment.putLong(offset + BALANCE, account.getBalance());
+                segment.putLong(offset + POSITION, account.getJournalPosition());
+                segment.putLong(offset + DEPOSITED, account.getTotalDeposited());
+                segment.putLong(offset + WITHDRAWN, account.getTotalWithdrawn());
+            }
+        }
+    }
+
+    /**
+     * '@return Número de cuentas en la tabla.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * '@return Memoria reservada fuera del heap, en bytes.
+     */
+    long memoryBytes() {
+        return capacity * ROW_BYTES;
+    }
+
+    /* Fila inicial del sondeo: hash de Fibonacci de las dos mitades del UUID. */
+    private long home(long msb, long lsb) {
+        return ((msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L) >>> hashShift;
+    }
+
+    private ByteBuffer segment(long row) {
+        return segments[(int) (row >>> SEGMENT_ROWS_BITS)];
+    }
+
+    private static int offset(long row) {
+        return (int) (row & (SEGMENT_ROWS - 1)) * ROW_BYTES;
+    }
+
+    private Object lockOf(long row) {
+        return locks[(int) (row & (LOCK_STRIPES - 1))];
+    }
+}
@@ -0,0 +1,243 @@
+package org.xyzbank.repository;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.model.MovementType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totales del banco mantenidos de forma incremental, para los informes: por tipo de cuenta, el número de
+ * cuentas, la suma de saldos y el volumen depositado y retirado; además, la exposición por sobregiro de
+ * las cuentas corrientes (la suma de sus saldos negativos, en positivo) y el número de cuentas con saldo
+ * negativo. Cada movimiento aplicado actualiza unos pocos LongAdder (contadores repartidos entre hilos,
+ * sin un punto de contención), y cada consulta suma los suyos sin recorrer las cuentas.
+ * *
+ * Quien mueve el saldo de una cuenta debe informarlo con onMovement mientras tiene bloqueada la cuenta,
+ * para que el saldo anterior y el posterior sean los de ese movimiento. Las consultas no son atómicas
+ * entre sí: con transacciones en curso, dos totales pueden reflejar momentos ligeramente distintos.
+ * recompute() calcula los mismos totales recorriendo todas las cuentas, como comprobación de consistencia.
+ */
+public class BankAggregates {
+
+    private static final BankAccount.AccountType[] TYPES = BankAccount.AccountType.values();
+
+    private final LongAdder[] accounts = adders();
+    private final LongAdder[] balances = adders();
+    private final LongAdder[] deposited = adders();
+    private final LongAdder[] withdrawn = adders();
+    private final LongAdder overdraftExposure = new LongAdder();
+    private final LongAdder negativeBalances = new LongAdder();
+
+    /**
+     * Registra una cuenta nueva (o cargada de una instantánea o del almacén) con su saldo y sus volúmenes
+     * actuales, de modo que los totales depositados y retirados sobreviven a un reinicio.
+     * '@param type Tipo de la cuenta.
+     * '@param balance Saldo de la cuenta.
+     * '@param totalDeposited Volumen depositado en la cuenta hasta ahora.
+     * '@param totalWithdrawn Volumen retirado de la cuenta hasta ahora.
+     */
+    public void onAccountAdded(BankAccount.AccountType type, long balance, long totalDeposited, long totalWithdrawn) {
+        accounts[type.ordinal()].increment();
+        if (totalDeposited != 0) {
+            deposited[type.ordinal()].add(totalDeposited);
+        }
+        if (totalWithdrawn != 0) {
+            withdrawn[type.ordinal()].add(totalWithdrawn);
+        }
+        onBalanceChange(type, 0, balance);
+    }
+
+    /**
+     * Registra un movimiento aplicado sobre una cuenta.
+     * '@param type Tipo de la cuenta.
+     * '@param movement Tipo de movimiento.
+     * '@param amount Monto en céntimos.
+     * '@param balanceAfter Saldo de la cuenta tras el movimiento.
+     */
+    public void onMovement(BankAccount.AccountType type, MovementType movement, long amount, long balanceAfter) {
+        boolean credit = movement == MovementType.DEPOSIT || movement == MovementType.TRANSFER_IN;
+        if (movement == MovementType.DEPOSIT) {
+            deposited[type.ordinal()].add(amount);
+        } else if (movement == MovementType.WITHDRAW) {
+            withdrawn[type.ordinal()].add(amount);
+        }
+        onBalanceChange(type, credit ? balanceAfter - amount : balanceAfter + amount, balanceAfter);
+    }
+
+    public long getAccountCount(BankAccount.AccountType type) {
+        return accounts[type.ordinal()].sum();
+    }
+
+    public long getTotalBalance(BankAccount.AccountType type) {
+        return balances[type.ordinal()].sum();
+    }
+
+    public long getTotalDeposited(BankAccount.AccountType type) {
+        return deposited[type.ordinal()].sum();
+    }
+
+    public long getTotalWithdrawn(BankAccount.AccountType type) {
+        return withdrawn[type.ordinal()].sum();
+    }
+
+    /**
+     * '@return Suma de los saldos negativos de las cuentas corrientes, en positivo.
+     */
+    public long getOverdraftExposure() {
+        return overdraftExposure.sum();
+    }
+
+    /**
+     * '@return Número de cuentas con saldo negativo.
+     */
+    public long getNegativeBalanceCount() {
+        return negativeBalances.sum();
+    }
+
+    /**
+     * '@return Los totales mantenidos, en el formato de recompute() para compararlos.
+     */
+    public Totals snapshot() {
+        Totals totals = new Totals();
+        for (int i = 0; i < TYPES.length; i++) {
+            totals.accounts[i] = accounts[i].sum();
+            totals.balances[i] = balances[i].sum();
+            totals.deposited[i] = deposited[i].sum();
+            totals.withdrawn[i] = withdrawn[i].sum();
+        }
+        totals.overdraftExposure = getOverdraftExposure();
+        totals.negativeBalances = getNegativeBalanceCount();
+        return totals;
+    }
+
+    /**
+     * Recalcula los totales recorriendo todas las cuentas en paralelo, incluidos los volúmenes depositados
+     * y retirados que cada cuenta lleva consigo.
+     * '@param clients Clientes del repositorio.
+     */
+    public static Totals recompute(Collection<Client> clients) {
+        return clients.parallelStream()
+                .flatMap(client -> {
+                    synchronized (client) {
+                        return new ArrayList<>(client.getAccounts()).stream();
+                    }
+                })
+                .collect(Totals::new, Totals::add, Totals::merge);
+    }
+
+    private void onBalanceChange(BankAccount.AccountType type, long before, long after) {
+        balances[type.ordinal()].add(after - before);
+        if (type == BankAccount.AccountType.CORRIENTE) {
+            long exposure = Math.max(0, -after) - Math.max(0, -before);
+            if (exposure != 0) {
+                overdraftExposure.add(exposure);
+            }
+        }
+        if ((before < 0) != (after < 0)) {
+            negativeBalances.add(after < 0 ? 1 : -1);
+        }
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[TYPES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Totales por tipo de cuenta, exposición por sobregiro y cuentas en negativo.
+     */
+    public static class Totals {
+        private final long[] accounts = new long[TYPES.length];
+        private final long[] balances = new long[TYPES.length];
+        private final long[] deposited = new long[TYPES.length];
+        private final long[] withdrawn = new long[TYPES.length];
+        private long overdraftExposure;
+        private long negativeBalances;
+
+        Totals() {
+        }
+
+        public long getAccountCount(BankAccount.AccountType type) {
+            return accounts[type.ordinal()];
+        }
+
+        public long getTotalBalance(BankAccount.AccountType type) {
+            return balances[type.ordinal()];
+        }
+
+        public long getTotalDeposited(BankAccount.AccountType type) {
+            return deposited[type.ordinal()];
+        }
+
+        public long getTotalWithdrawn(BankAccount.AccountType type) {
+            return withdrawn[type.ordinal()];
+        }
+
+        public long getOverdraftExposure() {
+            return overdraftExposure;
+        }
+
+        public long getNegativeBalanceCount() {
+            return negativeBalances;
+        }
+
+        /**
+         * '@return Los totales que difieren de otros, con ambos valores; una lista vacía si coinciden.
+         */
+        public List<String> differences(Totals other) {
+            List<String> differences = new ArrayList<>();
+            for (BankAccount.AccountType type : TYPES) {
+                compare(differences, type + " accounts", getAccountCount(type), other.getAccountCount(type));
+                compare(differences, type + " balance", getTotalBalance(type), other.getTotalBalance(type));
+                compare(differences, type + " deposited", getTotalDeposited(type), other.getTotalDeposited(type));
+                compare(differences, type + " withdrawn", getTotalWithdrawn(type), other.getTotalWithdrawn(type));
+            }
+            compare(differences, "overdraft exposure", overdraftExposure, other.overdraftExposure);
+            compare(differences, "negative balances", negativeBalances, other.negativeBalances);
+            return differences;
+        }
+
+        private static void compare(List<String> differences, String name, long value, long otherValue) {
+            if (value != otherValue) {
+                differences.add(name + ": " + value + " != " + otherValue);
+            }
+        }
+
+        /* Acumula una cuenta; solo se usa en el recálculo, cada hilo sobre su propio objeto. */
+        private void add(BankAccount account) {
+            int type = account.getAccountType().ordinal();
+            long balance;
+            synchronized (account) {
+                balance = account.getBalance();
+                deposited[type] += account.getTotalDeposited();
+                withdrawn[type] += account.getTotalWithdrawn();
+            }
+            accounts[type]++;
+            balances[type] += balance;
+            if (balance < 0) {
+                negativeBalances++;
+                if (account.getAccountType() == BankAccount.AccountType.CORRIENTE) {
+                    overdraftExposure -= balance;
+                }
+            }
+        }
+
+        private void merge(Totals other) {
+            for (int i = 0; i < accounts.length; i++) {
+                accounts[i] += other.accounts[i];
+                balances[i] += other.balances[i];
+                deposited[i] += other.deposited[i];
+                withdrawn[i] += other.withdrawn[i];
+            }
+            overdraftExposure += other.overdraftExposure;
+            negativeBalances += other.negativeBalances;
+        }
+    }
+}
@@ -1,54 +1,83 @@
 package org.xyzbank.repository;
 
+import org.xyzbank.model.BankAccount;
 import org.xyzbank.model.Client;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
 /**
- * Clase BankRepository, que actúa como repositorio en memoria para almacenar clientes del banco.
- * Utiliza una lista para simular el almacenamiento persistente.
+ * Repositorio de clientes y cuentas del banco. Hay tres implementaciones:
+ *  - InMemoryBankRepository: todo el libro en el heap, indexado con mapas concurrentes.
+ *  - CachedBankRepository: el libro completo en un almacén persistente (KeyValueStore) y en memoria
+ *    solo las entradas activas, con escritura diferida de los saldos.
+ *  - TableBankRepository: el libro en tablas compactas, con las cuentas en filas de ancho fijo fuera del
+ *    heap, y objetos solo para las entradas en uso.
+ * Las implementaciones deben ser seguras desde varios hilos y devolver siempre el mismo objeto para una
+ * misma cuenta mientras alguien lo use, ya que los movimientos se sincronizan sobre la propia cuenta.
  */
-public class BankRepository {
+public interface BankRepository extends AutoCloseable {
 
-    /* Lista de clientes que representa el almacenamiento en memoria.
-     * Cada cliente contiene información personal y cuentas bancarias asociadas.
+    /* Agrega un cliente al repositorio, asegurándose de que el DNI y el correo sean únicos.
+     *
+     * '@param client El cliente a agregar.
+     * '@throws IllegalArgumentException si ya existe un cliente con el mismo DNI o correo.
+     */
+    void addClient(Client client);
+
+    /* '@return El cliente con ese DNI o null si no existe.
+     */
+    Client getClientByDni(String dni);
+
+    /* '@return El cliente con ese correo o null si no existe.
      */
-    private List<Client> clientList = new ArrayList<>();
+    Client getClientByEmail(String email);
 
-    /*Agrega un cliente a la lista, asegurándose de que el DNI sea único.
-     * Agrega un cliente a la lista y Valida que el DNI sea único.
-     * Verifica si el cliente con el mismo DNI ya existe en la lista.
+    /* '@return Todos los clientes, en orden de registro.
+     */
+    Collection<Client> getAllClients();
+
+    /* Asocia una cuenta bancaria a un cliente y la registra en el índice de cuentas.
      *
-     * '@param client El cliente a agregar.
-     * '@throws IllegalArgumentException si ya existe un cliente con el mismo DNI.
-     */
-    public void addClient(Client client) {
-        for (Client existingClient : clientList) {
-            if (existingClient.getDni().equals(client.getDni())) {
-                throw new IllegalArgumentException("Client with DNI already exists");
-            }
-        }
-        clientList.add(client);
+     * '@param client El cliente titular de la cuenta.
+     * '@param account La cuenta bancaria a registrar.
+     * '@throws IllegalArgumentException si ya existe una cuenta con el mismo número.
+     */
+    void addAccount(Client client, BankAccount account);
+
+    /* '@return La cuenta con ese número o null si no existe.
+     */
+    BankAccount getAccountByNumber(String accountNumber);
+
+    /* '@return El cliente titular de la cuenta o null si la cuenta no existe.
+     */
+    Client getAccountOwner(String accountNumber);
+
+    /* '@return Los totales del banco, mantenidos de forma incremental.
+     */
+    BankAggregates getAggregates();
+
+    /* Avisa de que el saldo o la posición en el diario de una cuenta han cambiado. Se llama con la cuenta
+     * bloqueada, tras cada movimiento; el repositorio en memoria no necesita hacer nada.
+     */
+    default void onBalanceChanged(BankAccount account) {
     }
 
-    /* Obtiene un cliente por su DNI mediante Stream para filtrar y encontrarlo.
-     *
-     * '@param dni El DNI del cliente buscado.
-     * '@return El cliente encontrado o null si no existe.
-     */
-    public Client getClientByDni(String dni) {
-        return clientList.stream()
-                .filter(client -> client.getDni().equals(dni))
-                .findFirst()
-                .orElse(null);
+    /* '@return true si el historial de movimientos de las cuentas se conserva mientras existan; false si una
+     * cuenta puede recargarse sin él, y entonces los extractos no están disponibles y no se anota.
+     */
+    default boolean keepsHistory() {
+        return true;
     }
 
-    /* Devuelve todos los clientes registrados en el repositorio.
-     *
-     * '@return Una lista de todos los clientes.
+    /* '@return Métricas propias del repositorio en el formato de MetricsSnapshot.export(); vacío si no tiene.
+     */
+    default String exportMetrics() {
+        return "";
+    }
+
+    /* Libera los recursos del repositorio, guardando antes lo pendiente.
      */
-    public List<Client> getAllClients() {
-        return clientList;
+    @Override
+    default void close() {
     }
 }
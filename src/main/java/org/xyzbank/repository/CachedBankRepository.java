@@ -0,0 +1,574 @@
+package org.xyzbank.repository;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repositorio con el libro completo en un KeyValueStore y en memoria solo las entradas activas, para libros
+ * que no caben en el heap. Claves del almacén:
+ *   C:dni -> nombre, apellido, correo y números de sus cuentas      (al registrar y al abrir una cuenta)
+ *   E:correo -> DNI
+ *   A:número -> DNI del titular y tipo de cuenta                     (no cambia)
+ *   B:número -> saldo, posición en el diario del último movimiento y volúmenes depositado y retirado
+ *               (escritura diferida; los registros antiguos, sin volúmenes, se leen con volúmenes a cero)
+ *   M:checkpoint -> posición del diario que el almacén ya refleja
+ * Los clientes y las cuentas leídos se guardan en cachés LRU acotadas, repartidas en franjas con su propio
+ * bloqueo. Además, un mapa de referencias débiles asegura que una entrada expulsada de la caché pero aún en
+ * uso por algún hilo se siga devolviendo como el mismo objeto, en vez de cargar un duplicado del almacén:
+ * los movimientos se sincronizan sobre la cuenta, y dos copias de una cuenta perderían actualizaciones.
+ * *
+ * Las altas se escriben en el almacén en el momento. Un movimiento solo marca la cuenta como pendiente
+ * (onBalanceChanged); cada flushMillis un hilo en segundo plano escribe en lotes el saldo actual de las
+ * cuentas pendientes, así que muchos movimientos seguidos sobre una cuenta cuestan una sola escritura.
+ * Una cuenta pendiente no se libera de memoria hasta que su saldo está en el almacén.
+ * La durabilidad la sigue dando el diario: checkpoint() escribe lo pendiente, sincroniza el almacén y anota
+ * la posición del diario que cubre, y la recuperación reproduce el diario a partir de ella.
+ * *
+ * El historial de movimientos no se guarda en el almacén, y una cuenta recargada empezaría con el historial
+ * vacío: por eso keepsHistory() es false, y los extractos se rechazan en lugar de devolverse incompletos.
+ */
+public class CachedBankRepository implements BankRepository {
+
+    private static final String CLIENT = "C:";
+    private static final String EMAIL = "E:";
+    private static final String ACCOUNT = "A:";
+    private static final String BALANCE = "B:";
+    private static final String CHECKPOINT = "M:checkpoint";
+    private static final int STRIPE_BITS = 6;
+    private static final int CACHE_STRIPES = 1 << STRIPE_BITS;
+    private static final int FLUSH_BATCH = 4096;
+    private static final BankAccount.AccountType[] TYPES = BankAccount.AccountType.values();
+
+    private final KeyValueStore store;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LruCache<Client> clientCache;
+    private final LruCache<BankAccount> accountCache;
+    private final LiveObjects<Client> liveClients = new LiveObjects<>();
+    private final LiveObjects<BankAccount> liveAccounts = new LiveObjects<>();
+    private final Map<String, BankAccount> pending = new ConcurrentHashMap<>();   // Cuentas con saldo sin escribir
+    private final Object registrationLock = new Object();
+    private final Object flushLock = new Object();
+    private final AtomicLong clientCount = new AtomicLong();
+    private final BankAggregates aggregates = new BankAggregates();
+    private final ScheduledExecutorService flusher;
+    private volatile long pendingSince;         // nanoTime del cambio pendiente más antiguo (aproximado); 0 si no hay
+
+    /**
+     * Abre el repositorio sobre un almacén, que recorre una vez para contar los clientes y calcular los
+     * totales, y arranca la escritura diferida.
+     * '@param store Almacén con el libro; se cierra junto con el repositorio.
+     * '@param cacheEntries Máximo de clientes, y de cuentas, que se mantienen en caché.
+     * '@param flushMillis Intervalo entre escrituras de los saldos pendientes, en milisegundos.
+     */
+    public CachedBankRepository(KeyValueStore store, int cacheEntries, long flushMillis) {
+        if (cacheEntries <= 0 || flushMillis <= 0) {
+            throw new IllegalArgumentException("Cache entries and flush interval must be positive");
+        }
+        this.store = store;
+        this.clientCache = new LruCache<>(cacheEntries, evictions);
+        this.accountCache = new LruCache<>(cacheEntries, evictions);
+        for (String key : store.keys()) {
+            if (key.startsWith(CLIENT)) {
+                clientCount.incrementAndGet();
+            } else if (key.startsWith(ACCOUNT)) {
+                ByteBuffer account = ByteBuffer.wrap(store.get(key));
+                getString(account);
+                ByteBuffer balance = ByteBuffer.wrap(store.get(BALANCE + key.substring(ACCOUNT.length())));
+                long amount = balance.getLong();
+                balance.getLong();
+                aggregates.onAccountAdded(TYPES[account.get()], amount, getVolume(balance), getVolume(balance));
+            }
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // Las cuentas siguen pendientes y se reintentan en la siguiente pasada.
+                System.err.println("Write-behind flush failed: " + e.getMessage());
+            }
+        }, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void addClient(Client client) {
+        String dni = client.getDni();
+        // Las altas se serializan: la unicidad del DNI y del correo se comprueba y se escribe en un paso.
+        synchronized (registrationLock) {
+            if (store.contains(CLIENT + dni)) {
+                throw new IllegalArgumentException("Client with DNI already exists");
+            }
+            if (store.contains(EMAIL + client.getEmail())) {
+                throw new IllegalArgumentException("Client with email already exists");
+            }
+            // Se registra como objeto vivo antes de escribirlo, para que nadie cargue otra copia del almacén.
+            liveClients.put(dni, client);
+            Map<String, byte[]> entries = new HashMap<>();
+            synchronized (client) {
+                entries.put(CLIENT + dni, encodeClient(client));
+            }
+            entries.put(EMAIL + client.getEmail(), dni.getBytes(StandardCharsets.UTF_8));
+            try {
+                store.putAll(entries);
+            } catch (RuntimeException e) {
+                liveClients.remove(dni, client);
+                throw e;
+            }
+            clientCount.incrementAndGet();
+        }
+        clientCache.put(dni, client);
+    }
+
+    @Override
+    public Client getClientByDni(String dni) {
+        return loadClient(dni, true);
+    }
+
+    @Override
+    public Client getClientByEmail(String email) {
+        byte[] dni = store.get(EMAIL + email);
+        return dni == null ? null : loadClient(new String(dni, StandardCharsets.UTF_8), true);
+    }
+
+    /* Recorre los clientes del almacén en orden de registro, cargando cada uno sin pasar por las cachés,
+     * para que un listado o un recálculo completo no expulse las entradas activas.
+     */
+    @Override
+    public Collection<Client> getAllClients() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Client> iterator() {
+                Iterator<String> keys = store.keys().iterator();
+                return new Iterator<>() {
+                    private Client next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && keys.hasNext()) {
+                            String key = keys.next();
+                            if (key.startsWith(CLIENT)) {
+                                next = loadClient(key.substring(CLIENT.length()), false);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Client next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Client client = next;
+                        next = null;
+                        return client;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, clientCount.get());
+            }
+        };
+    }
+
+    @Override
+    public void addAccount(Client client, BankAccount account) {
+        String accountNumber = account.getAccountNumber();
+        // Orden de bloqueo: cliente, cuenta y altas; BankService ya tiene el del cliente al abrir una cuenta.
+        synchronized (client) {
+            synchronized (account) {
+                synchronized (registrationLock) {
+                    if (store.contains(ACCOUNT + accountNumber)) {
+                        throw new IllegalArgumentException("An account with the same number already exists");
+                    }
+                    client.addAccount(account);
+                    liveAccounts.put(accountNumber, account);
+                    Map<String, byte[]> entries = new HashMap<>();
+                    entries.put(ACCOUNT + accountNumber, encodeAccount(client.getDni(), account.getAccountType()));
+                    entries.put(BALANCE + accountNumber, encodeBalance(account));
+                    entries.put(CLIENT + client.getDni(), encodeClient(client));
+                    try {
+                        store.putAll(entries);
+                    } catch (RuntimeException e) {
+                        client.removeAccount(account);
+                        liveAccounts.remove(accountNumber, account);
+                        throw e;
+                    }
+                }
+                aggregates.onAccountAdded(account.getAccountType(), account.getBalance(),
+                        account.getTotalDeposited(), account.getTotalWithdrawn());
+            }
+        }
+        accountCache.put(accountNumber, account);
+    }
+
+    @Override
+    public BankAccount getAccountByNumber(String accountNumber) {
+        return loadAccount(accountNumber, true);
+    }
+
+    @Override
+    public Client getAccountOwner(String accountNumber) {
+        byte[] account = store.get(ACCOUNT + accountNumber);
+        return account == null ? null : loadClient(getString(ByteBuffer.wrap(account)), true);
+    }
+
+    @Override
+    public BankAggregates getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public boolean keepsHistory() {
+        return false;
+    }
+
+    @Override
+    public void onBalanceChanged(BankAccount account) {
+        if (pending.put(account.getAccountNumber(), account) == null && pendingSince == 0) {
+            pendingSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Escribe en el almacén, en lotes, el saldo actual de todas las cuentas pendientes. La escritura
+     * periódica en segundo plano usa este mismo metodo.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long started = System.nanoTime();
+            Map<String, byte[]> batch = new HashMap<>();
+            List<BankAccount> accounts = new ArrayList<>();
+            for (Iterator<BankAccount> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+                BankAccount account = iterator.next();
+                // Se retira antes de leer el saldo: un movimiento posterior la vuelve a marcar.
+                iterator.remove();
+                accounts.add(account);
+                batch.put(BALANCE + account.getAccountNumber(), encodeBalance(account));
+                if (batch.size() == FLUSH_BATCH) {
+                    write(batch, accounts);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, accounts);
+            }
+            pendingSince = pending.isEmpty() ? 0 : started;
+        }
+    }
+
+    /**
+     * Escribe todo lo pendiente, sincroniza el almacén y anota la posición del diario que refleja.
+     * '@param journalPosition Posición del diario leída antes de llamar con getAppliedPosition(): todo registro
+     *      que termina en ella o antes ya está aplicado, así que sus altas ya están en el almacén y sus
+     *      movimientos, pendientes o escritos; lo que se aplique después lo reproduce la recuperación.
+     */
+    public void checkpoint(long journalPosition) {
+        flush();
+        store.sync();
+        store.putAll(Map.of(CHECKPOINT, ByteBuffer.allocate(Long.BYTES).putLong(journalPosition).array()));
+        store.sync();
+    }
+
+    /**
+     * '@return La posición del diario anotada en el último checkpoint, o 0 si no hay ninguno.
+     */
+    public long getCheckpoint() {
+        byte[] position = store.get(CHECKPOINT);
+        return position == null ? 0 : ByteBuffer.wrap(position).getLong();
+    }
+
+    /**
+     * '@return Proporción de consultas de clientes y cuentas servidas desde memoria, entre 0 y 1.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * '@return Cuentas con saldo aún sin escribir en el almacén.
+     */
+    public int getPendingWrites() {
+        return pending.size();
+    }
+
+    /**
+     * '@return Antigüedad aproximada del cambio pendiente más antiguo, en milisegundos; 0 si no hay.
+     */
+    public long getFlushLagMillis() {
+        long since = pendingSince;
+        return since == 0 ? 0 : (System.nanoTime() - since) / 1_000_000;
+    }
+
+    @Override
+    public String exportMetrics() {
+        return "bank_cache_hits_total " + hits.sum() + '\n'
+                + "bank_cache_misses_total " + misses.sum() + '\n'
+                + "bank_cache_hit_rate " + getHitRate() + '\n'
+                + "bank_cache_evictions_total " + evictions.sum() + '\n'
+                + "bank_cache_entries{entry=\"client\"} " + clientCache.size() + '\n'
+                + "bank_cache_entries{entry=\"account\"} " + accountCache.size() + '\n'
+                + "bank_store_pending_writes " + pending.size() + '\n'
+                + "bank_store_flushed_writes_total " + flushedWrites.sum() + '\n'
+                + "bank_store_flush_lag_millis " + getFlushLagMillis() + '\n';
+    }
+
+    /**
+     * Detiene la escritura periódica, escribe lo pendiente y cierra el almacén.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        store.close();
+    }
+
+    /* Busca un cliente en la caché, entre los objetos vivos o, si no, en el almacén, con sus cuentas.
+     * Con cache a false no se añade a la caché ni cuenta en las métricas (recorridos completos).
+     */
+    private Client loadClient(String dni, boolean cache) {
+        Client client = cache ? clientCache.get(dni) : null;
+        if (client == null) {
+            client = liveClients.get(dni);
+            if (client == null) {
+                byte[] value = store.get(CLIENT + dni);
+                if (cache) {
+                    misses.increment();
+                }
+                if (value == null) {
+                    return null;
+                }
+                client = liveClients.putIfAbsent(dni, decodeClient(dni, value));
+            } else if (cache) {
+                hits.increment();
+            }
+            if (cache) {
+                clientCache.put(dni, client);
+            }
+        } else {
+            hits.increment();
+        }
+        return client;
+    }
+
+    private BankAccount loadAccount(String accountNumber, boolean cache) {
+        BankAccount account = cache ? accountCache.get(accountNumber) : null;
+        if (account == null) {
+            account = liveAccounts.get(accountNumber);
+            if (account == null) {
+                byte[] value = store.get(ACCOUNT + accountNumber);
+                if (cache) {
+                    misses.increment();
+                }
+                if (value == null) {
+                    return null;
+                }
+                ByteBuffer owner = ByteBuffer.wrap(value);
+                getString(owner);
+                BankAccount loaded = new BankAccount(accountNumber, TYPES[owner.get()]);
+                ByteBuffer balance = ByteBuffer.wrap(store.get(BALANCE + accountNumber));
+                loaded.setBalance(balance.getLong());
+                loaded.setJournalPosition(balance.getLong());
+                loaded.setVolumes(getVolume(balance), getVolume(balance));
+                account = liveAccounts.putIfAbsent(accountNumber, loaded);
+            } else if (cache) {
+                hits.increment();
+            }
+            if (cache) {
+                accountCache.put(accountNumber, account);
+            }
+        } else {
+            hits.increment();
+        }
+        return account;
+    }
+
+    private void write(Map<String, byte[]> batch, List<BankAccount> accounts) {
+        try {
+            store.putAll(batch);
+        } catch (RuntimeException e) {
+            for (BankAccount account : accounts) {
+                pending.putIfAbsent(account.getAccountNumber(), account);
+            }
+            throw e;
+        }
+        flushedWrites.add(batch.size());
+        // Las cuentas no pueden liberarse (y recargarse del almacén) antes de que su saldo esté escrito.
+        Reference.reachabilityFence(accounts);
+        batch.clear();
+        accounts.clear();
+    }
+
+    /* Se llama con el cliente bloqueado. */
+    private static byte[] encodeClient(Client client) {
+        List<byte[]> fields = new ArrayList<>();
+        fields.add(client.getFirstName().getBytes(StandardCharsets.UTF_8));
+        fields.add(client.getLastName().getBytes(StandardCharsets.UTF_8));
+        fields.add(client.getEmail().getBytes(StandardCharsets.UTF_8));
+        for (BankAccount account : client.getAccounts()) {
+            fields.add(account.getAccountNumber().getBytes(StandardCharsets.UTF_8));
+        }
+        int size = Integer.BYTES;
+        for (byte[] field : fields) {
+            size += Short.BYTES + field.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size).putInt(client.getAccounts().size());
+        for (byte[] field : fields) {
+            out.putShort((short) field.length).put(field);
+        }
+        return out.array();
+    }
+
+    private Client decodeClient(String dni, byte[] value) {
+        ByteBuffer in = ByteBuffer.wrap(value);
+        int accountCount = in.getInt();
+        Client client = new Client(getString(in), getString(in), dni, getString(in));
+        for (int i = 0; i < accountCount; i++) {
+            String accountNumber = getString(in);
+            BankAccount account = loadAccount(accountNumber, false);
+            if (account == null) {
+                throw new IllegalStateException("Store references unknown account: " + accountNumber);
+            }
+            client.addAccount(account);
+        }
+        return client;
+    }
+
+    private static byte[] encodeAccount(String dni, BankAccount.AccountType accountType) {
+        byte[] owner = dni.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Short.BYTES + owner.length + 1)
+                .putShort((short) owner.length).put(owner).put((byte) accountType.ordinal()).array();
+    }
+
+    /* Saldo, posición y volúmenes se leen juntos bajo el bloqueo de la cuenta, como en las instantáneas. */
+    private static byte[] encodeBalance(BankAccount account) {
+        ByteBuffer out = ByteBuffer.allocate(4 * Long.BYTES);
+        synchronized (account) {
+            out.putLong(account.getBalance()).putLong(account.getJournalPosition())
+                    .putLong(account.getTotalDeposited()).putLong(account.getTotalWithdrawn());
+        }
+        return out.array();
+    }
+
+    /* Siguiente volumen de un registro de saldo; 0 en los registros escritos antes de guardarlos. */
+    private static long getVolume(ByteBuffer balance) {
+        return balance.remaining() >= Long.BYTES ? balance.getLong() : 0;
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* Caché LRU acotada, repartida en franjas con su propio bloqueo para que los hilos no compitan por uno
+     * solo; cada franja expulsa su entrada menos usada al superar su parte de la capacidad.
+     */
+    private static final class LruCache<V> {
+        private final Stripe<V>[] stripes;
+
+        LruCache(int maxEntries, LongAdder evictions) {
+            stripes = newStripes(CACHE_STRIPES);
+            int stripeEntries = Math.max(1, (maxEntries + CACHE_STRIPES - 1) / CACHE_STRIPES);
+            for (int i = 0; i < CACHE_STRIPES; i++) {
+                stripes[i] = new Stripe<>(stripeEntries, evictions);
+            }
+        }
+
+        // Java no permite crear arrays de un tipo genérico; la conversión es segura porque el array no sale de aquí.
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <V> Stripe<V>[] newStripes(int count) {
+            return new Stripe[count];
+        }
+
+        V get(String key) {
+            Stripe<V> stripe = stripe(key);
+            synchronized (stripe) {
+                return stripe.get(key);
+            }
+        }
+
+        void put(String key, V value) {
+            Stripe<V> stripe = stripe(key);
+            synchronized (stripe) {
+                stripe.put(key, value);
+            }
+        }
+
+        long size() {
+            long size = 0;
+            for (Stripe<V> stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        /* Franja según los bits altos de un hash de Fibonacci: los bajos son los que usa cada LinkedHashMap
+         * para sus cubetas, y si la franja los fijara, todas sus claves caerían en las mismas cubetas.
+         */
+        private Stripe<V> stripe(String key) {
+            return stripes[(key.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - STRIPE_BITS)];
+        }
+    }
+
+    private static final class Stripe<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;    // Nunca se serializa; solo por ser un LinkedHashMap
+
+        private final int maxEntries;
+        private final LongAdder evictions;
+
+        Stripe(int maxEntries, LongAdder evictions) {
+            super(16, 0.75f, true);     // Orden de acceso: la primera entrada es la menos usada
+            this.maxEntries = maxEntries;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.xyzbank.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Clientes de TableBankRepository en forma compacta: un byte[] por cliente, en orden de registro, y dos
+ * índices de direccionamiento abierto (DNI y correo) en arrays de int, sin un objeto Client ni un
+ * ArrayList de cuentas por cliente. Registro de un cliente:
+ *   [int número de cuentas][short longitud + UTF-8 de nombre, apellido, DNI y correo]
+ *   [por cuenta: long mitad alta del UUID, long mitad baja, byte marcas de AccountTable]
+ * Un registro no se modifica una vez publicado: añadir una cuenta lo sustituye por una copia ampliada, así
+ * que quien lo haya leído puede seguir usándolo sin bloqueo. Los métodos se sincronizan sobre la tabla.
+ */
+final class ClientTable {
+
+    static final int FIRST_NAME = 0;
+    static final int LAST_NAME = 1;
+    static final int DNI = 2;
+    static final int EMAIL = 3;
+    static final int ACCOUNT_BYTES = 2 * Long.BYTES + 1;
+
+    private byte[][] records = new byte[16][];
+    private int size;
+    private int[] byDni = new int[32];          // Índice del cliente + 1; 0 marca una ranura libre
+    private int[] byEmail = new int[32];
+
+    /**
+     * Registra un cliente sin cuentas.
+     * '@return Su índice, que no cambia.
+     * '@throws IllegalArgumentException si ya existe un cliente con el mismo DNI o correo.
+     */
+    synchronized int add(String firstName, String lastName, String dni, String email) {
+        byte[] dniBytes = dni.getBytes(StandardCharsets.UTF_8);
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        if (find(byDni, DNI, dniBytes, dni.hashCode()) >= 0) {
+            throw new IllegalArgumentException("Client with DNI already exists");
+        }
+        if (find(byEmail, EMAIL, emailBytes, email.hashCode()) >= 0) {
+            throw new IllegalArgumentException("Client with email already exists");
+        }
+        byte[][] fields = {firstName.getBytes(StandardCharsets.UTF_8), lastName.getBytes(StandardCharsets.UTF_8),
+                dniBytes, emailBytes};
+        int length = Integer.BYTES;
+        for (byte[] field : fields) {
+            length += Short.BYTES + field.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length).putInt(0);
+        for (byte[] field : fields) {
+            record.putShort((short) field.length).put(field);
+        }
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size * 2);
+        }
+        int index = size;
+        records[size++] = record.array();
+        // Factor de carga máximo de 0.5 en los índices, para sondeos cortos.
+        if (size * 2 > byDni.length) {
+            byDni = rehash(byDni, DNI);
+            byEmail = rehash(byEmail, EMAIL);
+        }
+        insert(byDni, dni.hashCode(), index);
+        insert(byEmail, email.hashCode(), index);
+        return index;
+    }
+
+    /**
+     * '@return El índice del cliente con ese DNI, o -1 si no existe.
+     */
+    synchronized int indexOfDni(String dni) {
+        return find(byDni, DNI, dni.getBytes(StandardCharsets.UTF_8), dni.hashCode());
+    }
+
+    /**
+     * '@return El índice del cliente con ese correo, o -1 si no existe.
+     */
+    synchronized int indexOfEmail(String email) {
+        return find(byEmail, EMAIL, email.getBytes(StandardCharsets.UTF_8), email.hashCode());
+    }
+
+    /**
+     * '@return El registro del cliente; no debe modificarse.
+     */
+    synchronized byte[] get(int index) {
+        return records[index];
+    }
+
+    /**
+     * Añade una cuenta al registro de un cliente.
+     */
+    synchronized void addAccount(int index, long msb, long lsb, byte flags) {
+        byte[] record = records[index];
+        ByteBuffer copy = ByteBuffer.wrap(Arrays.copyOf(record, record.length + ACCOUNT_BYTES));
+        copy.putInt(0, copy.getInt(0) + 1);
+        copy.position(record.length);
+        copy.putLong(msb).putLong(lsb).put(flags);
+        records[index] = copy.array();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * '@return Memoria aproximada de los registros y los índices, en bytes.
+     */
+    synchronized long memoryBytes() {
+        long bytes = (long) (records.length + byDni.length + byEmail.length) * Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            bytes += 16 + records[i].length;            // Cabecera aproximada de cada array
+        }
+        return bytes;
+    }
+
+    /**
+     * Lee un campo de texto de un registro: FIRST_NAME, LAST_NAME, DNI o EMAIL.
+     */
+    static String field(byte[] record, int field) {
+        int offset = fieldOffset(record, field);
+        int length = ((record[offset] & 0xFF) << 8) | (record[offset + 1] & 0xFF);
+        return new String(record, offset + Short.BYTES, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * '@return Posición de la primera cuenta de un registro; le siguen getInt(0) cuentas de ACCOUNT_BYTES.
+     */
+    static int accountsOffset(byte[] record) {
+        return fieldOffset(record, EMAIL + 1);
+    }
+
+    private static int fieldOffset(byte[] record, int field) {
+        int offset = Integer.BYTES;
+        for (int i = 0; i < field; i++) {
+            offset += Short.BYTES + (((record[offset] & 0xFF) << 8) | (record[offset + 1] & 0xFF));
+        }
+        return offset;
+    }
+
+    private int find(int[] index, int field, byte[] value, int hash) {
+        int mask = index.length - 1;
+        for (int slot = spread(hash) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int client = index[slot] - 1;
+            byte[] record = records[client];
+            int offset = fieldOffset(record, field);
+            int length = ((record[offset] & 0xFF) << 8) | (record[offset + 1] & 0xFF);
+            if (Arrays.equals(record, offset + Short.BYTES, offset + Short.BYTES + length, value, 0, value.length)) {
+                return client;
+            }
+        }
+        return -1;
+    }
+
+    private static void insert(int[] index, int hash, int client) {
+        int mask = index.length - 1;
+        int slot = spread(hash) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = client + 1;
+    }
+
+    private int[] rehash(int[] index, int field) {
+        int[] grown = new int[index.length * 2];
+        for (int entry : index) {
+            if (entry != 0) {
+                insert(grown, field(records[entry - 1], field).hashCode(), entry - 1);
+            }
+        }
+        return grown;
+    }
+
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+}
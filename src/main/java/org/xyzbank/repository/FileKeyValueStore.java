@@ -0,0 +1,486 @@
+package org.xyzbank.repository;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * KeyValueStore en un único fichero de solo anexado: cada escritura añade un registro al final y un índice
+ * en memoria (clave -> posición y longitud de su último registro) permite leer cualquier valor con una sola
+ * lectura posicional. Formato de cada registro, tras una cabecera [int magic][int versión]:
+ *   [int longitud][short longitud de la clave][clave UTF-8][valor][int CRC32 de clave + valor]
+ * Cada putAll() escribe sus registros dentro de un lote, que solo cuenta si está completo:
+ *   [int -número de registros][registros][int CRC32 de todos los registros del lote]
+ * Al abrir, el fichero se recorre una vez para reconstruir el índice; un lote incompleto o corrupto al final
+ * se descarta entero, como la cola del diario, así que tras una caída un lote se ve completo o no se ve.
+ * Las versiones sobrescritas de cada clave son espacio muerto: cuando ocupan más de la mitad de un fichero
+ * mayor que COMPACT_MIN_BYTES, un hilo en segundo plano lo reescribe solo con los registros vivos.
+ * *
+ * Los valores viven en disco (y en la caché de páginas del sistema); en el heap solo queda el índice,
+ * del orden de 100 bytes por clave. Las escrituras se serializan entre sí; las lecturas no esperan a las
+ * escrituras, y ni unas ni otras esperan a la copia de una compactación, solo al cambio de fichero final.
+ */
+public class FileKeyValueStore implements KeyValueStore {
+
+    private static final int MAGIC = 0x58595a4b;        // "XYZK"
+    private static final int VERSION = 2;               // 1: registros sin lotes (se siguen leyendo)
+    private static final int HEADER_SIZE = 8;           // magic + versión
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int LENGTH_BITS = 21;          // Bits de la longitud del registro en su ubicación
+    private static final long COMPACT_MIN_BYTES = 64L * 1024 * 1024;
+
+    private final Path path;
+    private final long compactMinBytes;
+    private final ExecutorService compactor;
+    private FileChannel channel;                // Se reemplaza al compactar (protegido por swapLock)
+    // Clave -> (posición del registro << LENGTH_BITS) | bytes del registro completo
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final Queue<String> keysInOrder = new ConcurrentLinkedQueue<>();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object writeLock = new Object();
+    private final CRC32 crc = new CRC32();      // Reutilizado bajo writeLock
+    private long fileSize;                      // Fin del último registro (protegido por writeLock)
+    private long deadBytes;                     // Bytes de registros sobrescritos (protegido por writeLock)
+    private boolean compacting;                 // Hay una compactación en curso (protegido por writeLock)
+
+    /**
+     * Abre (o crea) el almacén en la ruta indicada.
+     * '@param path Ruta del fichero.
+     * '@throws UncheckedIOException si el fichero no se puede abrir o no es un almacén válido.
+     */
+    public FileKeyValueStore(Path path) {
+        this(path, COMPACT_MIN_BYTES);
+    }
+
+    /**
+     * '@param compactMinBytes Tamaño mínimo del fichero para compactarlo.
+     */
+    FileKeyValueStore(Path path, long compactMinBytes) {
+        this.path = path;
+        this.compactMinBytes = compactMinBytes;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(channel);
+                fileSize = HEADER_SIZE;
+            } else {
+                int version = readHeader();
+                fileSize = loadIndex();
+                if (version < VERSION) {
+                    // Los registros sueltos se siguen leyendo; a partir de aquí se añaden lotes.
+                    channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(VERSION).flip(), Integer.BYTES);
+                    channel.force(true);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open store " + path, e);
+        }
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-compact");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public byte[] get(String key) {
+        swapLock.readLock().lock();
+        try {
+            Long location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(recordBytes(location));
+            readFully(channel, record, location >>> LENGTH_BITS);
+            int valueStart = Integer.BYTES + Short.BYTES + record.getShort(Integer.BYTES);
+            return Arrays.copyOfRange(record.array(), valueStart, record.capacity() - Integer.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read store " + path, e);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public void putAll(Map<String, byte[]> entries) {
+        String[] keys = new String[entries.size()];
+        byte[][] keyBytes = new byte[keys.length][];
+        byte[][] values = new byte[keys.length][];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            keys[i] = entry.getKey();
+            keyBytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            values[i] = entry.getValue();
+            int length = Short.BYTES + keyBytes[i].length + values[i].length;
+            if (keyBytes[i].length > Short.MAX_VALUE || length > MAX_RECORD_SIZE) {
+                throw new IllegalArgumentException("Entry too large for store: " + keys[i]);
+            }
+            total += Integer.BYTES + length + Integer.BYTES;
+            i++;
+        }
+        total += 2 * Integer.BYTES;     // Cabecera y CRC del lote
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        long[] locations = new long[keys.length];
+        synchronized (writeLock) {
+            batch.putInt(-keys.length);
+            for (i = 0; i < keys.length; i++) {
+                int start = batch.position();
+                batch.putInt(Short.BYTES + keyBytes[i].length + values[i].length);
+                batch.putShort((short) keyBytes[i].length).put(keyBytes[i]).put(values[i]);
+                crc.reset();
+                crc.update(batch.array(), start + Integer.BYTES, batch.position() - start - Integer.BYTES);
+                batch.putInt((int) crc.getValue());
+                locations[i] = (fileSize + start) << LENGTH_BITS | (batch.position() - start);
+            }
+            crc.reset();
+            crc.update(batch.array(), Integer.BYTES, batch.position() - Integer.BYTES);
+            batch.putInt((int) crc.getValue());
+            batch.flip();
+            try {
+                writeFully(channel, batch, fileSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write to store " + path, e);
+            }
+            fileSize += total;
+            for (i = 0; i < keys.length; i++) {
+                index(keys[i], locations[i]);
+            }
+            // Quien escribe puede tener bloqueados cliente, cuenta o registro: la copia no se hace aquí.
+            compactIfNeeded();
+        }
+    }
+
+    @Override
+    public Iterable<String> keys() {
+        return Collections.unmodifiableCollection(keysInOrder);
+    }
+
+    @Override
+    public void sync() {
+        swapLock.readLock().lock();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync store " + path, e);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * '@return Tamaño del fichero, en bytes.
+     */
+    public long sizeBytes() {
+        synchronized (writeLock) {
+            return fileSize;
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            // Una compactación en curso termina; nunca empieza otra.
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            swapLock.writeLock().lock();
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close store " + path, e);
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /* Programa una compactación si más de la mitad del fichero son registros sobrescritos. Se llama con
+     * writeLock.
+     */
+    private void compactIfNeeded() {
+        if (!compacting && !compactor.isShutdown() && fileSize > compactMinBytes && deadBytes > fileSize / 2) {
+            compacting = true;
+            try {
+                compactor.execute(this::compactInBackground);
+            } catch (RejectedExecutionException e) {
+                // El almacén se está cerrando.
+                compacting = false;
+            }
+        }
+    }
+
+    private void compactInBackground() {
+        boolean compacted = false;
+        try {
+            compact();
+            compacted = true;
+        } catch (RuntimeException e) {
+            // El fichero actual sigue siendo válido; se reintenta en la siguiente escritura que lo justifique.
+            System.err.println("Store compaction failed: " + e.getMessage());
+        } finally {
+            synchronized (writeLock) {
+                compacting = false;
+                // Lo escrito durante la copia pasa tal cual al fichero nuevo: si fue mucho, se compacta otra
+                // vez ahora, sin esperar a una escritura que quizá no llegue.
+                if (compacted) {
+                    compactIfNeeded();
+                }
+            }
+        }
+    }
+
+    /* Reescribe el fichero solo con el último registro de cada clave, en el orden de las claves. Bajo
+     * writeLock solo se toma la lista de registros vivos y el fin del fichero; la copia se hace sin bloqueo
+     * mientras siguen las escrituras, que añaden al final del fichero anterior. Al terminar, de nuevo bajo
+     * writeLock, se copian tal cual los bytes escritos durante la copia y se cambia de fichero.
+     */
+    private void compact() {
+        String[] keys;
+        long[] locations;
+        long copiedEnd;
+        synchronized (writeLock) {
+            keys = keysInOrder.toArray(new String[0]);
+            locations = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                locations[i] = index.get(keys[i]);
+            }
+            copiedEnd = fileSize;
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(target);
+                ByteBuffer buffer = ByteBuffer.allocate(2 * (MAX_RECORD_SIZE + 2 * Integer.BYTES));
+                long written = HEADER_SIZE;
+                for (long location : locations) {
+                    int bytes = recordBytes(location);
+                    if (buffer.remaining() < bytes) {
+                        buffer.flip();
+                        written += writeFully(target, buffer, written);
+                        buffer.clear();
+                    }
+                    buffer.limit(buffer.position() + bytes);
+                    readFully(channel, buffer, location >>> LENGTH_BITS);
+                    buffer.limit(buffer.capacity());
+                }
+                buffer.flip();
+                written += writeFully(target, buffer, written);
+                target.force(true);
+
+                synchronized (writeLock) {
+                    // Lo escrito durante la copia (lotes completos) va detrás, sin cambios.
+                    long delta = fileSize - copiedEnd;
+                    for (long copied = 0; copied < delta; ) {
+                        copied += channel.transferTo(copiedEnd + copied, delta - copied, target.position(written + copied));
+                    }
+                    target.force(true);
+                    swapLock.writeLock().lock();
+                    try {
+                        channel.close();
+                        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        syncDirectory(path);
+                        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                        long liveBytes = 0;
+                        long position = HEADER_SIZE;
+                        for (int i = 0; i < keys.length; i++) {
+                            int bytes = recordBytes(locations[i]);
+                            // Las claves sobrescritas durante la copia apuntan ya al tramo copiado al final.
+                            if (index.get(keys[i]) == locations[i]) {
+                                index.put(keys[i], position << LENGTH_BITS | bytes);
+                            }
+                            position += bytes;
+                        }
+                        for (Map.Entry<String, Long> entry : index.entrySet()) {
+                            long location = entry.getValue();
+                            if (location >>> LENGTH_BITS >= copiedEnd) {
+                                entry.setValue((location >>> LENGTH_BITS) - copiedEnd + written << LENGTH_BITS
+                                        | recordBytes(location));
+                            }
+                            liveBytes += recordBytes(location);
+                        }
+                        fileSize = written + delta;
+                        deadBytes = fileSize - HEADER_SIZE - liveBytes;
+                    } finally {
+                        swapLock.writeLock().unlock();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact store " + path, e);
+        }
+    }
+
+    /* Recorre los registros del fichero y reconstruye el índice; descarta un lote o registro final incompleto
+     * o corrupto. Devuelve el fin del último lote o registro válido.
+     */
+    private long loadIndex() throws IOException {
+        long goodPosition = HEADER_SIZE;
+        channel.position(HEADER_SIZE);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        byte[] record = new byte[MAX_RECORD_SIZE];
+        CRC32 batchCrc = new CRC32();
+        List<String> batchKeys = new ArrayList<>();
+        List<Long> batchLocations = new ArrayList<>();
+        try {
+            while (true) {
+                int header = in.readInt();
+                if (header >= 0) {
+                    // Registro suelto: los ficheros compactados y los de la versión 1.
+                    int bytes = readRecord(in, header, record, null);
+                    if (bytes < 0) {
+                        break;
+                    }
+                    index(keyOf(record), goodPosition << LENGTH_BITS | bytes);
+                    goodPosition += bytes;
+                    continue;
+                }
+                batchCrc.reset();
+                batchKeys.clear();
+                batchLocations.clear();
+                long position = goodPosition + Integer.BYTES;
+                for (int i = -header; i > 0; i--) {
+                    int bytes = readRecord(in, in.readInt(), record, batchCrc);
+                    if (bytes < 0) {
+                        break;
+                    }
+                    batchKeys.add(keyOf(record));
+                    batchLocations.add(position << LENGTH_BITS | bytes);
+                    position += bytes;
+                }
+                if (batchKeys.size() != -header || in.readInt() != (int) batchCrc.getValue()) {
+                    break;
+                }
+                for (int i = 0; i < batchKeys.size(); i++) {
+                    index(batchKeys.get(i), batchLocations.get(i));
+                }
+                goodPosition = position + Integer.BYTES;
+            }
+        } catch (EOFException e) {
+            // Cola incompleta: el proceso murió a mitad de una escritura.
+        }
+        if (goodPosition < channel.size()) {
+            channel.truncate(goodPosition);
+        }
+        return goodPosition;
+    }
+
+    /* Lee el resto de un registro de longitud conocida y comprueba su CRC; si se indica, acumula sus bytes
+     * en el CRC del lote. Devuelve los bytes del registro completo, o -1 si no es válido.
+     */
+    private int readRecord(DataInputStream in, int length, byte[] record, CRC32 batchCrc) throws IOException {
+        if (length < Short.BYTES || length > MAX_RECORD_SIZE) {
+            return -1;
+        }
+        in.readFully(record, 0, length);
+        int checksum = in.readInt();
+        crc.reset();
+        crc.update(record, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return -1;
+        }
+        if (batchCrc != null) {
+            batchCrc.update(ByteBuffer.allocate(Integer.BYTES).putInt(length).flip());
+            batchCrc.update(record, 0, length);
+            batchCrc.update(ByteBuffer.allocate(Integer.BYTES).putInt(checksum).flip());
+        }
+        return Integer.BYTES + length + Integer.BYTES;
+    }
+
+    private static String keyOf(byte[] record) {
+        int keyLength = ByteBuffer.wrap(record).getShort();
+        return new String(record, Short.BYTES, keyLength, StandardCharsets.UTF_8);
+    }
+
+    private void index(String key, long location) {
+        Long previous = index.put(key, location);
+        if (previous == null) {
+            keysInOrder.add(key);
+        } else {
+            deadBytes += recordBytes(previous);
+        }
+    }
+
+    private static int recordBytes(long location) {
+        return (int) (location & ((1L << LENGTH_BITS) - 1));
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        long offset = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated store record");
+            }
+        }
+    }
+
+    private static int writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        int bytes = buffer.remaining();
+        long offset = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            target.write(buffer, offset + buffer.position());
+        }
+        return bytes;
+    }
+
+    /* Sincroniza el directorio del fichero, para que un cambio de nombre sobreviva a una caída. */
+    private static void syncDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        target.truncate(0);
+        target.write(header, 0);
+        target.force(true);
+    }
+
+    private int readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        int version;
+        if (header.getInt() != MAGIC || (version = header.getInt()) < 1 || version > VERSION) {
+            throw new IOException("Not a bank store file");
+        }
+        return version;
+    }
+}
@@ -0,0 +1,147 @@
+package org.xyzbank.repository;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Clase InMemoryBankRepository, que actúa como repositorio en memoria para almacenar clientes del banco.
+ * Utiliza mapas hash concurrentes indexados por DNI, correo y número de cuenta para simular
+ * el almacenamiento persistente, de modo que es seguro usarlo desde varios hilos.
+ * Todo el libro vive en el heap; su persistencia son el diario y las instantáneas.
+ */
+public class InMemoryBankRepository implements BankRepository {
+
+    /* Almacén principal de clientes: DNI -> cliente.
+     * Cada cliente contiene información personal y cuentas bancarias asociadas.
+     */
+    private final Map<String, Client> clientsByDni = new ConcurrentHashMap<>();
+
+    /* Índice secundario: correo electrónico -> cliente.
+     */
+    private final Map<String, Client> clientsByEmail = new ConcurrentHashMap<>();
+
+    /* Clientes en orden de registro, para los listados.
+     */
+    private final Queue<Client> clientsInOrder = new ConcurrentLinkedQueue<>();
+
+    /* Índice primario: número de cuenta -> cuenta bancaria.
+     * Permite localizar una cuenta en tiempo constante sin recorrer todos los clientes.
+     */
+    private final Map<String, BankAccount> accountIndex = new ConcurrentHashMap<>();
+
+    /* Referencia inversa: número de cuenta -> cliente titular de la cuenta.
+     */
+    private final Map<String, Client> accountOwners = new ConcurrentHashMap<>();
+
+    /* Totales para los informes, mantenidos con cada alta de cuenta y cada movimiento.
+     */
+    private final BankAggregates aggregates = new BankAggregates();
+
+    /* Agrega un cliente al repositorio, asegurándose de que el DNI y el correo sean únicos.
+     * La unicidad se garantiza con una inserción atómica (putIfAbsent), sin recorrer los clientes.
+     *
+     * '@param client El cliente a agregar.
+     * '@throws IllegalArgumentException si ya existe un cliente con el mismo DNI o correo.
+     */
+    @Override
+    public void addClient(Client client) {
+        if (clientsByDni.putIfAbsent(client.getDni(), client) != null) {
+            throw new IllegalArgumentException("Client with DNI already exists");
+        }
+        if (clientsByEmail.putIfAbsent(client.getEmail(), client) != null) {
+            // Deshacer la inserción por DNI para no dejar el cliente a medio registrar.
+            clientsByDni.remove(client.getDni(), client);
+            throw new IllegalArgumentException("Client with email already exists");
+        }
+        clientsInOrder.add(client);
+    }
+
+    /* Obtiene un cliente por su DNI mediante el almacén indexado.
+     *
+     * '@param dni El DNI del cliente buscado.
+     * '@return El cliente encontrado o null si no existe.
+     */
+    @Override
+    public Client getClientByDni(String dni) {
+        return clientsByDni.get(dni);
+    }
+
+    /* Obtiene un cliente por su correo electrónico mediante el índice secundario.
+     *
+     * '@param email El correo del cliente buscado.
+     * '@return El cliente encontrado o null si no existe.
+     */
+    @Override
+    public Client getClientByEmail(String email) {
+        return clientsByEmail.get(email);
+    }
+
+    /* Devuelve todos los clientes registrados en el repositorio, en orden de registro.
+     *
+     * '@return Una vista de solo lectura de todos los clientes.
+     */
+    @Override
+    public Collection<Client> getAllClients() {
+        return Collections.unmodifiableCollection(clientsInOrder);
+    }
+
+    /* Asocia una cuenta bancaria a un cliente y la registra en el índice de cuentas.
+     * Valida que el número de cuenta no exista ya en el repositorio.
+     *
+     * '@param client El cliente titular de la cuenta.
+     * '@param account La cuenta bancaria a registrar.
+     * '@throws IllegalArgumentException si ya existe una cuenta con el mismo número.
+     */
+    @Override
+    public void addAccount(Client client, BankAccount account) {
+        // Bajo el bloqueo de la cuenta, para que ningún movimiento llegue a los totales antes que su alta.
+        synchronized (account) {
+            if (accountIndex.putIfAbsent(account.getAccountNumber(), account) != null) {
+                throw new IllegalArgumentException("An account with the same number already exists");
+            }
+            aggregates.onAccountAdded(account.getAccountType(), account.getBalance(),
+                    account.getTotalDeposited(), account.getTotalWithdrawn());
+        }
+        accountOwners.put(account.getAccountNumber(), client);
+        // La lista de cuentas del cliente no es concurrente, se sincroniza sobre el cliente.
+        synchronized (client) {
+            client.addAccount(account);
+        }
+    }
+
+    /* Obtiene una cuenta bancaria por su número mediante el índice de cuentas.
+     *
+     * '@param accountNumber El número de la cuenta buscada.
+     * '@return La cuenta encontrada o null si no existe.
+     */
+    @Override
+    public BankAccount getAccountByNumber(String accountNumber) {
+        return accountIndex.get(accountNumber);
+    }
+
+    /* Devuelve los totales del banco, mantenidos de forma incremental.
+     *
+     * '@return Los totales por tipo de cuenta, la exposición por sobregiro y las cuentas en negativo.
+     */
+    @Override
+    public BankAggregates getAggregates() {
+        return aggregates;
+    }
+
+    /* Obtiene el cliente titular de una cuenta bancaria.
+     *
+     * '@param accountNumber El número de la cuenta.
+     * '@return El cliente titular o null si la cuenta no existe.
+     */
+    @Override
+    public Client getAccountOwner(String accountNumber) {
+        return accountOwners.get(accountNumber);
+    }
+}
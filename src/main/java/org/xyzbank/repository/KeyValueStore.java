@@ -0,0 +1,42 @@
+package org.xyzbank.repository;
+
+import java.util.Map;
+
+/**
+ * Almacén persistente de pares clave-valor sobre el que CachedBankRepository guarda el libro.
+ * Las claves son cadenas y los valores bytes opacos; no hay borrados, solo altas y sobrescrituras.
+ * Las implementaciones deben admitir lecturas concurrentes con las escrituras.
+ */
+public interface KeyValueStore extends AutoCloseable {
+
+    /**
+     * '@return El último valor escrito para la clave, o null si no existe.
+     */
+    byte[] get(String key);
+
+    /**
+     * '@return true si la clave existe.
+     */
+    boolean contains(String key);
+
+    /**
+     * Escribe un lote de pares; cada valor sustituye al anterior de su clave. El lote es atómico frente a
+     * una caída (tras reabrir se ve entero o no se ve), pero no es duradero hasta la siguiente llamada a sync().
+     * '@param entries Pares a escribir.
+     */
+    void putAll(Map<String, byte[]> entries);
+
+    /**
+     * '@return Las claves existentes, en el orden en que se escribieron por primera vez. La iteración
+     * no falla por escrituras concurrentes y puede incluir o no las claves nuevas.
+     */
+    Iterable<String> keys();
+
+    /**
+     * Fuerza a disco todo lo escrito hasta el momento.
+     */
+    void sync();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,66 @@
+package org.xyzbank.repository;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Objetos cargados que siguen en uso, con referencias débiles: mientras algún hilo (o una caché, o una lista
+ * de pendientes) tenga el objeto, se devuelve ese mismo objeto; cuando nadie lo tiene, el recolector lo
+ * libera y su entrada se limpia en la siguiente alta. Lo usan los repositorios que guardan el libro fuera
+ * de los objetos del modelo y los crean al pedirlos, ya que los movimientos se sincronizan sobre la cuenta
+ * y dos copias de una misma cuenta perderían actualizaciones.
+ */
+final class LiveObjects<V> {
+
+    private final Map<String, KeyedReference<V>> references = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    V get(String key) {
+        KeyedReference<V> reference = references.get(key);
+        return reference == null ? null : reference.get();
+    }
+
+    /* Registra el objeto, sustituyendo cualquier otro con la misma clave. */
+    void put(String key, V value) {
+        expunge();
+        references.put(key, new KeyedReference<>(key, value, queue));
+    }
+
+    /* Registra el objeto si no hay otro vivo con la misma clave; devuelve el que queda registrado. */
+    V putIfAbsent(String key, V value) {
+        expunge();
+        while (true) {
+            KeyedReference<V> reference = references.compute(key, (k, current) ->
+                    current != null && current.get() != null ? current : new KeyedReference<>(k, value, queue));
+            V registered = reference.get();
+            if (registered != null) {
+                return registered;
+            }
+        }
+    }
+
+    void remove(String key, V value) {
+        references.computeIfPresent(key, (k, current) -> current.get() == value ? null : current);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        Reference<? extends V> cleared;
+        while ((cleared = queue.poll()) != null) {
+            KeyedReference<V> reference = (KeyedReference<V>) cleared;
+            references.remove(reference.key, reference);
+        }
+    }
+
+    private static final class KeyedReference<V> extends WeakReference<V> {
+        private final String key;
+
+        KeyedReference(String key, V referent, ReferenceQueue<V> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+}
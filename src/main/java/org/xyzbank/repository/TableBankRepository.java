@@ -0,0 +1,276 @@
+package org.xyzbank.repository;
+
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Repositorio para libros de decenas de millones de cuentas: en lugar de un BankAccount (con su número
+ * como String de 36 caracteres) por cuenta y un Client con su lista por cliente, el libro vive en dos
+ * tablas compactas:
+ *  - AccountTable: una fila de 56 bytes por cuenta fuera del heap, con la clave (el UUID del número en dos
+ *    long), el saldo, la posición en el diario, los volúmenes, el tipo y el índice del titular.
+ *  - ClientTable: un byte[] por cliente con sus datos y las claves de sus cuentas, e índices de arrays de int.
+ * Los objetos BankAccount y Client solo existen mientras alguien los usa: se crean a partir de las tablas
+ * al pedirlos y un mapa de referencias débiles (LiveObjects) devuelve el mismo objeto mientras siga vivo,
+ * ya que los movimientos se sincronizan sobre la cuenta. Tras cada movimiento (onBalanceChanged) la fila se
+ * actualiza con el saldo de la cuenta, así que una cuenta liberada y vuelta a pedir conserva su estado.
+ * *
+ * Los números de cuenta deben ser UUID en su forma canónica, con o sin los dígitos de control que añade
+ * AccountNumberGenerator: todos los esquemas de generación los producen así. La capacidad de cuentas se
+ * fija al crear el repositorio.
+ * El historial de movimientos no se guarda en las tablas y una cuenta recreada empezaría con el historial
+ * vacío: keepsHistory() es false. La persistencia son el diario y las instantáneas, como en memoria.
+ */
+public class TableBankRepository implements BankRepository {
+
+    private static final int UUID_LENGTH = 36;
+
+    private final AccountTable accounts;
+    private final ClientTable clients = new ClientTable();
+    private final LiveObjects<Client> liveClients = new LiveObjects<>();
+    private final LiveObjects<BankAccount> liveAccounts = new LiveObjects<>();
+    private final BankAggregates aggregates = new BankAggregates();
+    private final Object registrationLock = new Object();
+
+    /**
+     * '@param expectedAccounts Número máximo de cuentas previsto; la tabla de cuentas no crece más allá.
+     */
+    public TableBankRepository(long expectedAccounts) {
+        this.accounts = new AccountTable(expectedAccounts);
+    }
+
+    @Override
+    public void addClient(Client client) {
+        String dni = client.getDni();
+        // Las altas se serializan: la unicidad del DNI y del correo se comprueba e inserta en un paso.
+        synchronized (registrationLock) {
+            if (clients.indexOfDni(dni) >= 0) {
+                throw new IllegalArgumentException("Client with DNI already exists");
+            }
+            if (clients.indexOfEmail(client.getEmail()) >= 0) {
+                throw new IllegalArgumentException("Client with email already exists");
+            }
+            // Se registra como objeto vivo antes de insertarlo, para que nadie cree otra copia desde la tabla.
+            liveClients.put(dni, client);
+            try {
+                clients.add(client.getFirstName(), client.getLastName(), dni, client.getEmail());
+            } catch (RuntimeException e) {
+                liveClients.remove(dni, client);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Client getClientByDni(String dni) {
+        Client client = liveClients.get(dni);
+        if (client != null) {
+            return client;
+        }
+        int index = clients.indexOfDni(dni);
+        return index < 0 ? null : loadClient(index);
+    }
+
+    @Override
+    public Client getClientByEmail(String email) {
+        int index = clients.indexOfEmail(email);
+        return index < 0 ? null : loadClient(index);
+    }
+
+    /* Recorre los clientes en orden de registro, creando cada uno (y sus cuentas) a medida que se pide. */
+    @Override
+    public Collection<Client> getAllClients() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Client> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < clients.size();
+                    }
+
+                    @Override
+                    public Client next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return loadClient(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return clients.size();
+            }
+        };
+    }
+
+    @Override
+    public void addAccount(Client client, BankAccount account) {
+        String accountNumber = account.getAccountNumber();
+        UUID key = keyOf(accountNumber);
+        if (key == null) {
+            throw new IllegalArgumentException("Account number must be a UUID, optionally with check digits: "
+                    + accountNumber);
+        }
+        byte flags = flagsOf(accountNumber);
+        // Orden de bloqueo: cliente, cuenta y altas; BankService ya tiene el del cliente al abrir una cuenta.
+        synchronized (client) {
+            synchronized (account) {
+                synchronized (registrationLock) {
+                    int owner = clients.indexOfDni(client.getDni());
+                    if (owner < 0) {
+                        throw new IllegalArgumentException("Client not found with DNI: " + client.getDni());
+                    }
+                    long msb = key.getMostSignificantBits();
+                    long lsb = key.getLeastSignificantBits();
+                    // Un mismo UUID no puede repetirse, lleve o no dígitos de control.
+                    if (accounts.find(msb, lsb, flags) >= 0
+                            || accounts.find(msb, lsb, (byte) (flags ^ AccountTable.CHECK_DIGITS)) >= 0) {
+                        throw new IllegalArgumentException("An account with the same number already exists");
+                    }
+                    liveAccounts.put(accountNumber, account);
+                    try {
+                        accounts.insert(msb, lsb, flags, owner, account);
+                    } catch (RuntimeException e) {
+                        liveAccounts.remove(accountNumber, account);
+                        throw e;
+                    }
+                    clients.addAccount(owner, msb, lsb, flags);
+                    client.addAccount(account);
+                }
+                aggregates.onAccountAdded(account.getAccountType(), account.getBalance(),
+                        account.getTotalDeposited(), account.getTotalWithdrawn());
+            }
+        }
+    }
+
+    @Override
+    public BankAccount getAccountByNumber(String accountNumber) {
+        BankAccount account = liveAccounts.get(accountNumber);
+        if (account != null) {
+            return account;
+        }
+        long row = rowOf(accountNumber);
+        return row < 0 ? null : loadAccount(row, accountNumber);
+    }
+
+    @Override
+    public Client getAccountOwner(String accountNumber) {
+        long row = rowOf(accountNumber);
+        return row < 0 ? null : loadClient(accounts.getOwnerIndex(row));
+    }
+
+    @Override
+    public BankAggregates getAggregates() {
+        return aggregates;
+    }
+
+    /* Se llama con la cuenta bloqueada: la fila recibe el saldo, la posición y los volúmenes actuales. */
+    @Override
+    public void onBalanceChanged(BankAccount account) {
+        long row = rowOf(account.getAccountNumber());
+        if (row >= 0) {
+            accounts.store(row, account);
+        }
+    }
+
+    @Override
+    public boolean keepsHistory() {
+        return false;
+    }
+
+    /**
+     * '@return Memoria de la tabla de cuentas fuera del heap, en bytes.
+     */
+    public long getOffHeapBytes() {
+        return accounts.memoryBytes();
+    }
+
+    @Override
+    public String exportMetrics() {
+        return "bank_table_accounts " + accounts.size() + '\n'
+                + "bank_table_clients " + clients.size() + '\n'
+                + "bank_table_offheap_bytes " + accounts.memoryBytes() + '\n'
+                + "bank_table_client_bytes " + clients.memoryBytes() + '\n';
+    }
+
+    /* Crea el cliente de un índice de la tabla, o devuelve el que ya está en uso. Sus cuentas se crean (o se
+     * toman de las que están en uso) a la vez, ya que Client las guarda en su lista.
+     */
+    private Client loadClient(int index) {
+        byte[] record = clients.get(index);
+        String dni = ClientTable.field(record, ClientTable.DNI);
+        Client client = liveClients.get(dni);
+        if (client != null) {
+            return client;
+        }
+        client = new Client(ClientTable.field(record, ClientTable.FIRST_NAME),
+                ClientTable.field(record, ClientTable.LAST_NAME), dni, ClientTable.field(record, ClientTable.EMAIL));
+        ByteBuffer in = ByteBuffer.wrap(record);
+        int accountCount = in.getInt(0);
+        in.position(ClientTable.accountsOffset(record));
+        for (int i = 0; i < accountCount; i++) {
+            long msb = in.getLong();
+            long lsb = in.getLong();
+            byte flags = in.get();
+            String accountNumber = numberOf(msb, lsb, flags);
+            BankAccount account = liveAccounts.get(accountNumber);
+            client.addAccount(account != null ? account : loadAccount(accounts.find(msb, lsb, flags), accountNumber));
+        }
+        return liveClients.putIfAbsent(dni, client);
+    }
+
+    private BankAccount loadAccount(long row, String accountNumber) {
+        BankAccount account = new BankAccount(accountNumber, accounts.getAccountType(row));
+        accounts.load(row, account);
+        return liveAccounts.putIfAbsent(accountNumber, account);
+    }
+
+    private long rowOf(String accountNumber) {
+        UUID key = keyOf(accountNumber);
+        return key == null ? -1
+                : accounts.find(key.getMostSignificantBits(), key.getLeastSignificantBits(), flagsOf(accountNumber));
+    }
+
+    /* UUID de un número de cuenta: el propio número, o lo que precede a sus dígitos de control si son
+     * correctos; null si el número no tiene ninguna de las dos formas canónicas y no puede estar en la tabla.
+     */
+    private static UUID keyOf(String accountNumber) {
+        if (accountNumber == null) {
+            return null;
+        }
+        int length = accountNumber.length();
+        if (length != UUID_LENGTH && (length != UUID_LENGTH + 3
+                || !AccountNumberGenerator.hasValidCheckDigits(accountNumber))) {
+            return null;
+        }
+        String uuid = accountNumber.substring(0, UUID_LENGTH);
+        try {
+            UUID key = UUID.fromString(uuid);
+            return key.toString().equals(uuid) ? key : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte flagsOf(String accountNumber) {
+        return accountNumber.length() > UUID_LENGTH ? AccountTable.CHECK_DIGITS : 0;
+    }
+
+    private static String numberOf(long msb, long lsb, byte flags) {
+        String uuid = new UUID(msb, lsb).toString();
+        return (flags & AccountTable.CHECK_DIGITS) != 0 ? AccountNumberGenerator.withCheckDigits(uuid) : uuid;
+    }
+}
@@ -0,0 +1,379 @@
+package org.xyzbank.server;
+
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Money;
+import org.xyzbank.service.BankService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor TCP que expone las operaciones de BankService con un protocolo de texto por líneas.
+ * Cada línea es una petición con campos separados por comas, como en los ficheros de lotes:
+ *   REGISTER,nombre,apellido,DNI,correo    -> OK
+ *   OPEN,DNI,AHORROS|CORRIENTE             -> OK,número de cuenta
+ *   DEPOSIT,cuenta,monto[,clave]           -> OK
+ *   WITHDRAW,cuenta,monto[,clave]          -> OK
+ *   BALANCE,cuenta                         -> OK,saldo
+ *   TRANSFER,origen,destino,monto          -> OK
+ * Los montos van en unidades ("1500.00"). Si la operación falla la respuesta es "ERROR,mensaje"; el
+ * mensaje nunca lleva comas ni saltos de línea, para no romper el formato. Una línea de más de
+ * MAX_LINE_BYTES bytes se descarta entera y se responde con un error.
+ * Si los números de cuenta llevan dígitos de control, un número con dígitos incorrectos se rechaza
+ * antes de llegar al servicio.
+ * La clave opcional de DEPOSIT y WITHDRAW es un entero de 64 bits que identifica la petición: al
+ * reintentarla con la misma clave (por ejemplo tras perder la conexión) no se aplica dos veces.
+ * *
+ * Cada conexión se atiende en su propio hilo (virtual si el JDK lo permite, ver ConnectionThreads).
+ * Las peticiones se pueden encadenar (pipelining): el cliente envía varias sin esperar respuesta y el
+ * servidor ejecuta cada una en su propio hilo, con hasta MAX_IN_FLIGHT en curso por conexión, y
+ * responde en el orden en que llegaron. Las peticiones de una conexión sobre una misma cuenta o un
+ * mismo cliente se ejecutan en su orden de llegada, una tras otra; las demás, en paralelo (sin hilos
+ * virtuales, en como mucho MAX_PLATFORM_REQUEST_THREADS hilos para todo el servidor). El búfer de
+ * salida solo se vacía cuando no quedan peticiones leídas pendientes, de modo que una ráfaga se
+ * contesta con una sola escritura.
+ */
+public class BankServer implements AutoCloseable {
+
+    private static final int BACKLOG = 4096;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_BYTES = 4 * 1024;
+    private static final int MAX_IN_FLIGHT = 64;
+    private static final int MAX_PLATFORM_REQUEST_THREADS = 256;     // Solo sin hilos virtuales
+
+    private final BankService bankService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final ExecutorService requests;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones.
+     * '@param bankService Servicio sobre el que se ejecutan las peticiones.
+     * '@param port Puerto TCP; 0 para uno libre cualquiera.
+     */
+    public BankServer(BankService bankService, int port) {
+        this.bankService = bankService;
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on port " + port, e);
+        }
+        connections = ConnectionThreads.newPerTaskExecutor("bank-connection");
+        // Con hilos de plataforma, MAX_IN_FLIGHT por conexión serían demasiados: se acota el total.
+        requests = ConnectionThreads.newPerTaskExecutor("bank-request", MAX_PLATFORM_REQUEST_THREADS);
+        acceptor = new Thread(this::acceptLoop, "bank-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * '@return El puerto en el que escucha el servidor.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Espera a que el servidor se cierre.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Se está cerrando: no hay nada más que hacer.
+        }
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+            requests.shutdown();
+            requests.awaitTermination(10, TimeUnit.SECONDS);
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /* Atiende una conexión: lee peticiones, las lanza sin esperar a las anteriores y responde en orden. */
+    private void serve(Socket socket) {
+        try (socket;
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            LineReader in = new LineReader(socket.getInputStream());
+            Queue<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+            Map<String, CompletableFuture<String>> lastByKey = new HashMap<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (in.isTooLong()) {
+                    inFlight.add(CompletableFuture.completedFuture(
+                            "ERROR,Request longer than " + MAX_LINE_BYTES + " bytes"));
+                } else if (!line.isBlank()) {
+                    inFlight.add(submit(line, lastByKey));
+                }
+                // Responder en orden lo ya terminado; esperar al más antiguo si hay demasiadas peticiones en
+                // curso o si no quedan más peticiones encadenadas ya recibidas.
+                while (!inFlight.isEmpty()
+                        && (inFlight.peek().isDone() || inFlight.size() >= MAX_IN_FLIGHT || !in.ready())) {
+                    out.write(inFlight.remove().join());
+                    out.write('\n');
+                }
+                if (inFlight.isEmpty()) {
+                    lastByKey.clear();
+                    out.flush();
+                } else if (lastByKey.size() > 4 * MAX_IN_FLIGHT) {
+                    lastByKey.values().removeIf(CompletableFuture::isDone);
+                }
+            }
+            for (CompletableFuture<String> response : inFlight) {
+                out.write(response.join());
+                out.write('\n');
+            }
+        } catch (SocketException | RejectedExecutionException e) {
+            // El cliente cerró la conexión o el servidor se está cerrando.
+        } catch (CompletionException e) {
+            // Una petición terminó con un Error: sin su respuesta no se puede seguir respondiendo en orden.
+            System.err.println("Request failed, closing connection: " + e.getCause());
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /* Lanza una petición en su propio hilo, detrás de las peticiones anteriores de la conexión que usan la
+     * misma cuenta o el mismo cliente, para que por ejemplo un retiro no adelante al depósito que lo cubre.
+     */
+    private CompletableFuture<String> submit(String line, Map<String, CompletableFuture<String>> lastByKey) {
+        List<String> keys = keysOf(line.split(",", -1));
+        List<CompletableFuture<String>> before = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            CompletableFuture<String> previous = lastByKey.get(key);
+            if (previous != null && !previous.isDone()) {
+                before.add(previous);
+            }
+        }
+        CompletableFuture<String> response = before.isEmpty()
+                ? CompletableFuture.supplyAsync(() -> execute(line), requests)
+                : CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                        .handleAsync((ignored, failure) -> execute(line), requests);
+        for (String key : keys) {
+            lastByKey.put(key, response);
+        }
+        return response;
+    }
+
+    /* Cuentas y clientes que usa una petición, como claves para ordenar las de una misma conexión. */
+    private static List<String> keysOf(String[] fields) {
+        String command = fields[0].trim().toUpperCase();
+        return switch (command) {
+            case "REGISTER" -> fields.length > 3 ? List.of("C:" + fields[3].trim()) : List.of();
+            case "OPEN" -> fields.length > 1 ? List.of("C:" + fields[1].trim()) : List.of();
+            case "DEPOSIT", "WITHDRAW", "BALANCE" -> fields.length > 1 ? List.of("A:" + fields[1].trim()) : List.of();
+            case "TRANSFER" -> fields.length > 2
+                    ? List.of("A:" + fields[1].trim(), "A:" + fields[2].trim()) : List.of();
+            default -> List.of();
+        };
+    }
+
+    /* Ejecuta una petición y devuelve la línea de respuesta, sin el salto de línea. */
+    String execute(String line) {
+        String[] fields = line.split(",", -1);
+        try {
+            switch (fields[0].trim().toUpperCase()) {
+                case "REGISTER" -> {
+                    expect(fields, 5);
+                    bankService.registerClient(fields[1].trim(), fields[2].trim(), fields[3].trim(), fields[4].trim());
+                    return "OK";
+                }
+                case "OPEN" -> {
+                    expect(fields, 3);
+                    BankAccount.AccountType accountType = BankAccount.AccountType.valueOf(fields[2].trim().toUpperCase());
+                    return "OK," + bankService.openBankAccount(fields[1].trim(), accountType);
+                }
+                case "DEPOSIT" -> {
+                    expect(fields, 3, 4);
+                    if (fields.length == 4) {
+                        bankService.deposit(account(fields[1]), Money.parse(fields[2]), Long.parseLong(fields[3].trim()));
+                    } else {
+                        bankService.deposit(account(fields[1]), Money.parse(fields[2]));
+                    }
+                    return "OK";
+                }
+                case "WITHDRAW" -> {
+                    expect(fields, 3, 4);
+                    if (fields.length == 4) {
+                        bankService.withdraw(account(fields[1]), Money.parse(fields[2]), Long.parseLong(fields[3].trim()));
+                    } else {
+                        bankService.withdraw(account(fields[1]), Money.parse(fields[2]));
+                    }
+                    return "OK";
+                }
+                case "BALANCE" -> {
+                    expect(fields, 2);
+                    return "OK," + Money.format(bankService.checkBalance(account(fields[1])));
+                }
+                case "TRANSFER" -> {
+                    expect(fields, 4);
+                    bankService.transfer(account(fields[1]), account(fields[2]), Money.parse(fields[3]));
+                    return "OK";
+                }
+                default -> throw new IllegalArgumentException("Unknown command: " + fields[0]);
+            }
+        } catch (RuntimeException e) {
+            return error(e);
+        }
+    }
+
+    /* Respuesta de error con el mensaje de la excepción, o su tipo si no tiene; sin comas ni saltos de
+     * línea, que romperían los campos o la respuesta.
+     */
+    static String error(RuntimeException e) {
+        String message = e.getMessage();
+        if (message == null || message.isBlank()) {
+            message = e.getClass().getSimpleName();
+        }
+        return "ERROR," + message.replace(',', ';').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    /* Número de cuenta de un campo, comprobando sus dígitos de control si el esquema los usa. */
+    private String account(String field) {
+        String accountNumber = field.trim();
+        if (!bankService.isValidAccountNumber(accountNumber)) {
+            throw new IllegalArgumentException("Invalid account number: " + accountNumber);
+        }
+        return accountNumber;
+    }
+
+    private static void expect(String[] fields, int count) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException(fields[0] + " expects " + (count - 1) + " fields");
+        }
+    }
+
+    private static void expect(String[] fields, int minCount, int maxCount) {
+        if (fields.length < minCount || fields.length > maxCount) {
+            throw new IllegalArgumentException(fields[0] + " expects " + (minCount - 1) + " or " + (maxCount - 1) + " fields");
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Se está cerrando: no hay nada más que hacer.
+        }
+    }
+
+    /* Lector de líneas UTF-8 con longitud máxima: de una línea más larga que MAX_LINE_BYTES descarta el
+     * resto hasta el salto de línea y la marca con isTooLong(), sin llegar a guardarla en memoria.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /* '@return La siguiente línea sin el salto de línea (ni el retorno de carro), o null al final. */
+        String readLine() throws IOException {
+            int length = 0;
+            tooLong = false;
+            while (true) {
+                if (position == limit) {
+                    int read = in.read(buffer, 0, buffer.length);
+                    if (read <= 0) {
+                        return length > 0 || tooLong ? decode(length) : null;
+                    }
+                    position = 0;
+                    limit = read;
+                }
+                byte next = buffer[position++];
+                if (next == '\n') {
+                    return decode(length);
+                }
+                if (length < line.length) {
+                    line[length++] = next;
+                } else {
+                    tooLong = true;
+                }
+            }
+        }
+
+        /* '@return true si la última línea leída superaba MAX_LINE_BYTES y se descartó. */
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        /* '@return true si hay más datos recibidos que se pueden leer sin bloquear. */
+        boolean ready() throws IOException {
+            return position < limit || in.available() > 0;
+        }
+
+        private String decode(int length) {
+            if (tooLong) {
+                return "";
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
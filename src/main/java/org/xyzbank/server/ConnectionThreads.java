@@ -0,0 +1,94 @@
+package org.xyzbank.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crea los ejecutores que atienden cada conexión, o cada petición, en su propio hilo.
+ * En un JDK 21 o posterior se usan hilos virtuales (Executors.newVirtualThreadPerTaskExecutor), que
+ * permiten decenas de miles de conexiones bloqueantes con muy poca memoria. El proyecto compila para
+ * Java 17, así que el método se busca por reflexión y se prueba una vez: en JDK 19 y 20 existe, pero sin
+ * --enable-preview falla al llamarlo. Si no se puede usar, se recurre a hilos de plataforma demonio con
+ * pila reducida, en un pool que crece bajo demanda o, para tareas que pueden ser muchas más que las
+ * conexiones, con un máximo de hilos.
+ */
+public final class ConnectionThreads {
+
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+    private static final Method VIRTUAL_FACTORY = virtualFactory();
+
+    private ConnectionThreads() {
+    }
+
+    /**
+     * '@param name Prefijo del nombre de los hilos de plataforma.
+     * '@return Un ejecutor que lanza un hilo por tarea.
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        ExecutorService virtual = newVirtualExecutor();
+        return virtual != null ? virtual : Executors.newCachedThreadPool(platformThreads(name));
+    }
+
+    /**
+     * Como newPerTaskExecutor(name), pero sin hilos virtuales no crea más de maxPlatformThreads hilos: las
+     * tareas que no caben esperan en cola. Los hilos virtuales no necesitan límite.
+     * '@param name Prefijo del nombre de los hilos de plataforma.
+     * '@param maxPlatformThreads Máximo de hilos de plataforma.
+     * '@return Un ejecutor que lanza un hilo por tarea, acotado si los hilos son de plataforma.
+     */
+    public static ExecutorService newPerTaskExecutor(String name, int maxPlatformThreads) {
+        ExecutorService virtual = newVirtualExecutor();
+        if (virtual != null) {
+            return virtual;
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxPlatformThreads, maxPlatformThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), platformThreads(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * '@return true si los hilos de las conexiones son virtuales.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    private static ExecutorService newVirtualExecutor() {
+        if (VIRTUAL_FACTORY == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_FACTORY.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /* El método de los hilos virtuales si existe y funciona en este JDK; null si no. */
+    private static Method virtualFactory() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreads(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(null, runnable, name + "-" + counter.incrementAndGet(), PLATFORM_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,11 +1,31 @@
 package org.xyzbank.service;
 
+import org.xyzbank.audit.AuditLog;
+import org.xyzbank.batch.BatchOperation;
+import org.xyzbank.journal.JournalListener;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.metrics.BankMetrics;
+import org.xyzbank.metrics.Operation;
+import org.xyzbank.metrics.Outcome;
+import org.xyzbank.model.AccountNumberGenerator;
 import org.xyzbank.model.BankAccount;
 import org.xyzbank.model.Client;
+import org.xyzbank.model.Money;
+import org.xyzbank.model.MovementType;
+import org.xyzbank.model.TransactionHistory;
+import org.xyzbank.model.TransactionStatus;
+import org.xyzbank.repository.BankAggregates;
 import org.xyzbank.repository.BankRepository;
 
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.UUID;
 
 /* Esta clase proporciona servicios para gestionar clientes y cuentas bancarias.
  * Actúa como una capa intermedia entre el sistema y el repositorio, permitiendo
@@ -14,14 +34,138 @@ import java.util.UUID;
  */
 public class BankService {
 
+    // Clientes por página en el listado de la consola.
+    private static final int CONSOLE_PAGE_SIZE = 50;
+
     // Dependencia para almacenar y gestionar datos.
     private final BankRepository bankRepository;
 
+    // Diario de transacciones donde se registra cada operación; null si no hay persistencia.
+    private final TransactionJournal journal;
+
+    // Registro de auditoría de los movimientos, incluidos los rechazados; null si no se audita.
+    private final AuditLog auditLog;
+
+    // Contadores e histogramas de latencia de cada operación pública.
+    private final BankMetrics metrics = new BankMetrics();
+
+    // Generador de los números de las cuentas nuevas.
+    private final AccountNumberGenerator accountNumberGenerator;
+
+    // Claves de idempotencia de los depósitos y retiros recientes, para no aplicar dos veces un reintento.
+    private final IdempotencyTable idempotencyTable;
+
+    // Con diario, serializa las altas de clientes y cuentas: la unicidad se comprueba, se anota en el diario y
+    // solo entonces se inserta en el repositorio, sin que otra alta se cuele entre medias. Orden de bloqueo:
+    // cliente, este bloqueo y después los del repositorio.
+    private final Object registrationLock = new Object();
+
     /* Constructor que inicializa el servicio del banco con un repositorio específico.
      * @param bankRepository. Repositorio que se usará para almacenar y gestionar datos de clientes y cuentas bancarias.
      */
     public BankService(BankRepository bankRepository) {
+        this(bankRepository, null);
+    }
+
+    /* Constructor que inicializa el servicio del banco con un repositorio y un diario de transacciones.
+     * Cada operación que modifica el estado se anexa al diario antes de confirmarse al llamador.
+     * @param bankRepository. Repositorio que se usará para almacenar y gestionar datos de clientes y cuentas bancarias.
+     * @param journal. Diario de transacciones, o null para trabajar solo en memoria.
+     */
+    public BankService(BankRepository bankRepository, TransactionJournal journal) {
+        this(bankRepository, journal, null);
+    }
+
+    /* Constructor que además publica cada movimiento en un registro de auditoría asíncrono.
+     * @param bankRepository. Repositorio que se usará para almacenar y gestionar datos de clientes y cuentas bancarias.
+     * @param journal. Diario de transacciones, o null para trabajar solo en memoria.
+     * @param auditLog. Registro de auditoría, o null para no auditar.
+     */
+    public BankService(BankRepository bankRepository, TransactionJournal journal, AuditLog auditLog) {
+        this(bankRepository, journal, auditLog, AccountNumberGenerator.of(AccountNumberGenerator.Scheme.SECURE_RANDOM, false));
+    }
+
+    /* Constructor que además elige cómo se generan los números de las cuentas nuevas.
+     * @param bankRepository. Repositorio que se usará para almacenar y gestionar datos de clientes y cuentas bancarias.
+     * @param journal. Diario de transacciones, o null para trabajar solo en memoria.
+     * @param auditLog. Registro de auditoría, o null para no auditar.
+     * @param accountNumberGenerator. Generador de números de cuenta.
+     */
+    public BankService(BankRepository bankRepository, TransactionJournal journal, AuditLog auditLog,
+                       AccountNumberGenerator accountNumberGenerator) {
+        this(bankRepository, journal, auditLog, accountNumberGenerator,
+                new IdempotencyTable(IdempotencyTable.DEFAULT_CAPACITY, IdempotencyTable.DEFAULT_TTL_MILLIS));
+    }
+
+    /* Constructor que además elige la tabla con la que se reconocen los reintentos de depósitos y retiros.
+     * @param bankRepository. Repositorio que se usará para almacenar y gestionar datos de clientes y cuentas bancarias.
+     * @param journal. Diario de transacciones, o null para trabajar solo en memoria.
+     * @param auditLog. Registro de auditoría, o null para no auditar.
+     * @param accountNumberGenerator. Generador de números de cuenta.
+     * @param idempotencyTable. Tabla de claves de idempotencia.
+     */
+    public BankService(BankRepository bankRepository, TransactionJournal journal, AuditLog auditLog,
+                       AccountNumberGenerator accountNumberGenerator, IdempotencyTable idempotencyTable) {
         this.bankRepository = bankRepository;
+        this.journal = journal;
+        this.auditLog = auditLog;
+        this.accountNumberGenerator = accountNumberGenerator;
+        this.idempotencyTable = idempotencyTable;
+    }
+
+    /* Devuelve el repositorio del servicio, por ejemplo para repartir sus cuentas en particiones.
+     */
+    public BankRepository getRepository() {
+        return bankRepository;
+    }
+
+    /* Devuelve el generador de los números de las cuentas nuevas, para que quien abra cuentas fuera del
+     * servicio (por ejemplo, el modo por particiones) use el mismo esquema.
+     */
+    public AccountNumberGenerator getAccountNumberGenerator() {
+        return accountNumberGenerator;
+    }
+
+    /* Indica si un número de cuenta tiene un formato válido para el esquema de numeración, sin buscarlo:
+     * con dígitos de control, rechaza los números con un carácter mal tecleado.
+     * @param accountNumber, Número de la cuenta bancaria.
+     */
+    public boolean isValidAccountNumber(String accountNumber) {
+        return accountNumberGenerator.accepts(accountNumber);
+    }
+
+    /* Indica si el servicio anota sus operaciones en un diario.
+     */
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
+    /* Reconstruye el repositorio aplicando, en orden, las operaciones registradas en el diario.
+     * Debe llamarse al arrancar, antes de atender operaciones nuevas.
+     * @return, Número de operaciones recuperadas.
+     */
+    public long recoverFromJournal() {
+        return recoverFromJournal(0);
+    }
+
+    /* Reconstruye el repositorio aplicando la cola del diario posterior a una instantánea ya cargada.
+     * La instantánea puede incluir parte de las operaciones posteriores a su posición (se toma sin
+     * detener las transacciones), por eso cada cuenta recuerda la posición de su último movimiento y
+     * los registros que ya refleja se omiten.
+     * @param fromPosition, Posición del diario cubierta por la instantánea.
+     * @return, Número de operaciones recuperadas.
+     */
+    public long recoverFromJournal(long fromPosition) {
+        if (journal == null) {
+            throw new IllegalStateException("No journal configured");
+        }
+        return journal.replay(new JournalRecovery(), fromPosition);
+    }
+
+    /* Devuelve las métricas de las operaciones del servicio, para consultarlas o exportarlas.
+     */
+    public BankMetrics getMetrics() {
+        return metrics;
     }
 
     /* Registra un nuevo cliente en el sistema.
@@ -32,120 +176,682 @@ public class BankService {
      * @param email, Dirección de correo electrónico del cliente.
      */
     public void registerClient(String firstName, String lastName, String dni, String email) {
-        // Crear una instancia de Client con los datos proporcionados.
-        Client client = new Client(firstName, lastName, dni, email);
-        // Agregar el cliente al repositorio.
-        bankRepository.addClient(client);
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.INVALID;
+        try {
+            // Crear una instancia de Client con los datos proporcionados.
+            Client client = new Client(firstName, lastName, dni, email);
+            long position = 0;
+            if (journal == null) {
+                bankRepository.addClient(client);
+            } else {
+                // Anotar en el diario antes de insertar: si la escritura falla, nadie llega a ver el cliente.
+                // Se bloquea el cliente para que la apertura de una cuenta no llegue al diario antes que su registro.
+                synchronized (client) {
+                    synchronized (registrationLock) {
+                        if (bankRepository.getClientByDni(dni) != null) {
+                            throw new IllegalArgumentException("Client with DNI already exists");
+                        }
+                        if (bankRepository.getClientByEmail(email) != null) {
+                            throw new IllegalArgumentException("Client with email already exists");
+                        }
+                        journal.beginApply();
+                        try {
+                            position = journal.appendRegisterClient(firstName, lastName, dni, email);
+                            bankRepository.addClient(client);
+                        } finally {
+                            journal.endApply();
+                        }
+                    }
+                }
+            }
+            awaitDurable(position);
+            outcome = Outcome.SUCCESS;
+        } finally {
+            metrics.record(Operation.REGISTER_CLIENT, outcome, start);
+        }
     }
 
     /** Abre una nueva cuenta bancaria para un cliente existente identificado por su DNI.
      * Este metodo realiza las siguientes acciones:
      *  1. Verifica que el cliente exista en el repositorio.
-     *  2. Genera un número único para la cuenta bancaria utilizando UUID.randomUUID().
+     *  2. Genera un número único para la cuenta bancaria con el generador configurado.
      *  3. Crea un objeto BankAccount con el tipo de cuenta especificado.
      *  4. Asocia la cuenta bancaria al cliente.
      * Si el cliente no existe, lanza una excepción.
      * *
      * Validaciones realizadas:
      *  - Verifica que el DNI del cliente exista en el sistema antes de proceder.
-     *  - Garantiza que el número de cuenta generado sea único gracias al uso de UUID.
+     *  - Garantiza que el número de cuenta generado sea único gracias al uso de UUID (y el repositorio
+     *    rechaza cualquier número repetido).
      * *
      * '@param dni DNI del cliente.
      * '@param accountType Tipo de cuenta bancaria (AHORROS o CORRIENTE).
+     * '@return El número de la cuenta abierta.
      */
-    public void openBankAccount(String dni, BankAccount.AccountType accountType) {
-        // Buscar el cliente en el repositorio por su DNI.
-        Client client = bankRepository.getClientByDni(dni);
-        if (client == null) {
-            // Si el cliente no existe, lanzar una excepción.
-            throw new IllegalArgumentException("Client not found with DNI: " + dni);
+    public String openBankAccount(String dni, BankAccount.AccountType accountType) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.NOT_FOUND;
+        try {
+            // Buscar el cliente en el repositorio por su DNI.
+            Client client = bankRepository.getClientByDni(dni);
+            if (client == null) {
+                // Si el cliente no existe, lanzar una excepción.
+                throw new IllegalArgumentException("Client not found with DNI: " + dni);
+            }
+            outcome = Outcome.INVALID;
+            // Generar un número único para la cuenta bancaria.
+            String accountNumber = accountNumberGenerator.next();
+            // Se crea una nueva instancia de BankAccount.
+            BankAccount account = new BankAccount(accountNumber, accountType);
+            long position = 0;
+            // Anotar la cuenta en el diario y después agregarla al cliente y al índice del repositorio.
+            synchronized (client) {
+                if (journal == null) {
+                    bankRepository.addAccount(client, account);
+                } else {
+                    synchronized (registrationLock) {
+                        if (bankRepository.getAccountByNumber(accountNumber) != null) {
+                            throw new IllegalArgumentException("An account with the same number already exists");
+                        }
+                        journal.beginApply();
+                        try {
+                            position = journal.appendOpenBankAccount(dni, accountNumber, accountType);
+                            account.setJournalPosition(position);
+                            bankRepository.addAccount(client, account);
+                        } finally {
+                            journal.endApply();
+                        }
+                    }
+                }
+            }
+            awaitDurable(position);
+            outcome = Outcome.SUCCESS;
+            return accountNumber;
+        } finally {
+            metrics.record(Operation.OPEN_BANK_ACCOUNT, outcome, start);
         }
-        // Generar un número único para la cuenta bancaria.
-        String accountNumber = UUID.randomUUID().toString();
-        // Se crea una nueva instancia de BankAccount.
-        BankAccount account = new BankAccount(accountNumber, accountType);
-        // Agregar la cuenta al cliente.
-        client.addAccount(account);
     }
 
     /* Realiza un depósito en una cuenta bancaria específica.
      * Busca la cuenta usando su número y aumenta el balance en la cantidad especificada.
      * @param accountNumber, Número de la cuenta bancaria.
-     * @param amount, Monto a depositar.
-     */
-    public void deposit(String accountNumber, double amount) {
-        // Iterar sobre todos los clientes.
-        for (Client client : bankRepository.getAllClients()) {
-            // Iterar sobre las cuentas de cada cliente.
-            for (BankAccount account : client.getAccounts()) {
-                // Si se encuentra la cuenta, realizar el depósito.
-                if (account.getAccountNumber().equals(accountNumber)) {
-                    account.deposit(amount);
-                    return;      // Salir del metodo tras realizar el depósito.
-                }
-            }
-        }
-        // Si no se encuentra la cuenta, se lanza una excepción.
-        throw new IllegalArgumentException("Account not found: " + accountNumber);
+     * @param amount, Monto a depositar, en céntimos.
+     */
+    public void deposit(String accountNumber, long amount) {
+        applyMovement(MovementType.DEPOSIT, accountNumber, amount, false, 0);
+    }
+
+    /* Realiza un depósito identificado por una clave de idempotencia: si la clave ya se usó para este mismo
+     * depósito, no se aplica otra vez y se devuelve el resultado original (el mismo rechazo, si lo hubo).
+     * Pensado para los reintentos de un cliente que no recibió la respuesta.
+     * @param accountNumber, Número de la cuenta bancaria.
+     * @param amount, Monto a depositar, en céntimos.
+     * @param idempotencyKey, Clave única de la petición, elegida por el cliente.
+     * Si la clave ya se usó para otra operación, lanza una excepción.
+     */
+    public void deposit(String accountNumber, long amount, long idempotencyKey) {
+        applyMovement(MovementType.DEPOSIT, accountNumber, amount, true, idempotencyKey);
     }
 
     /* Realiza un retiro de una cuenta bancaria específica.
      * Busca la cuenta usando su número y disminuye el balance en la cantidad especificada.
      * @param accountNumber, Número de la cuenta bancaria.
-     * @param amount, Monto a retirar.
+     * @param amount, Monto a retirar, en céntimos.
      * Si la cuenta no existe o no tiene suficiente balance, lanza una excepción.
      */
-    public void withdraw(String accountNumber, double amount) {
-        // Iterar sobre todos los clientes.
-        for (Client client : bankRepository.getAllClients()) {
-            // Iterar sobre las cuentas de cada cliente.
-            for (BankAccount account : client.getAccounts()) {
-                // Si se encuentra la cuenta, realizar el retiro.
-                if (account.getAccountNumber().equals(accountNumber)) {
-                    account.withdraw(amount);
-                    return;         // Salir del metodo tras realizar el retiro.
+    public void withdraw(String accountNumber, long amount) {
+        applyMovement(MovementType.WITHDRAW, accountNumber, amount, false, 0);
+    }
+
+    /* Realiza un retiro identificado por una clave de idempotencia, con las mismas reglas que el depósito
+     * con clave: un reintento con la misma clave devuelve el resultado original sin volver a retirar.
+     * @param accountNumber, Número de la cuenta bancaria.
+     * @param amount, Monto a retirar, en céntimos.
+     * @param idempotencyKey, Clave única de la petición, elegida por el cliente.
+     * Si la cuenta no existe, no tiene suficiente balance o la clave ya se usó para otra operación, lanza una excepción.
+     */
+    public void withdraw(String accountNumber, long amount, long idempotencyKey) {
+        applyMovement(MovementType.WITHDRAW, accountNumber, amount, true, idempotencyKey);
+    }
+
+    /* Aplica un lote de depósitos y retiros, devolviendo el resultado de cada operación en lugar de lanzar
+     * una excepción por cada rechazo. Las operaciones se agrupan por cuenta, de modo que cada cuenta se
+     * busca y se bloquea una sola vez y sus operaciones se aplican en el orden del lote; las cuentas
+     * distintas se procesan en paralelo en el pool fork-join común.
+     * @param operations, Operaciones del lote.
+     * @return, Resultado de cada operación, en la misma posición que en el lote.
+     */
+    public TransactionStatus[] processBatch(List<BatchOperation> operations) {
+        long start = System.nanoTime();
+        TransactionStatus[] results = new TransactionStatus[operations.size()];
+        // Agrupar los índices de las operaciones por número de cuenta.
+        Map<String, AccountGroup> groups = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            groups.computeIfAbsent(operations.get(i).getAccountNumber(), AccountGroup::new).add(i);
+        }
+        new ArrayList<>(groups.values()).parallelStream()
+                .forEach(group -> applyGroup(group, operations, results));
+        for (int i = 0; i < results.length; i++) {
+            Operation operation = operations.get(i).getType() == BatchOperation.Type.DEPOSIT
+                    ? Operation.DEPOSIT : Operation.WITHDRAW;
+            metrics.count(operation, Outcome.of(results[i]));
+        }
+        metrics.record(Operation.PROCESS_BATCH, Outcome.SUCCESS, start);
+        return results;
+    }
+
+    /* Transfiere dinero entre dos cuentas bancarias de forma atómica.
+     * Ambas cuentas se bloquean en un orden global (por número de cuenta), de modo que dos
+     * transferencias en sentidos opuestos no pueden bloquearse mutuamente. El retiro sigue las
+     * mismas reglas que withdraw; si se rechaza, ninguna de las dos cuentas se modifica.
+     * @param fromAccountNumber, Número de la cuenta de origen.
+     * @param toAccountNumber, Número de la cuenta de destino.
+     * @param amount, Monto a transferir, en céntimos.
+     * Si alguna cuenta no existe, son la misma cuenta o el retiro no es válido, lanza una excepción.
+     */
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.INVALID;
+        try {
+            if (fromAccountNumber.equals(toAccountNumber)) {
+                throw new IllegalArgumentException("Cannot transfer to the same account");
+            }
+            outcome = Outcome.NOT_FOUND;
+            BankAccount from = findAccount(fromAccountNumber);
+            BankAccount to = findAccount(toAccountNumber);
+            // Orden global de bloqueo: primero la cuenta con el número menor.
+            BankAccount first = fromAccountNumber.compareTo(toAccountNumber) < 0 ? from : to;
+            BankAccount second = first == from ? to : from;
+            long position = 0;
+            synchronized (first) {
+                synchronized (second) {
+                    // Valida el monto, que el destino pueda recibirlo y los límites del origen antes de mover el dinero.
+                    TransactionStatus status = BankAccount.checkDeposit(to.getBalance(), amount);
+                    if (status == TransactionStatus.APPLIED) {
+                        status = BankAccount.checkWithdrawal(from.getAccountType(), from.getBalance(), amount);
+                    }
+                    outcome = Outcome.of(status);
+                    if (status != TransactionStatus.APPLIED) {
+                        audit(from, MovementType.TRANSFER_OUT, amount, status);
+                        throw new IllegalArgumentException(status.describe("Transfer"));
+                    }
+                    // Primero el diario; las cuentas solo cambian si la escritura tuvo éxito.
+                    long timestamp = System.currentTimeMillis();
+                    beginApply();
+                    try {
+                        if (journal != null) {
+                            position = journal.appendTransfer(timestamp, fromAccountNumber, toAccountNumber, amount);
+                        }
+                        from.tryWithdraw(amount);
+                        to.tryDeposit(amount);
+                        if (journal != null) {
+                            from.setJournalPosition(position);
+                            to.setJournalPosition(position);
+                        }
+                        recordMovement(from, MovementType.TRANSFER_OUT, amount, timestamp);
+                        recordMovement(to, MovementType.TRANSFER_IN, amount, timestamp);
+                    } finally {
+                        endApply();
+                    }
+                    audit(from, MovementType.TRANSFER_OUT, amount, status);
+                    audit(to, MovementType.TRANSFER_IN, amount, status);
                 }
             }
+            awaitDurable(position);
+        } finally {
+            metrics.record(Operation.TRANSFER, outcome, start);
         }
-        // Si no se encuentra la cuenta, se lanza una excepción.
-        throw new IllegalArgumentException("Account not found: " + accountNumber);
     }
 
     /* Consulta el balance actual de una cuenta bancaria específica.
      * @param accountNumber, Número de la cuenta bancaria.
-     * @return, El balance actual de la cuenta.
-     */
-    public double checkBalance(String accountNumber) {
-        // Iterar sobre todos los clientes.
-        for (Client client : bankRepository.getAllClients()) {
-            // Iterar sobre las cuentas de cada cliente.
-            for (BankAccount account : client.getAccounts()) {
-                // Si se encuentra la cuenta, devolver el saldo.
-                if (account.getAccountNumber().equals(accountNumber)) {
-                    return account.getBalance();
+     * @return, El balance actual de la cuenta, en céntimos.
+     */
+    public long checkBalance(String accountNumber) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.NOT_FOUND;
+        try {
+            // Buscar la cuenta en el índice y devolver el saldo.
+            long balance = findAccount(accountNumber).getBalance();
+            outcome = Outcome.SUCCESS;
+            return balance;
+        } finally {
+            metrics.record(Operation.CHECK_BALANCE, outcome, start);
+        }
+    }
+
+    /* Genera una página del extracto de una cuenta: los movimientos con fecha en el rango indicado, en
+     * orden cronológico y con el saldo resultante de cada uno.
+     * @param accountNumber, Número de la cuenta bancaria.
+     * @param fromMillis, Instante inicial del rango (incluido), en milisegundos desde epoch.
+     * @param toMillis, Instante final del rango (incluido), en milisegundos desde epoch.
+     * @param page, Número de página, empezando en 0.
+     * @param pageSize, Número máximo de movimientos por página.
+     * @return, Los movimientos de la página; una lista vacía si no hay más.
+     */
+    public List<TransactionHistory.Movement> getStatement(String accountNumber, long fromMillis, long toMillis,
+                                                          int page, int pageSize) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.INVALID;
+        try {
+            if (page < 0 || pageSize <= 0 || fromMillis > toMillis) {
+                throw new IllegalArgumentException("Invalid statement range or page");
+            }
+            requireHistory();
+            outcome = Outcome.NOT_FOUND;
+            TransactionHistory history = findAccount(accountNumber).getHistory();
+            List<TransactionHistory.Movement> movements =
+                    history.range(fromMillis, toMillis, (long) page * pageSize, pageSize);
+            outcome = Outcome.SUCCESS;
+            return movements;
+        } finally {
+            metrics.record(Operation.STATEMENT, outcome, start);
+        }
+    }
+
+    /* Devuelve los últimos movimientos de una cuenta, del más antiguo al más reciente.
+     * @param accountNumber, Número de la cuenta bancaria.
+     * @param count, Número máximo de movimientos.
+     * @return, Los últimos movimientos de la cuenta.
+     */
+    public List<TransactionHistory.Movement> getLastMovements(String accountNumber, int count) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.INVALID;
+        try {
+            requireHistory();
+            outcome = Outcome.NOT_FOUND;
+            List<TransactionHistory.Movement> movements = findAccount(accountNumber).getHistory().last(count);
+            outcome = Outcome.SUCCESS;
+            return movements;
+        } finally {
+            metrics.record(Operation.STATEMENT, outcome, start);
+        }
+    }
+
+    /* Los extractos solo se dan si el repositorio conserva el historial; si no, estarían incompletos.
+     * Si no lo conserva, lanza una excepción.
+     */
+    private void requireHistory() {
+        if (!bankRepository.keepsHistory()) {
+            throw new IllegalStateException("Movement history is not kept by this repository");
+        }
+    }
+
+    /* Busca una cuenta bancaria por su número usando el índice del repositorio.
+     * @param accountNumber, Número de la cuenta bancaria.
+     * @return, La cuenta encontrada.
+     * Si la cuenta no existe, lanza una excepción.
+     */
+    private BankAccount findAccount(String accountNumber) {
+        // Con dígitos de control, un número mal tecleado se rechaza sin buscarlo en el repositorio.
+        if (!accountNumberGenerator.accepts(accountNumber)) {
+            throw new IllegalArgumentException("Invalid account number: " + accountNumber);
+        }
+        return lookupAccount(accountNumber);
+    }
+
+    /* Busca una cuenta sin validar su número, para los números ya anotados en el diario: pueden ser de
+     * antes de activar los dígitos de control.
+     */
+    private BankAccount lookupAccount(String accountNumber) {
+        BankAccount account = bankRepository.getAccountByNumber(accountNumber);
+        if (account == null) {
+            // Si no se encuentra la cuenta, se lanza una excepción.
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return account;
+    }
+
+    /* Realiza un depósito o un retiro, con o sin clave de idempotencia, y registra sus métricas.
+     */
+    private void applyMovement(MovementType type, String accountNumber, long amount, boolean keyed, long idempotencyKey) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.NOT_FOUND;
+        try {
+            // Buscar la cuenta en el índice y realizar el movimiento.
+            BankAccount account = findAccount(accountNumber);
+            outcome = Outcome.INVALID;
+            TransactionStatus status;
+            synchronized (account) {
+                status = keyed ? applyOnce(account, type, amount, idempotencyKey)
+                        : type == MovementType.DEPOSIT ? applyDeposit(account, amount) : applyWithdraw(account, amount);
+            }
+            outcome = Outcome.of(status);
+            if (status != TransactionStatus.APPLIED) {
+                throw new IllegalArgumentException(status.describe(type == MovementType.DEPOSIT ? "Deposit" : "Withdrawal"));
+            }
+            // En una repetición, la posición de la cuenta es igual o posterior a la del movimiento original.
+            awaitDurable(account.getJournalPosition());
+        } finally {
+            metrics.record(type == MovementType.DEPOSIT ? Operation.DEPOSIT : Operation.WITHDRAW, outcome, start);
+        }
+    }
+
+    /* Aplica un depósito o un retiro con clave de idempotencia sobre una cuenta cuyo bloqueo ya tiene el
+     * llamador. Las claves son de cada cuenta: la misma clave en dos cuentas son dos operaciones distintas.
+     * La clave se reserva en la tabla antes de aplicar y guarda su resultado en cuanto el movimiento queda
+     * anotado en el diario, antes de tocar la cuenta; como los reintentos de una misma operación compiten
+     * por el bloqueo de la cuenta, el segundo siempre encuentra el resultado del primero. Si aplicar falla
+     * con una excepción antes de anotar nada, la clave se libera para que el reintento lo aplique; si falla
+     * después, el movimiento ya cuenta como hecho y la clave se conserva.
+     * @return, El resultado del movimiento, o el de la primera vez si la clave ya se usó.
+     */
+    private TransactionStatus applyOnce(BankAccount account, MovementType type, long amount, long idempotencyKey) {
+        if (amount <= 0) {
+            // Un monto no positivo se rechaza siempre igual: no hace falta recordar la clave.
+            return type == MovementType.DEPOSIT ? applyDeposit(account, amount) : applyWithdraw(account, amount);
+        }
+        String scope = account.getAccountNumber();
+        // Huella exacta de la operación dentro de la cuenta: el signo distingue depósito y retiro.
+        long fingerprint = type == MovementType.DEPOSIT ? amount : -amount;
+        int previous = idempotencyTable.claim(scope, idempotencyKey, fingerprint);
+        if (previous == IdempotencyTable.MISMATCH) {
+            throw new IllegalArgumentException("Idempotency key already used for another operation: " + idempotencyKey);
+        }
+        if (previous == IdempotencyTable.IN_PROGRESS) {
+            throw new IllegalStateException("Operation still in progress for idempotency key: " + idempotencyKey);
+        }
+        if (previous != IdempotencyTable.CLAIMED) {
+            return TransactionStatus.values()[previous];
+        }
+        TransactionStatus status;
+        try {
+            status = type == MovementType.DEPOSIT ? applyDeposit(account, amount, true, idempotencyKey)
+                    : applyWithdraw(account, amount, true, idempotencyKey);
+        } catch (RuntimeException | Error e) {
+            // Sin efecto si el movimiento ya se anotó y la clave tiene su resultado.
+            idempotencyTable.release(scope, idempotencyKey);
+            throw e;
+        }
+        // Los rechazos también se guardan, para devolver el mismo resultado en los reintentos.
+        idempotencyTable.complete(scope, idempotencyKey, status.ordinal());
+        return status;
+    }
+
+    private TransactionStatus applyDeposit(BankAccount account, long amount) {
+        return applyDeposit(account, amount, false, 0);
+    }
+
+    /* Aplica un depósito sobre una cuenta cuyo bloqueo ya tiene el llamador. Si se acepta, primero lo anota
+     * en el diario (write-ahead) y solo después cambia el saldo, el historial y los totales, todo bajo el
+     * mismo bloqueo para conservar el orden de aplicación. Si la escritura en el diario falla, la cuenta no
+     * cambia y nadie llega a ver el movimiento. Con clave de idempotencia, la clave queda completada en
+     * cuanto el movimiento está anotado.
+     * @return, El resultado del depósito.
+     */
+    private TransactionStatus applyDeposit(BankAccount account, long amount, boolean keyed, long idempotencyKey) {
+        TransactionStatus status = BankAccount.checkDeposit(account.getBalance(), amount);
+        if (status == TransactionStatus.APPLIED) {
+            long timestamp = System.currentTimeMillis();
+            beginApply();
+            try {
+                long position = journal == null ? 0 : journal.appendDeposit(timestamp, account.getAccountNumber(), amount);
+                if (keyed) {
+                    idempotencyTable.complete(account.getAccountNumber(), idempotencyKey, status.ordinal());
+                }
+                account.tryDeposit(amount);
+                if (journal != null) {
+                    account.setJournalPosition(position);
+                }
+                recordMovement(account, MovementType.DEPOSIT, amount, timestamp);
+            } finally {
+                endApply();
+            }
+        }
+        audit(account, MovementType.DEPOSIT, amount, status);
+        return status;
+    }
+
+    private TransactionStatus applyWithdraw(BankAccount account, long amount) {
+        return applyWithdraw(account, amount, false, 0);
+    }
+
+    /* Aplica un retiro sobre una cuenta cuyo bloqueo ya tiene el llamador, con el mismo orden que el depósito:
+     * validar, anotar en el diario, completar la clave si la hay y después cambiar la cuenta.
+     * @return, El resultado del retiro.
+     */
+    private TransactionStatus applyWithdraw(BankAccount account, long amount, boolean keyed, long idempotencyKey) {
+        TransactionStatus status = BankAccount.checkWithdrawal(account.getAccountType(), account.getBalance(), amount);
+        if (status == TransactionStatus.APPLIED) {
+            long timestamp = System.currentTimeMillis();
+            beginApply();
+            try {
+                long position = journal == null ? 0 : journal.appendWithdraw(timestamp, account.getAccountNumber(), amount);
+                if (keyed) {
+                    idempotencyTable.complete(account.getAccountNumber(), idempotencyKey, status.ordinal());
+                }
+                account.tryWithdraw(amount);
+                if (journal != null) {
+                    account.setJournalPosition(position);
+                }
+                recordMovement(account, MovementType.WITHDRAW, amount, timestamp);
+            } finally {
+                endApply();
+            }
+        }
+        audit(account, MovementType.WITHDRAW, amount, status);
+        return status;
+    }
+
+    /* Anota un movimiento aplicado en el historial de la cuenta (si el repositorio lo conserva) y en los totales
+     * del repositorio, y avisa al repositorio del cambio de saldo. Se llama con la cuenta bloqueada, justo después de modificar el saldo.
+     */
+    private void recordMovement(BankAccount account, MovementType type, long amount, long timestamp) {
+        long balance = account.getBalance();
+        account.recordVolume(type, amount);
+        if (bankRepository.keepsHistory()) {
+            account.getHistory().record(timestamp, type, amount, balance);
+        }
+        bankRepository.getAggregates().onMovement(account.getAccountType(), type, amount, balance);
+        bankRepository.onBalanceChanged(account);
+    }
+
+    /* Publica un movimiento en el registro de auditoría, si lo hay. Se llama con la cuenta bloqueada,
+     * para que el saldo publicado sea el resultante de la operación; publicar no bloquea.
+     */
+    private void audit(BankAccount account, MovementType type, long amount, TransactionStatus status) {
+        if (auditLog != null) {
+            auditLog.publish(account.getAccountNumber(), type, amount, account.getBalance(), status);
+        }
+    }
+
+    /* Aplica las operaciones de un lote que afectan a una misma cuenta, bloqueándola una sola vez.
+     */
+    private void applyGroup(AccountGroup group, List<BatchOperation> operations, TransactionStatus[] results) {
+        BankAccount account = accountNumberGenerator.accepts(group.accountNumber)
+                ? bankRepository.getAccountByNumber(group.accountNumber) : null;
+        if (account == null) {
+            for (int i = 0; i < group.size; i++) {
+                results[group.indices[i]] = TransactionStatus.ACCOUNT_NOT_FOUND;
+            }
+            return;
+        }
+        synchronized (account) {
+            for (int i = 0; i < group.size; i++) {
+                BatchOperation operation = operations.get(group.indices[i]);
+                results[group.indices[i]] = operation.getType() == BatchOperation.Type.DEPOSIT
+                        ? applyDeposit(account, operation.getAmount())
+                        : applyWithdraw(account, operation.getAmount());
+            }
+        }
+        // Una sola espera de durabilidad para todas las operaciones de la cuenta.
+        awaitDurable(account.getJournalPosition());
+    }
+
+    /* Índices de las operaciones de un lote que afectan a una misma cuenta, en orden.
+     */
+    private static class AccountGroup {
+        private final String accountNumber;
+        private int[] indices = new int[4];
+        private int size;
+
+        AccountGroup(String accountNumber) {
+            this.accountNumber = accountNumber;
+        }
+
+        void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+    }
+
+    /* Anotar en el diario y aplicar van entre beginApply y endApply, para que una instantánea o un checkpoint
+     * solo cubran registros ya aplicados (TransactionJournal.getAppliedPosition). Sin diario no hace nada.
+     */
+    private void beginApply() {
+        if (journal != null) {
+            journal.beginApply();
+        }
+    }
+
+    private void endApply() {
+        if (journal != null) {
+            journal.endApply();
+        }
+    }
+
+    /* Espera a que la operación registrada en el diario esté en disco, según la política de sincronización.
+     * @param position, Posición del registro en el diario.
+     */
+    private void awaitDurable(long position) {
+        if (journal != null) {
+            journal.awaitDurable(position);
+        }
+    }
+
+    /* Aplica los registros del diario directamente sobre el repositorio y las cuentas, sin volver a
+     * escribirlos en el diario. Omite lo que ya está presente (clientes y cuentas existentes, y
+     * movimientos anteriores a la posición registrada en la cuenta).
+     */
+    private class JournalRecovery implements JournalListener {
+
+        @Override
+        public void onRegisterClient(long position, String firstName, String lastName, String dni, String email) {
+            if (bankRepository.getClientByDni(dni) == null) {
+                bankRepository.addClient(new Client(firstName, lastName, dni, email));
+            }
+        }
+
+        @Override
+        public void onOpenBankAccount(long position, String dni, String accountNumber, BankAccount.AccountType accountType) {
+            if (bankRepository.getAccountByNumber(accountNumber) != null) {
+                return;
+            }
+            Client client = bankRepository.getClientByDni(dni);
+            if (client == null) {
+                throw new IllegalStateException("Journal references unknown client: " + dni);
+            }
+            BankAccount account = new BankAccount(accountNumber, accountType);
+            account.setJournalPosition(position);
+            bankRepository.addAccount(client, account);
+        }
+
+        @Override
+        public void onDeposit(long position, long timestamp, String accountNumber, long amount) {
+            replay(position, timestamp, accountNumber, MovementType.DEPOSIT, amount);
+        }
+
+        @Override
+        public void onWithdraw(long position, long timestamp, String accountNumber, long amount) {
+            replay(position, timestamp, accountNumber, MovementType.WITHDRAW, amount);
+        }
+
+        @Override
+        public void onTransfer(long position, long timestamp, String fromAccountNumber, String toAccountNumber,
+                               long amount) {
+            replay(position, timestamp, fromAccountNumber, MovementType.TRANSFER_OUT, amount);
+            replay(position, timestamp, toAccountNumber, MovementType.TRANSFER_IN, amount);
+        }
+
+        /* Aplica un movimiento sobre el saldo y el historial de la cuenta, salvo que ya esté reflejado. Saldo y
+         * posición cambian bajo el mismo bloqueo, como en las operaciones normales, para que quien los guarde
+         * (instantánea o escritura diferida) los lea siempre juntos.
+         */
+        private void replay(long position, long timestamp, String accountNumber, MovementType type, long amount) {
+            BankAccount account = lookupAccount(accountNumber);
+            synchronized (account) {
+                if (position > account.getJournalPosition()) {
+                    if (type == MovementType.DEPOSIT || type == MovementType.TRANSFER_IN) {
+                        account.deposit(amount);
+                    } else {
+                        account.withdraw(amount);
+                    }
+                    recordMovement(account, type, amount, timestamp);
+                    account.setJournalPosition(position);
                 }
             }
         }
-        // Si no se encuentra la cuenta, se lanza una excepción.
-        throw new IllegalArgumentException("Account not found: " + accountNumber);
     }
 
     /* Muestra en consola la lista de todos los clientes y sus cuentas bancarias asociadas.
     */
     public void showAllClientsAndAccounts() {
         System.out.println("\n--- Clients and Accounts ---");
-        // Iterar sobre todos los clientes en el repositorio.
-        for (Client client : bankRepository.getAllClients()) {
-            // Mostrar información del cliente.
-            System.out.println("Client: " + client.getFirstName() + " " + client.getLastName() +
+        writeClientsAndAccounts(System.out, clientCursor(), Integer.MAX_VALUE);
+    }
+
+    /* Abre un cursor sobre los clientes en orden de registro, para listarlos por páginas. El cursor avanza
+     * con cada página, así que cada página cuesta lo mismo sea cual sea su posición en el listado.
+     * @return, Un iterador sobre todos los clientes, que recorre el repositorio a medida que se pide.
+     */
+    public Iterator<Client> clientCursor() {
+        return bankRepository.getAllClients().iterator();
+    }
+
+    /* Escribe la siguiente página del listado de clientes y sus cuentas, línea a línea a medida que avanza
+     * el cursor, sin construir el listado completo en memoria.
+     * @param out, Destino de las líneas.
+     * @param clients, Cursor de clientCursor(); queda en el primer cliente de la página siguiente.
+     * @param limit, Número máximo de clientes a escribir.
+     * @return, Número de clientes escritos; menor que limit si no quedan más.
+     */
+    public int writeClientsAndAccounts(PrintStream out, Iterator<Client> clients, int limit) {
+        int written = 0;
+        while (written < limit && clients.hasNext()) {
+            Client client = clients.next();
+            List<BankAccount> accounts;
+            synchronized (client) {
+                accounts = new ArrayList<>(client.getAccounts());
+            }
+            // Mostrar información del cliente y de sus cuentas.
+            out.println("Client: " + client.getFirstName() + " " + client.getLastName() +
                     " (DNI: " + client.getDni() + ", Email: " + client.getEmail() + ")");
-            // Mostrar información de las cuentas asociadas.
-            for (BankAccount account : client.getAccounts()) {
-                System.out.println("  Account: " + account.getAccountNumber() +
+            for (BankAccount account : accounts) {
+                out.println("  Account: " + account.getAccountNumber() +
                         ", Type: " + account.getAccountType() +
-                        ", Balance: " + account.getBalance());
+                        ", Balance: " + Money.format(account.getBalance()));
             }
+            written++;
         }
+        return written;
+    }
+
+    /* Muestra los totales del banco, que se leen en tiempo constante de los agregados incrementales.
+     * @param out, Destino del informe.
+     */
+    public void writeReport(PrintStream out) {
+        BankAggregates aggregates = bankRepository.getAggregates();
+        out.println("\n--- Bank Report ---");
+        for (BankAccount.AccountType type : BankAccount.AccountType.values()) {
+            out.println(type + ": " + aggregates.getAccountCount(type) + " accounts" +
+                    ", Balance: " + Money.format(aggregates.getTotalBalance(type)) +
+                    ", Deposited: " + Money.format(aggregates.getTotalDeposited(type)) +
+                    ", Withdrawn: " + Money.format(aggregates.getTotalWithdrawn(type)));
+        }
+        out.println("Overdraft exposure (CORRIENTE): " + Money.format(aggregates.getOverdraftExposure()));
+        out.println("Accounts below zero: " + aggregates.getNegativeBalanceCount());
+    }
+
+    /* Comprueba los agregados incrementales recalculándolos con un recorrido completo en paralelo.
+     * Con transacciones en curso pueden aparecer diferencias pasajeras; en reposo deben coincidir.
+     * @return, Las diferencias encontradas; una lista vacía si los agregados son consistentes.
+     */
+    public List<String> checkAggregates() {
+        BankAggregates.Totals recomputed = BankAggregates.recompute(bankRepository.getAllClients());
+        return bankRepository.getAggregates().snapshot().differences(recomputed);
     }
 
     /* Inicia la interfaz de consola para interactuar con el sistema bancario.
@@ -165,6 +871,11 @@ public class BankService {
             System.out.println("6. Exit");
             System.out.println("\n=== Banking System ===");
             System.out.println("7. Show All Clients and Accounts");
+            System.out.println("8. Transfer");
+            System.out.println("9. Show Metrics");
+            System.out.println("10. Account Statement");
+            System.out.println("11. Show Report");
+            System.out.println("12. Check Report Consistency");
             System.out.print("\n Choose an option: ");
 
             int choice = scanner.nextInt();     // Leer la elección del usuario.
@@ -197,7 +908,7 @@ public class BankService {
                         System.out.print("Enter Account Number: ");
                         String accountNumber = scanner.nextLine();
                         System.out.print("Enter Deposit Amount: ");
-                        double amount = scanner.nextDouble();
+                        long amount = Money.parse(scanner.nextLine());
                         deposit(accountNumber, amount);                          // Realizar depósito.
                         System.out.println("Deposit successful!");
                     }
@@ -205,7 +916,7 @@ public class BankService {
                         System.out.print("Enter Account Number: ");
                         String accountNumber = scanner.nextLine();
                         System.out.print("Enter Withdrawal Amount: ");
-                        double amount = scanner.nextDouble();
+                        long amount = Money.parse(scanner.nextLine());
                         withdraw(accountNumber, amount);                        // Realizar retiro.
                         System.out.println("Withdrawal successful!");
                     }
@@ -213,15 +924,57 @@ public class BankService {
                     case 5 -> {
                         System.out.print("Enter Account Number: ");
                         String accountNumber = scanner.nextLine();
-                        double balance = checkBalance(accountNumber);           // Consultar saldo.
-                        System.out.println("Account Balance: " + balance);
+                        long balance = checkBalance(accountNumber);             // Consultar saldo.
+                        System.out.println("Account Balance: " + Money.format(balance));
                     }
 
                     case 6 -> {
                         System.out.println("Exiting system. Goodbye!");         // Salir del sistema.
                         return;
                     }
-                    case 7 -> showAllClientsAndAccounts();                  // Mostrar clientes y cuentas.
+                    case 7 -> {
+                        // Mostrar clientes y cuentas por páginas.
+                        System.out.println("\n--- Clients and Accounts ---");
+                        Iterator<Client> clients = clientCursor();
+                        while (writeClientsAndAccounts(System.out, clients, CONSOLE_PAGE_SIZE) == CONSOLE_PAGE_SIZE
+                                && clients.hasNext()) {
+                            System.out.print("-- Enter for more, q to stop: ");
+                            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                                break;
+                            }
+                        }
+                    }
+                    case 8 -> {
+                        System.out.print("Enter Source Account Number: ");
+                        String fromAccountNumber = scanner.nextLine();
+                        System.out.print("Enter Destination Account Number: ");
+                        String toAccountNumber = scanner.nextLine();
+                        System.out.print("Enter Transfer Amount: ");
+                        long amount = Money.parse(scanner.nextLine());
+                        transfer(fromAccountNumber, toAccountNumber, amount);   // Realizar transferencia.
+                        System.out.println("Transfer successful!");
+                    }
+                    case 9 -> System.out.print(metrics.snapshot().export() + bankRepository.exportMetrics()
+                            + idempotencyTable.exportMetrics());     // Mostrar métricas.
+                    case 10 -> {
+                        System.out.print("Enter Account Number: ");
+                        String accountNumber = scanner.nextLine();
+                        System.out.print("Enter Number of Movements: ");
+                        int count = Integer.parseInt(scanner.nextLine().trim());
+                        // Mostrar los últimos movimientos con el saldo resultante.
+                        for (TransactionHistory.Movement movement : getLastMovements(accountNumber, count)) {
+                            System.out.println(Instant.ofEpochMilli(movement.getTimestamp()) +
+                                    "  " + movement.getType() +
+                                    "  " + Money.format(movement.getAmount()) +
+                                    "  Balance: " + Money.format(movement.getBalanceAfter()));
+                        }
+                    }
+                    case 11 -> writeReport(System.out);                         // Mostrar totales.
+                    case 12 -> {
+                        // Recorre todas las cuentas: solo bajo petición, nunca al mostrar el informe.
+                        List<String> differences = checkAggregates();
+                        System.out.println("Consistency check: " + (differences.isEmpty() ? "OK" : differences));
+                    }
 
                     default -> System.out.println("Invalid option. Please try again.");
                 }
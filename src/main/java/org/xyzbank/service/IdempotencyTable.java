@@ -0,0 +1,276 @@
+package org.xyzbank.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabla de claves de idempotencia de las operaciones ya aplicadas, para que un reintento con la misma
+ * clave devuelva el resultado original en lugar de aplicar la operación otra vez.
+ * *
+ * Cada clave pertenece a un ámbito (por ejemplo, la cuenta): la misma clave en dos ámbitos distintos son
+ * dos entradas independientes, y el ámbito se compara completo con equals, no por su hash. Cada entrada
+ * guarda el ámbito, la clave, una huella exacta de la operación (para detectar una clave reutilizada en
+ * otra operación) y su resultado con el instante en que caduca, en arrays paralelos: unos 36 bytes por
+ * clave más el ámbito, que normalmente es una cadena ya compartida con la cuenta. La tabla se reparte en
+ * SEGMENTS segmentos con su propio bloqueo; en cada uno las entradas forman un anillo en orden de llegada
+ * y un índice de direccionamiento abierto (sondeo lineal) lleva de la clave a su posición en el anillo.
+ * *
+ * Como todas las entradas viven lo mismo, las caducadas están siempre al principio del anillo: cada alta
+ * retira antes las que ya caducaron, sin recorrer la tabla. Si el anillo se llena con entradas vigentes se
+ * retira la más antigua (queda contada en getEvictions()); la capacidad debe cubrir las operaciones con
+ * clave de todo el periodo de validez. Los arrays de cada segmento se reservan en su primer uso.
+ */
+public class IdempotencyTable {
+
+    // Resultados de claim() que no son un resultado guardado.
+    public static final int CLAIMED = -1;           // Clave nueva: el llamador debe aplicar y llamar a complete()
+    public static final int MISMATCH = -2;          // La clave ya se usó con otra operación
+    public static final int IN_PROGRESS = -3;       // La misma operación se está aplicando todavía
+
+    public static final int DEFAULT_CAPACITY = 1_000_000;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int RESULT_BITS = 8;       // Resultado en los bits bajos de la entrada, caducidad en el resto
+    private static final int PENDING = (1 << RESULT_BITS) - 1;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * '@param capacity Número máximo de claves recordadas.
+     * '@param ttlMillis Tiempo durante el que se recuerda cada clave, en milisegundos.
+     */
+    public IdempotencyTable(int capacity, long ttlMillis) {
+        if (capacity <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Capacity and TTL must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+        int segmentCapacity = (capacity + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Reserva una clave para una operación o, si ya existe, devuelve lo que se sabe de ella.
+     * '@param scope Ámbito de la clave, por ejemplo el número de cuenta.
+     * '@param key Clave de idempotencia.
+     * '@param fingerprint Huella de la operación.
+     * '@return CLAIMED si la clave es nueva (queda pendiente hasta complete() o release()), MISMATCH si se
+     * usó con otra huella, IN_PROGRESS si la misma operación sigue pendiente, o el resultado guardado.
+     */
+    public int claim(String scope, long key, long fingerprint) {
+        long hash = hash(scope, key);
+        return segmentFor(hash).claim(scope, key, hash, fingerprint, System.currentTimeMillis());
+    }
+
+    /**
+     * Guarda el resultado de una operación reservada con claim(). A partir de aquí la clave ya no se
+     * libera: la operación cuenta como hecha aunque el llamador falle después.
+     * '@param result Resultado, entre 0 y 254.
+     */
+    public void complete(String scope, long key, int result) {
+        long hash = hash(scope, key);
+        segmentFor(hash).complete(scope, key, hash, result);
+    }
+
+    /**
+     * Olvida una clave reservada cuya operación falló antes de aplicarse, para que el reintento la
+     * aplique. No hace nada si la clave ya tiene resultado (complete()) o no existe.
+     */
+    public void release(String scope, long key) {
+        long hash = hash(scope, key);
+        segmentFor(hash).release(scope, key, hash);
+    }
+
+    /**
+     * '@return Número de claves recordadas, incluidas las caducadas o liberadas que aún no se han retirado.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * '@return Peticiones repetidas a las que se devolvió el resultado original.
+     */
+    public long getReplays() {
+        return replays.sum();
+    }
+
+    /**
+     * '@return Claves retiradas antes de caducar por falta de capacidad.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * '@return Métricas de la tabla en el formato de MetricsSnapshot.export().
+     */
+    public String exportMetrics() {
+        return "bank_dedup_entries " + size() + '\n'
+                + "bank_dedup_replays_total " + replays.sum() + '\n'
+                + "bank_dedup_evictions_total " + evictions.sum() + '\n';
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    // Finalizador de MurmurHash3 sobre clave y ámbito: las claves pueden ser secuenciales.
+    private static long hash(String scope, long key) {
+        key ^= scope.hashCode() * 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /* Un segmento: anillo de entradas en orden de llegada (scopes, keys, fingerprints, entries) y un índice
+     * con la posición en el anillo + 1 de cada clave (0 = hueco). Todo se accede con el segmento bloqueado.
+     * Una entrada liberada o retirada deja su ámbito a null.
+     */
+    private final class Segment {
+        private final int capacity;
+        private String[] scopes;
+        private long[] keys;
+        private long[] fingerprints;
+        private long[] entries;             // (caducidad en milisegundos << RESULT_BITS) | resultado
+        private int[] slots;
+        private int mask;
+        private int head;                   // Entrada más antigua
+        private int size;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized int claim(String scope, long key, long hash, long fingerprint, long now) {
+            if (keys == null) {
+                allocate();
+            }
+            // Retirar las entradas caducadas, que son las primeras del anillo.
+            while (size > 0 && entries[head] >>> RESULT_BITS <= now) {
+                removeHead();
+            }
+            int slot = find(scope, key, hash);
+            if (slot >= 0) {
+                int entry = slots[slot] - 1;
+                if (fingerprints[entry] != fingerprint) {
+                    return MISMATCH;
+                }
+                int result = (int) (entries[entry] & PENDING);
+                if (result == PENDING) {
+                    return IN_PROGRESS;
+                }
+                replays.increment();
+                return result;
+            }
+            if (size == capacity) {
+                removeHead();
+                evictions.increment();
+                slot = find(scope, key, hash);      // Retirar desplaza huecos del índice
+            }
+            int entry = head + size < capacity ? head + size : head + size - capacity;
+            scopes[entry] = scope;
+            keys[entry] = key;
+            fingerprints[entry] = fingerprint;
+            entries[entry] = (now + ttlMillis) << RESULT_BITS | PENDING;
+            slots[-slot - 1] = entry + 1;
+            size++;
+            return CLAIMED;
+        }
+
+        synchronized void complete(String scope, long key, long hash, int result) {
+            int slot = keys == null ? -1 : find(scope, key, hash);
+            if (slot >= 0) {
+                int entry = slots[slot] - 1;
+                entries[entry] = entries[entry] & ~(long) PENDING | result;
+            }
+        }
+
+        synchronized void release(String scope, long key, long hash) {
+            int slot = keys == null ? -1 : find(scope, key, hash);
+            if (slot >= 0) {
+                int entry = slots[slot] - 1;
+                if ((entries[entry] & PENDING) == PENDING) {
+                    // La entrada sigue en el anillo, sin índice, hasta que llegue al principio.
+                    entries[entry] = 0;
+                    scopes[entry] = null;
+                    removeSlot(slot);
+                }
+            }
+        }
+
+        private void allocate() {
+            scopes = new String[capacity];
+            keys = new long[capacity];
+            fingerprints = new long[capacity];
+            entries = new long[capacity];
+            // Índice con al menos el doble de huecos que entradas, para sondeos cortos.
+            int slotCount = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            slots = new int[slotCount];
+            mask = slotCount - 1;
+        }
+
+        /* Devuelve el hueco del índice con la clave o, si no está, -(hueco libre donde iría) - 1. */
+        private int find(String scope, long key, long hash) {
+            int slot = (int) hash & mask;
+            while (slots[slot] != 0) {
+                int entry = slots[slot] - 1;
+                if (keys[entry] == key && scope.equals(scopes[entry])) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -slot - 1;
+        }
+
+        private void removeHead() {
+            if (scopes[head] != null) {
+                // Buscar en el índice la posición del anillo, que identifica la entrada sin comparar ámbitos.
+                int slot = (int) hash(scopes[head], keys[head]) & mask;
+                while (slots[slot] != 0) {
+                    if (slots[slot] == head + 1) {
+                        removeSlot(slot);
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                scopes[head] = null;
+            }
+            head = head + 1 == capacity ? 0 : head + 1;
+            size--;
+        }
+
+        /* Vacía un hueco del índice desplazando hacia atrás los que lo necesitan para seguir siendo
+         * alcanzables desde su hueco ideal, sin dejar marcas de borrado.
+         */
+        private void removeSlot(int hole) {
+            int next = hole;
+            while (true) {
+                next = (next + 1) & mask;
+                if (slots[next] == 0) {
+                    break;
+                }
+                int entry = slots[next] - 1;
+                int ideal = (int) hash(scopes[entry], keys[entry]) & mask;
+                // Se mueve si su hueco ideal no está en el tramo circular (hole, next].
+                boolean reachable = hole <= next ? hole < ideal && ideal <= next : hole < ideal || ideal <= next;
+                if (!reachable) {
+                    slots[hole] = slots[next];
+                    hole = next;
+                }
+            }
+            slots[hole] = 0;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.xyzbank.shard;
+
+import org.xyzbank.model.BankAccount;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Partición de cuentas con un único hilo escritor. Solo el hilo de la partición lee y modifica su mapa
+ * de cuentas y sus saldos; el resto de hilos le envían tareas.
+ * *
+ * Hay dos colas: la de peticiones externas, acotada, cuyo llenado frena a quien envía; y la de mensajes
+ * entre particiones (la segunda fase de una transferencia), sin límite para que dos particiones que se
+ * envían mensajes entre sí nunca se bloqueen mutuamente. Su tamaño está acotado en la práctica por las
+ * transferencias en curso, que a su vez están acotadas por las colas externas. Los mensajes internos se
+ * atienden primero, para terminar antes las transferencias empezadas.
+ * *
+ * Cada tarea lleva el resultado que debe completar: si la tarea falla, o la partición se detiene antes de
+ * ejecutarla, el resultado se completa con la excepción, de modo que ninguna llamada queda sin respuesta.
+ */
+class AccountShard {
+
+    private static final int MAX_DRAIN = 256;
+    private static final long SUBMIT_RETRY_MILLIS = 10;
+
+    private final Map<String, BankAccount> accounts = new HashMap<>();      // Solo la usa el hilo de la partición
+    private final BlockingQueue<Task> requests;
+    private final Queue<Task> messages = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+
+    /**
+     * '@param index Número de la partición, para el nombre de su hilo.
+     * '@param queueCapacity Capacidad de la cola de peticiones externas.
+     */
+    AccountShard(int index, int queueCapacity) {
+        this.requests = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::loop, "account-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    /* Solo antes de start(), o desde el hilo de la partición. */
+    void put(BankAccount account) {
+        accounts.put(account.getAccountNumber(), account);
+    }
+
+    /* Solo desde el hilo de la partición. */
+    BankAccount get(String accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Encola una petición externa, esperando si la cola está llena. Si la partición está detenida, o se
+     * detiene antes de ejecutar la tarea, el resultado se completa con IllegalStateException.
+     */
+    void submit(Runnable task, CompletableFuture<?> result) {
+        Task request = new Task(task, result);
+        try {
+            // Una espera sin límite no se enteraría de stop(): se reintenta comprobando el estado.
+            while (!requests.offer(request, SUBMIT_RETRY_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    request.reject();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new IllegalStateException("Interrupted while submitting to " + thread.getName(), e));
+            return;
+        }
+        afterEnqueue(requests, request);
+    }
+
+    /**
+     * Encola un mensaje de otra partición; nunca espera.
+     */
+    void send(Runnable task, CompletableFuture<?> result) {
+        Task message = new Task(task, result);
+        messages.add(message);
+        afterEnqueue(messages, message);
+    }
+
+    /**
+     * Detiene el hilo tras ejecutar las tareas ya encoladas. Las que lleguen después se rechazan.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Tareas encoladas entre la última vuelta del hilo y su salida.
+        rejectAll(messages);
+        rejectAll(requests);
+    }
+
+    /* Si la partición se detuvo mientras se encolaba, la tarea puede no ejecutarse nunca: quien consiga
+     * sacarla de la cola (este hilo o stop()) la rechaza. Si ya no está, la ejecutó o rechazó otro.
+     */
+    private void afterEnqueue(Queue<Task> queue, Task task) {
+        if (running) {
+            wake();
+        } else if (queue.remove(task)) {
+            task.reject();
+        }
+    }
+
+    private void rejectAll(Queue<Task> queue) {
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.reject();
+        }
+    }
+
+    private void wake() {
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void loop() {
+        List<Task> batch = new ArrayList<>(MAX_DRAIN);
+        while (true) {
+            Task message;
+            boolean worked = false;
+            while ((message = messages.poll()) != null) {
+                run(message);
+                worked = true;
+            }
+            if (requests.drainTo(batch, MAX_DRAIN) > 0) {
+                for (Task task : batch) {
+                    run(task);
+                }
+                batch.clear();
+                worked = true;
+            }
+            if (worked) {
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            // Sin trabajo: se anuncia que se va a dormir y se vuelve a mirar antes de hacerlo, para no
+            // perder una tarea encolada justo entre la comprobación y la espera.
+            sleeping = true;
+            if (messages.isEmpty() && requests.isEmpty() && running) {
+                LockSupport.park(this);
+            }
+            sleeping = false;
+        }
+    }
+
+    /* Las tareas completan su propio resultado; un error inesperado lo completa con la excepción y no
+     * detiene la partición.
+     */
+    private void run(Task task) {
+        try {
+            task.action.run();
+        } catch (RuntimeException e) {
+            task.result.completeExceptionally(e);
+        }
+    }
+
+    /* Tarea encolada y el resultado que completa. */
+    private final class Task {
+        private final Runnable action;
+        private final CompletableFuture<?> result;
+
+        Task(Runnable action, CompletableFuture<?> result) {
+            this.action = action;
+            this.result = result;
+        }
+
+        void reject() {
+            result.completeExceptionally(new IllegalStateException(thread.getName() + " is stopped"));
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.xyzbank.shard;
+
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.model.MovementType;
+import org.xyzbank.model.TransactionStatus;
+import org.xyzbank.repository.BankRepository;
+import org.xyzbank.service.BankService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Modo de operación por particiones: las cuentas se reparten por hash de su número entre N particiones,
+ * y cada partición tiene un único hilo que aplica todos sus depósitos y retiros, sin competir con
+ * otros hilos por la cuenta. Las llamadas se enrutan a la partición dueña por una cola acotada y
+ * devuelven un CompletableFuture que se completa en el hilo de la partición (los callbacks que se
+ * encadenen no deben bloquear).
+ * *
+ * Los clientes se siguen registrando con el BankService del que se crea, cuyo repositorio sigue siendo el
+ * directorio de clientes y cuentas. Una cuenta abierta con ese servicio después de crear este modo se
+ * incorpora a su partición la primera vez que se opera con ella aquí. Es un modo en memoria: no escribe en el diario ni en la auditoría, así
+ * que no se puede crear sobre un servicio con diario (lo recuperado no coincidiría con lo confirmado).
+ * Cada movimiento se aplica con la cuenta bloqueada, igual que en BankService, para que un movimiento
+ * hecho a la vez por el servicio no pierda actualizaciones; sin esa competencia el bloqueo no cuesta.
+ * *
+ * Las transferencias entre cuentas de la misma partición se aplican en un solo paso, con las dos cuentas
+ * bloqueadas y ambos movimientos validados antes de cambiar ninguna. Entre particiones
+ * siguen dos fases: la partición de origen retira el monto (fase de reserva; si se rechaza, la
+ * transferencia termina sin cambios) y envía un mensaje a la de destino, que lo deposita (fase de
+ * confirmación). Si la confirmación falla, un mensaje de compensación devuelve el monto al origen.
+ * Entre las dos fases el dinero no está en ninguna de las dos cuentas, pero nunca se pierde ni se duplica.
+ * Si la compensación también se rechaza, el monto queda pendiente de devolver (getUnrefundedAmount())
+ * y la transferencia falla con IllegalStateException en lugar de darse por terminada.
+ */
+public class ShardedBankService implements AutoCloseable {
+
+    private final BankRepository bankRepository;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final AccountShard[] shards;
+    private final AtomicInteger pendingTransfers = new AtomicInteger();
+    private final AtomicLong unrefundedAmount = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Reparte las cuentas ya existentes en el repositorio del servicio y arranca un hilo por partición.
+     * '@param bankService Servicio con el que se registran los clientes; debe trabajar sin diario.
+     * '@param shardCount Número de particiones (normalmente, el número de núcleos).
+     * '@param queueCapacity Capacidad de la cola de peticiones de cada partición.
+     * '@throws IllegalStateException si el servicio escribe en un diario.
+     */
+    public ShardedBankService(BankService bankService, int shardCount, int queueCapacity) {
+        if (shardCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Shard count and queue capacity must be positive");
+        }
+        if (bankService.isJournaled()) {
+            throw new IllegalStateException("Sharded mode does not write to the journal and cannot run alongside one");
+        }
+        this.bankRepository = bankService.getRepository();
+        this.accountNumberGenerator = bankService.getAccountNumberGenerator();
+        this.shards = new AccountShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new AccountShard(i, queueCapacity);
+        }
+        for (Client client : bankRepository.getAllClients()) {
+            synchronized (client) {
+                for (BankAccount account : client.getAccounts()) {
+                    shardOf(account.getAccountNumber()).put(account);
+                }
+            }
+        }
+        for (AccountShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * '@return Suma de los montos reservados en transferencias cuya compensación se rechazó, en céntimos.
+     */
+    public long getUnrefundedAmount() {
+        return unrefundedAmount.get();
+    }
+
+    /**
+     * Abre una cuenta para un cliente existente, con el mismo esquema de numeración que el servicio; la
+     * cuenta queda en la partición que le corresponde.
+     * '@param dni DNI del cliente.
+     * '@param accountType Tipo de cuenta.
+     * '@return El número de la cuenta abierta.
+     */
+    public CompletableFuture<String> openBankAccount(String dni, BankAccount.AccountType accountType) {
+        Client client = bankRepository.getClientByDni(dni);
+        if (client == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Client not found with DNI: " + dni));
+        }
+        String accountNumber = accountNumberGenerator.next();
+        AccountShard shard = shardOf(accountNumber);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        submit(shard, result, () -> {
+            BankAccount account = new BankAccount(accountNumber, accountType);
+            bankRepository.addAccount(client, account);
+            shard.put(account);
+            result.complete(accountNumber);
+        });
+        return result;
+    }
+
+    /**
+     * Deposita en una cuenta.
+     * '@param accountNumber Número de la cuenta.
+     * '@param amount Monto en céntimos.
+     * '@return El resultado: APPLIED o el motivo del rechazo.
+     */
+    public CompletableFuture<TransactionStatus> deposit(String accountNumber, long amount) {
+        AccountShard shard = shardOf(accountNumber);
+        CompletableFuture<TransactionStatus> result = new CompletableFuture<>();
+        submit(shard, result, () -> result.complete(apply(shard, accountNumber, MovementType.DEPOSIT, amount)));
+        return result;
+    }
+
+    /**
+     * Retira de una cuenta, con las mismas reglas que BankService.withdraw.
+     * '@param accountNumber Número de la cuenta.
+     * '@param amount Monto en céntimos.
+     * '@return El resultado: APPLIED o el motivo del rechazo.
+     */
+    public CompletableFuture<TransactionStatus> withdraw(String accountNumber, long amount) {
+        AccountShard shard = shardOf(accountNumber);
+        CompletableFuture<TransactionStatus> result = new CompletableFuture<>();
+        submit(shard, result, () -> result.complete(apply(shard, accountNumber, MovementType.WITHDRAW, amount)));
+        return result;
+    }
+
+    /**
+     * Consulta el saldo de una cuenta.
+     * '@param accountNumber Número de la cuenta.
+     * '@return El saldo en céntimos; falla con IllegalArgumentException si la cuenta no existe.
+     */
+    public CompletableFuture<Long> checkBalance(String accountNumber) {
+        AccountShard shard = shardOf(accountNumber);
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        submit(shard, result, () -> {
+            BankAccount account = lookup(shard, accountNumber);
+            if (account == null) {
+                result.completeExceptionally(new IllegalArgumentException("Account not found: " + accountNumber));
+            } else {
+                result.complete(account.getBalance());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Transfiere entre dos cuentas; en una sola fase si comparten partición, en dos si no.
+     * '@param fromAccountNumber Cuenta de origen.
+     * '@param toAccountNumber Cuenta de destino.
+     * '@param amount Monto en céntimos.
+     * '@return El resultado: APPLIED o el motivo del rechazo (del retiro o del depósito, o ACCOUNT_NOT_FOUND).
+     */
+    public CompletableFuture<TransactionStatus> transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot transfer to the same account"));
+        }
+        AccountShard source = shardOf(fromAccountNumber);
+        AccountShard target = shardOf(toAccountNumber);
+        CompletableFuture<TransactionStatus> result = new CompletableFuture<>();
+        if (source == target) {
+            submit(source, result, () -> result.complete(transferLocal(source, fromAccountNumber, toAccountNumber, amount)));
+            return result;
+        }
+        // El destino se comprueba antes de reservar, para no compensar en el caso habitual de error.
+        if (bankRepository.getAccountByNumber(toAccountNumber) == null) {
+            return CompletableFuture.completedFuture(TransactionStatus.ACCOUNT_NOT_FOUND);
+        }
+        pendingTransfers.incrementAndGet();
+        result.whenComplete((status, error) -> pendingTransfers.decrementAndGet());
+        submit(source, result, () -> {
+            // Fase 1, en la partición de origen: reservar el monto retirándolo.
+            TransactionStatus reserved = apply(source, fromAccountNumber, MovementType.TRANSFER_OUT, amount);
+            if (reserved != TransactionStatus.APPLIED) {
+                result.complete(reserved);
+                return;
+            }
+            target.send(() -> {
+                // Fase 2, en la partición de destino: confirmar depositando.
+                TransactionStatus confirmed = apply(target, toAccountNumber, MovementType.TRANSFER_IN, amount);
+                if (confirmed == TransactionStatus.APPLIED) {
+                    result.complete(confirmed);
+                    return;
+                }
+                source.send(() -> {
+                    // Compensación, de vuelta en el origen: devolver lo reservado.
+                    TransactionStatus refunded = apply(source, fromAccountNumber, MovementType.TRANSFER_IN, amount);
+                    if (refunded == TransactionStatus.APPLIED) {
+                        result.complete(confirmed);
+                        return;
+                    }
+                    unrefundedAmount.addAndGet(amount);
+                    String error = "Transfer of " + amount + " from " + fromAccountNumber + " to " + toAccountNumber
+                            + " was rejected (" + confirmed + ") and could not be refunded (" + refunded + ")";
+                    System.err.println(error);
+                    result.completeExceptionally(new IllegalStateException(error));
+                }, result);
+            }, result);
+        });
+        return result;
+    }
+
+    /**
+     * Deja de aceptar peticiones, espera a que terminen las transferencias en curso y detiene las particiones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (pendingTransfers.get() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+        for (AccountShard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    private AccountShard shardOf(String accountNumber) {
+        return shards[Math.floorMod(accountNumber.hashCode(), shards.length)];
+    }
+
+    /* La partición rechaza la tarea si se detiene antes de ejecutarla; comprobar closed aquí solo evita
+     * encolar lo que ya se sabe que se rechazará.
+     */
+    private void submit(AccountShard shard, CompletableFuture<?> result, Runnable task) {
+        if (closed) {
+            result.completeExceptionally(new IllegalStateException("Sharded service is closed"));
+            return;
+        }
+        shard.submit(task, result);
+    }
+
+    /* Cuenta de la partición, desde su hilo. Si no la tiene, la busca en el repositorio: puede haberse abierto
+     * con BankService después de repartir las cuentas, y desde entonces pertenece a esta partición.
+     */
+    private BankAccount lookup(AccountShard shard, String accountNumber) {
+        BankAccount account = shard.get(accountNumber);
+        if (account == null) {
+            account = bankRepository.getAccountByNumber(accountNumber);
+            if (account != null) {
+                shard.put(account);
+            }
+        }
+        return account;
+    }
+
+    /* Aplica un movimiento en el hilo de la partición y lo anota en el historial de la cuenta y en los totales,
+     * con la cuenta bloqueada como en BankService.
+     */
+    private TransactionStatus apply(AccountShard shard, String accountNumber, MovementType type, long amount) {
+        BankAccount account = lookup(shard, accountNumber);
+        if (account == null) {
+            return TransactionStatus.ACCOUNT_NOT_FOUND;
+        }
+        synchronized (account) {
+            TransactionStatus status = type == MovementType.DEPOSIT || type == MovementType.TRANSFER_IN
+                    ? account.tryDeposit(amount)
+                    : account.tryWithdraw(amount);
+            if (status == TransactionStatus.APPLIED) {
+                long balance = account.getBalance();
+                account.recordVolume(type, amount);
+                if (bankRepository.keepsHistory()) {
+                    account.getHistory().record(System.currentTimeMillis(), type, amount, balance);
+                }
+                bankRepository.getAggregates().onMovement(account.getAccountType(), type, amount, balance);
+                bankRepository.onBalanceChanged(account);
+            }
+            return status;
+        }
+    }
+
+    /* Transferencia entre dos cuentas de la misma partición. Como en BankService.transfer, ambas cuentas se
+     * bloquean en orden de número (BankService puede mover las mismas cuentas a la vez) y el destino y el
+     * origen se validan antes de cambiar ninguna, para que un depósito rechazado no se lleve lo retirado.
+     */
+    private TransactionStatus transferLocal(AccountShard shard, String fromAccountNumber, String toAccountNumber,
+                                                   long amount) {
+        BankAccount from = lookup(shard, fromAccountNumber);
+        BankAccount to = lookup(shard, toAccountNumber);
+        if (from == null || to == null) {
+            return TransactionStatus.ACCOUNT_NOT_FOUND;
+        }
+        BankAccount first = fromAccountNumber.compareTo(toAccountNumber) < 0 ? from : to;
+        BankAccount second = first == from ? to : from;
+        synchronized (first) {
+            synchronized (second) {
+                TransactionStatus status = BankAccount.checkDeposit(to.getBalance(), amount);
+                if (status == TransactionStatus.APPLIED) {
+                    status = BankAccount.checkWithdrawal(from.getAccountType(), from.getBalance(), amount);
+                }
+                if (status == TransactionStatus.APPLIED) {
+                    apply(shard, fromAccountNumber, MovementType.TRANSFER_OUT, amount);
+                    apply(shard, toAccountNumber, MovementType.TRANSFER_IN, amount);
+                }
+                return status;
+            }
+        }
+    }
+}
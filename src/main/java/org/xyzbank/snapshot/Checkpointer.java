@@ -0,0 +1,26 @@
+package org.xyzbank.snapshot;
+
+/**
+ * Guarda periódicamente el estado del repositorio y compacta el diario, de modo que el arranque solo
+ * reproduce la cola del diario posterior al último estado guardado.
+ */
+public interface Checkpointer extends AutoCloseable {
+
+    /**
+     * Prepara el repositorio con el último estado guardado, si lo hay.
+     * '@return La posición del diario a partir de la cual hay que reproducirlo.
+     */
+    long load();
+
+    /**
+     * Programa el guardado periódico en un hilo en segundo plano.
+     * '@param periodMillis Intervalo entre guardados, en milisegundos.
+     */
+    void start(long periodMillis);
+
+    /**
+     * Detiene el guardado periódico, esperando al que esté en curso.
+     */
+    @Override
+    void close();
+}
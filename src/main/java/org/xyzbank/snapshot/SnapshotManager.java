@@ -0,0 +1,344 @@
+package org.xyzbank.snapshot;
+
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.model.TransactionHistory;
+import org.xyzbank.repository.BankRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gestiona las instantáneas (checkpoints) del repositorio en un fichero compacto mapeado en memoria.
+ * Cada instantánea guarda los clientes (nombre, apellido, DNI, correo), sus cuentas (número, tipo, saldo,
+ * posición del último movimiento, volúmenes depositado y retirado, bloques del historial) y la posición del diario que cubre. Tras guardarla, el diario se
+ * compacta para descartar los registros ya cubiertos, de modo que el arranque solo carga la instantánea
+ * y reproduce la cola del diario.
+ * *
+ * La instantánea se toma sin detener las transacciones: bajo el bloqueo de cada cuenta solo se leen su saldo,
+ * sus volúmenes, la posición de su último movimiento y el número de movimientos de su historial; los bloques del historial
+ * hasta ese número se escriben después, sin el bloqueo, porque no cambian. La recuperación omite los
+ * registros que la cuenta ya refleja.
+ * *
+ * Formato: [int magic][int versión][long posición del diario], y por cada cliente un byte 1 seguido de
+ * sus datos y cuentas; un byte 0 marca el final. El historial de cada cuenta se guarda como sus bloques
+ * codificados, cada uno precedido de un byte 1 y terminados por un byte 0. Las instantáneas de la
+ * versión 1, sin historial, se siguen pudiendo cargar; las de la versión 2, sin volúmenes, los
+ * reconstruyen a partir del historial.
+ */
+public class SnapshotManager implements Checkpointer {
+
+    private static final int MAGIC = 0x58595a53;        // "XYZS"
+    private static final int VERSION = 3;
+    private static final long REGION_SIZE = 64L * 1024 * 1024;     // Tamaño de cada región mapeada
+    private static final int MAX_ENTRY_SIZE = 256 * 1024;           // Máximo de un cliente o una cuenta
+
+    private final Path snapshotPath;
+    private final BankRepository bankRepository;
+    private final TransactionJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * '@param snapshotPath Ruta del fichero de instantánea.
+     * '@param bankRepository Repositorio a guardar y reconstruir.
+     * '@param journal Diario a compactar tras cada instantánea.
+     */
+    public SnapshotManager(Path snapshotPath, BankRepository bankRepository, TransactionJournal journal) {
+        this.snapshotPath = snapshotPath;
+        this.bankRepository = bankRepository;
+        this.journal = journal;
+    }
+
+    /**
+     * Carga la última instantánea en el repositorio, si existe.
+     * '@return La posición del diario cubierta por la instantánea, o 0 si no hay instantánea.
+     */
+    @Override
+    public long load() {
+        if (!Files.exists(snapshotPath)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            int version = in.getInt() == MAGIC ? in.getInt() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Not a bank snapshot file: " + snapshotPath);
+            }
+            long journalPosition = in.getLong();
+            while (in.get() == 1) {
+                Client client = new Client(in.getString(), in.getString(), in.getString(), in.getString());
+                bankRepository.addClient(client);
+                int accountCount = in.getInt();
+                for (int i = 0; i < accountCount; i++) {
+                    String accountNumber = in.getString();
+                    BankAccount account = new BankAccount(accountNumber, BankAccount.AccountType.values()[in.get()]);
+                    account.setBalance(in.getLong());
+                    account.setJournalPosition(in.getLong());
+                    if (version >= 3) {
+                        account.setVolumes(in.getLong(), in.getLong());
+                    }
+                    while (version >= 2 && in.get() == 1) {
+                        account.getHistory().appendChunk(in.getLong(), in.getLong(), in.getInt(), in.getBytes());
+                    }
+                    if (version == 2) {
+                        rebuildVolumes(account);
+                    }
+                    bankRepository.addAccount(client, account);
+                }
+            }
+            return journalPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot " + snapshotPath, e);
+        }
+    }
+
+    /**
+     * Toma una instantánea del repositorio sin detener las transacciones y compacta el diario.
+     * Se escribe primero en un fichero temporal que luego sustituye al anterior de forma atómica.
+     * '@return La posición del diario cubierta por la instantánea.
+     */
+    public synchronized long takeSnapshot() {
+        // Todo registro que termina antes de esta posición ya está aplicado en memoria: la instantánea lo
+        // contiene y compactarlo no pierde nada. Lo escrito después puede estar o no; la recuperación lo omite
+        // si ya está.
+        long journalPosition = journal.getAppliedPosition();
+        Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedWriter out = new MappedWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(journalPosition);
+            for (Client client : bankRepository.getAllClients()) {
+                List<BankAccount> accounts;
+                synchronized (client) {
+                    accounts = new ArrayList<>(client.getAccounts());
+                }
+                out.put((byte) 1);
+                out.putString(client.getFirstName());
+                out.putString(client.getLastName());
+                out.putString(client.getDni());
+                out.putString(client.getEmail());
+                out.putInt(accounts.size());
+                for (BankAccount account : accounts) {
+                    out.putString(account.getAccountNumber());
+                    out.put((byte) account.getAccountType().ordinal());
+                    // Saldo, posición y tamaño del historial se leen juntos bajo el bloqueo de la cuenta.
+                    long balance;
+                    long position;
+                    long deposited;
+                    long withdrawn;
+                    long movements;
+                    synchronized (account) {
+                        balance = account.getBalance();
+                        position = account.getJournalPosition();
+                        deposited = account.getTotalDeposited();
+                        withdrawn = account.getTotalWithdrawn();
+                        movements = account.getHistory().size();
+                    }
+                    out.putLong(balance);
+                    out.putLong(position);
+                    out.putLong(deposited);
+                    out.putLong(withdrawn);
+                    account.getHistory().forEachChunk(movements, (firstTime, opening, entries, data, length) -> {
+                        try {
+                            out.put((byte) 1);
+                            out.putLong(firstTime);
+                            out.putLong(opening);
+                            out.putInt(entries);
+                            out.putBytes(data, length);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Cannot write snapshot " + snapshotPath, e);
+                        }
+                    });
+                    out.put((byte) 0);
+                }
+            }
+            out.put((byte) 0);
+            out.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + snapshotPath, e);
+        }
+        try {
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace snapshot " + snapshotPath, e);
+        }
+        // Solo cuando la instantánea está en disco se descarta la parte del diario que cubre.
+        journal.compact(journalPosition);
+        return journalPosition;
+    }
+
+    /* Calcula los volúmenes de una cuenta de una instantánea de la versión 2 sumando su historial completo.
+     * Solo se hace una vez, al cargar una instantánea anterior a los volúmenes.
+     */
+    private static void rebuildVolumes(BankAccount account) {
+        for (TransactionHistory.Movement movement : account.getHistory().last(Integer.MAX_VALUE)) {
+            account.recordVolume(movement.getType(), movement.getAmount());
+        }
+    }
+
+    /**
+     * Programa instantáneas periódicas en un hilo en segundo plano.
+     * '@param periodMillis Intervalo entre instantáneas, en milisegundos.
+     */
+    @Override
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (RuntimeException e) {
+                // Un fallo puntual no debe cancelar las siguientes instantáneas.
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene las instantáneas periódicas, esperando a que termine la que esté en curso.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /* Escritor secuencial sobre el fichero mapeado por regiones: cuando una región se agota, se mapea la
+     * siguiente a partir de la posición actual.
+     */
+    private static class MappedWriter {
+        private final FileChannel channel;
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        MappedWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+        }
+
+        void put(byte value) throws IOException {
+            ensure(Byte.BYTES).put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putBytes(bytes, bytes.length);
+        }
+
+        void putBytes(byte[] bytes, int length) throws IOException {
+            if (length > MAX_ENTRY_SIZE) {
+                throw new IllegalArgumentException("Value too long for snapshot: " + length + " bytes");
+            }
+            ensure(Integer.BYTES + length).putInt(length).put(bytes, 0, length);
+        }
+
+        /* Fuerza la región a disco y recorta el fichero al tamaño escrito. */
+        void finish() throws IOException {
+            long size = regionStart + region.position();
+            region.force();
+            region = null;
+            channel.truncate(size);
+            channel.force(true);
+        }
+
+        private MappedByteBuffer ensure(int bytes) throws IOException {
+            if (region.remaining() < bytes) {
+                region.force();
+                regionStart += region.position();
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+            }
+            return region;
+        }
+    }
+
+    /* Lector secuencial sobre el fichero mapeado por regiones de solo lectura. */
+    private static class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, REGION_SIZE));
+        }
+
+        byte get() throws IOException {
+            return ensure(Byte.BYTES).get();
+        }
+
+        int getInt() throws IOException {
+            return ensure(Integer.BYTES).getInt();
+        }
+
+        long getLong() throws IOException {
+            return ensure(Long.BYTES).getLong();
+        }
+
+        String getString() throws IOException {
+            return new String(getBytes(), StandardCharsets.UTF_8);
+        }
+
+        byte[] getBytes() throws IOException {
+            int length = getInt();
+            if (length < 0 || length > MAX_ENTRY_SIZE) {
+                throw new IOException("Corrupt snapshot value length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            ensure(length).get(bytes);
+            return bytes;
+        }
+
+        private MappedByteBuffer ensure(int bytes) throws IOException {
+            if (region.remaining() < bytes) {
+                regionStart += region.position();
+                if (regionStart + bytes > size) {
+                    throw new IOException("Truncated snapshot file");
+                }
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(size - regionStart, REGION_SIZE));
+            }
+            return region;
+        }
+    }
+}
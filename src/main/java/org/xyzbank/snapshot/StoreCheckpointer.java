@@ -0,0 +1,88 @@
+package org.xyzbank.snapshot;
+
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.repository.CachedBankRepository;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints de un CachedBankRepository: el libro ya está en su almacén, así que en lugar de copiarlo a
+ * una instantánea basta con escribir los saldos pendientes, sincronizar el almacén y anotar en él la
+ * posición del diario que refleja. Después, como con las instantáneas, el diario se compacta hasta esa
+ * posición.
+ */
+public class StoreCheckpointer implements Checkpointer {
+
+    private final CachedBankRepository bankRepository;
+    private final TransactionJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * '@param bankRepository Repositorio con su almacén.
+     * '@param journal Diario a compactar tras cada checkpoint.
+     */
+    public StoreCheckpointer(CachedBankRepository bankRepository, TransactionJournal journal) {
+        this.bankRepository = bankRepository;
+        this.journal = journal;
+    }
+
+    /**
+     * El almacén ya está abierto con el repositorio; solo se lee la posición de su último checkpoint.
+     */
+    @Override
+    public long load() {
+        return bankRepository.getCheckpoint();
+    }
+
+    /**
+     * Guarda lo pendiente en el almacén y compacta el diario.
+     * '@return La posición del diario cubierta por el checkpoint.
+     */
+    public synchronized long takeCheckpoint() {
+        // Todo registro que termina en esta posición o antes ya está aplicado en las cuentas; el flush del
+        // checkpoint lo escribe antes de anotarla y de compactar.
+        long journalPosition = journal.getAppliedPosition();
+        bankRepository.checkpoint(journalPosition);
+        journal.compact(journalPosition);
+        return journalPosition;
+    }
+
+    @Override
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Checkpoints already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeCheckpoint();
+            } catch (RuntimeException e) {
+                // Un fallo puntual no debe cancelar los siguientes checkpoints.
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.xyzbank.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xyzbank.model.BankAccount;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compactación del diario con escrituras concurrentes: los registros anotados durante la copia no se
+ * pierden y las posiciones lógicas no cambian. La posición aplicada espera a las operaciones a medias.
+ */
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactionKeepsRecordsWrittenDuringCopy() throws Exception {
+        Path path = directory.resolve("bank.journal");
+        List<Long> positions = new ArrayList<>();
+        long compactedTo = 0;
+        try (TransactionJournal journal = new TransactionJournal(path, SyncPolicy.INTERVAL, 10)) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                for (long amount = 1; running.get() || amount <= 50_000; amount++) {
+                    long position = journal.appendDeposit(amount, "ES01", amount);
+                    synchronized (positions) {
+                        positions.add(position);
+                    }
+                }
+            });
+            writer.start();
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(5);
+                long upTo;
+                synchronized (positions) {
+                    upTo = positions.isEmpty() ? 0 : positions.get(positions.size() / 2);
+                }
+                journal.compact(upTo);
+                compactedTo = Math.max(compactedTo, upTo);
+            }
+            running.set(false);
+            writer.join();
+        }
+
+        long from = compactedTo;
+        List<Long> expected = new ArrayList<>();
+        for (long position : positions) {
+            if (position > from) {
+                expected.add(position);
+            }
+        }
+        List<Long> replayed = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(path, SyncPolicy.EVERY_OP, 10)) {
+            journal.replay(new JournalListener() {
+                @Override
+                public void onRegisterClient(long position, String firstName, String lastName, String dni, String email) {
+                }
+
+                @Override
+                public void onOpenBankAccount(long position, String dni, String accountNumber, BankAccount.AccountType accountType) {
+                }
+
+                @Override
+                public void onDeposit(long position, long timestamp, String accountNumber, long amount) {
+                    replayed.add(position);
+                }
+
+                @Override
+                public void onWithdraw(long position, long timestamp, String accountNumber, long amount) {
+                }
+
+                @Override
+                public void onTransfer(long position, long timestamp, String fromAccountNumber, String toAccountNumber,
+                                       long amount) {
+                }
+            }, from);
+        }
+        assertEquals(expected, replayed);
+    }
+
+    @Test
+    void appliedPositionWaitsForOperationsInProgress() throws Exception {
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("bank.journal"), SyncPolicy.INTERVAL, 10)) {
+            journal.appendDeposit(1, "ES01", 100);
+            journal.beginApply();
+            long position;
+            CompletableFuture<Long> applied;
+            try {
+                position = journal.appendDeposit(2, "ES01", 200);
+                applied = CompletableFuture.supplyAsync(journal::getAppliedPosition);
+                // El registro está escrito pero su operación aún no se ha aplicado.
+                Thread.sleep(50);
+                assertFalse(applied.isDone());
+            } finally {
+                journal.endApply();
+            }
+            assertEquals(position, applied.get(10, TimeUnit.SECONDS));
+            assertEquals(position, journal.getAppliedPosition());
+        }
+    }
+}
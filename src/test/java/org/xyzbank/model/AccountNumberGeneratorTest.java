@@ -0,0 +1,35 @@
+package org.xyzbank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountNumberGeneratorTest {
+
+    @Test
+    void threadSeededNumbersAreUniqueAcrossShortLivedThreads() throws InterruptedException {
+        AccountNumberGenerator generator = AccountNumberGenerator.of(AccountNumberGenerator.Scheme.THREAD_SEEDED, false);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        // Un hilo nuevo por tanda, como el servidor con un hilo por petición.
+        for (int i = 0; i < 500; i++) {
+            Thread thread = new Thread(() -> {
+                for (int n = 0; n < 20; n++) {
+                    numbers.add(generator.next());
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(10_000, numbers.size());
+        for (String number : numbers) {
+            UUID uuid = UUID.fromString(number);
+            assertEquals(4, uuid.version());
+            assertEquals(2, uuid.variant());
+        }
+    }
+}
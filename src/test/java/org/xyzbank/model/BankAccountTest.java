@@ -0,0 +1,53 @@
+package org.xyzbank.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BankAccountTest {
+
+    @Test
+    void hugeWithdrawalFromOverdrawnAccountIsRejected() {
+        BankAccount account = new BankAccount("1", BankAccount.AccountType.CORRIENTE);
+        account.withdraw(100);
+        assertEquals(TransactionStatus.OVERDRAFT_LIMIT_EXCEEDED, account.tryWithdraw(Long.MAX_VALUE));
+        assertEquals(TransactionStatus.OVERDRAFT_LIMIT_EXCEEDED, account.tryWithdraw(Money.parse("92233720368547758.07")));
+        assertEquals(-100, account.getBalance());
+    }
+
+    @Test
+    void hugeWithdrawalFromSavingsIsRejected() {
+        BankAccount account = new BankAccount("1", BankAccount.AccountType.AHORROS);
+        account.deposit(100);
+        assertEquals(TransactionStatus.SAVINGS_NEGATIVE_BALANCE, account.tryWithdraw(Long.MAX_VALUE));
+        assertEquals(100, account.getBalance());
+    }
+
+    @Test
+    void depositThatWouldOverflowIsRejected() {
+        BankAccount account = new BankAccount("1", BankAccount.AccountType.CORRIENTE);
+        account.deposit(Long.MAX_VALUE - 10);
+        assertEquals(TransactionStatus.BALANCE_OVERFLOW, account.tryDeposit(11));
+        assertEquals(TransactionStatus.APPLIED, account.tryDeposit(10));
+        assertEquals(Long.MAX_VALUE, account.getBalance());
+    }
+
+    @Test
+    void depositOnNegativeBalanceDoesNotOverflow() {
+        BankAccount account = new BankAccount("1", BankAccount.AccountType.CORRIENTE);
+        account.withdraw(500_00);
+        assertEquals(TransactionStatus.APPLIED, account.tryDeposit(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE - 500_00, account.getBalance());
+    }
+
+    @Test
+    void withdrawalLimitsAreExact() {
+        BankAccount checking = new BankAccount("1", BankAccount.AccountType.CORRIENTE);
+        assertEquals(TransactionStatus.APPLIED, checking.tryWithdraw(500_00));
+        assertEquals(TransactionStatus.OVERDRAFT_LIMIT_EXCEEDED, checking.tryWithdraw(1));
+        BankAccount savings = new BankAccount("2", BankAccount.AccountType.AHORROS);
+        savings.deposit(10);
+        assertEquals(TransactionStatus.APPLIED, savings.tryWithdraw(10));
+        assertEquals(TransactionStatus.SAVINGS_NEGATIVE_BALANCE, savings.tryWithdraw(1));
+    }
+}
@@ -0,0 +1,28 @@
+package org.xyzbank.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientTest {
+
+    @Test
+    void removedAccountCanBeAddedAgainWithManyAccounts() {
+        Client client = new Client("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        for (int i = 0; i < 10; i++) {
+            client.addAccount(new BankAccount("ES" + i, BankAccount.AccountType.AHORROS));
+        }
+        BankAccount account = client.getAccounts().get(9);
+
+        assertTrue(client.removeAccount(account));
+        assertFalse(client.removeAccount(account));
+        assertEquals(9, client.getAccounts().size());
+        // El número ya no está en el conjunto de números: se puede volver a asociar.
+        client.addAccount(account);
+        assertThrows(IllegalArgumentException.class, () -> client.addAccount(account));
+        assertEquals(10, client.getAccounts().size());
+    }
+}
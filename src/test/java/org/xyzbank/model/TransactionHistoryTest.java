@@ -0,0 +1,62 @@
+package org.xyzbank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionHistoryTest {
+
+    @Test
+    void chunksUpToMovementCountRoundTrip() {
+        TransactionHistory history = new TransactionHistory();
+        long balance = 0;
+        for (int i = 1; i <= 1_000; i++) {
+            MovementType type = i % 3 == 0 ? MovementType.WITHDRAW : MovementType.DEPOSIT;
+            balance += type == MovementType.DEPOSIT ? i : -i;
+            history.record(1_000L * i, type, i, balance);
+        }
+
+        for (long movements : new long[]{0, 1, 255, 256, 257, 700, 1_000, 5_000}) {
+            TransactionHistory copy = new TransactionHistory();
+            history.forEachChunk(movements, (firstTime, opening, entries, data, length) ->
+                    copy.appendChunk(firstTime, opening, entries, Arrays.copyOf(data, length)));
+            long expected = Math.min(movements, history.size());
+            assertEquals(expected, copy.size());
+            List<TransactionHistory.Movement> original = history.range(Long.MIN_VALUE, Long.MAX_VALUE, 0, (int) expected);
+            List<TransactionHistory.Movement> copied = copy.last(Integer.MAX_VALUE);
+            assertEquals(original.size(), copied.size());
+            for (int i = 0; i < copied.size(); i++) {
+                assertEquals(original.get(i).getTimestamp(), copied.get(i).getTimestamp());
+                assertEquals(original.get(i).getAmount(), copied.get(i).getAmount());
+                assertEquals(original.get(i).getBalanceAfter(), copied.get(i).getBalanceAfter());
+            }
+        }
+    }
+
+    @Test
+    void amountsTooLargeToPackWithTheTypeRoundTrip() {
+        TransactionHistory history = new TransactionHistory();
+        long huge = Long.MAX_VALUE - 10;
+        history.record(1_000, MovementType.DEPOSIT, huge, huge);
+        history.record(2_000, MovementType.TRANSFER_OUT, 1L << 61, huge - (1L << 61));
+        history.record(3_000, MovementType.WITHDRAW, 5, huge - (1L << 61) - 5);
+
+        TransactionHistory copy = new TransactionHistory();
+        history.forEachChunk(2, (firstTime, opening, entries, data, length) ->
+                copy.appendChunk(firstTime, opening, entries, Arrays.copyOf(data, length)));
+        assertEquals(2, copy.size());
+
+        List<TransactionHistory.Movement> movements = history.last(3);
+        assertEquals(MovementType.DEPOSIT, movements.get(0).getType());
+        assertEquals(huge, movements.get(0).getAmount());
+        assertEquals(MovementType.TRANSFER_OUT, movements.get(1).getType());
+        assertEquals(1L << 61, movements.get(1).getAmount());
+        assertEquals(MovementType.WITHDRAW, movements.get(2).getType());
+        assertEquals(5, movements.get(2).getAmount());
+        assertEquals(huge - (1L << 61) - 5, movements.get(2).getBalanceAfter());
+        assertEquals(1L << 61, copy.last(1).get(0).getAmount());
+    }
+}
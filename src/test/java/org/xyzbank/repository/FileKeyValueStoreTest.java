@@ -0,0 +1,96 @@
+package org.xyzbank.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FileKeyValueStore: un lote cortado a mitad por una caída se descarta entero al reabrir, y la compactación
+ * en segundo plano conserva el último valor de cada clave aunque sigan las escrituras.
+ */
+class FileKeyValueStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornBatchIsDiscardedWhole() throws Exception {
+        Path path = directory.resolve("bank.store");
+        long committed;
+        try (FileKeyValueStore store = new FileKeyValueStore(path)) {
+            store.putAll(Map.of("A:1", bytes("uno"), "A:2", bytes("dos")));
+            committed = store.sizeBytes();
+            Map<String, byte[]> batch = new LinkedHashMap<>();
+            batch.put("A:1", bytes("uno bis"));
+            batch.put("A:3", bytes("tres"));
+            store.putAll(batch);
+        }
+        // Cortar el último lote tras su primer registro, como si el proceso muriese a mitad.
+        long size = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 12);
+        }
+
+        try (FileKeyValueStore store = new FileKeyValueStore(path)) {
+            assertArrayEquals(bytes("uno"), store.get("A:1"));
+            assertArrayEquals(bytes("dos"), store.get("A:2"));
+            assertFalse(store.contains("A:3"));
+            assertEquals(committed, store.sizeBytes());
+            // El almacén sigue admitiendo escrituras tras descartar la cola.
+            store.putAll(Map.of("A:3", bytes("tres")));
+        }
+        try (FileKeyValueStore store = new FileKeyValueStore(path)) {
+            assertArrayEquals(bytes("tres"), store.get("A:3"));
+        }
+    }
+
+    @Test
+    void backgroundCompactionKeepsLatestValues() throws Exception {
+        Path path = directory.resolve("bank.store");
+        Map<String, byte[]> expected = new HashMap<>();
+        try (FileKeyValueStore store = new FileKeyValueStore(path, 64 * 1024)) {
+            for (int round = 0; round < 200; round++) {
+                Map<String, byte[]> batch = new HashMap<>();
+                for (int key = 0; key < 100; key++) {
+                    batch.put("B:" + key, bytes(round + "/" + key + "/" + "x".repeat(32)));
+                }
+                store.putAll(batch);
+                expected.putAll(batch);
+                assertArrayEquals(expected.get("B:7"), store.get("B:7"));
+            }
+            // Con cada clave sobrescrita 200 veces, sin compactar el fichero pasaría de 1 MB.
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (store.sizeBytes() > 256 * 1024 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(store.sizeBytes() <= 256 * 1024, "size " + store.sizeBytes());
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                assertArrayEquals(entry.getValue(), store.get(entry.getKey()), entry.getKey());
+            }
+        }
+        try (FileKeyValueStore store = new FileKeyValueStore(path)) {
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                assertArrayEquals(entry.getValue(), store.get(entry.getKey()), entry.getKey());
+            }
+            assertNull(store.get("B:100"));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package org.xyzbank.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.service.BankService;
+import org.xyzbank.snapshot.SnapshotManager;
+
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TableBankRepository: una cuenta liberada y vuelta a pedir conserva su estado de la tabla, los números con
+ * dígitos de control se guardan y solo se encuentran con los dígitos correctos, y el libro pasa por una
+ * instantánea como el repositorio en memoria.
+ */
+class TableBankRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void releasedAccountsAreRebuiltFromTheTable() throws Exception {
+        TableBankRepository repository = new TableBankRepository(100);
+        BankService service = new BankService(repository);
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String from = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        String to = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        service.deposit(from, 1_000);
+        service.withdraw(from, 1_300);
+        service.transfer(from, to, 200);
+
+        // Mientras alguien tiene la cuenta se devuelve el mismo objeto.
+        BankAccount account = repository.getAccountByNumber(from);
+        assertSame(account, repository.getAccountByNumber(from));
+        WeakReference<BankAccount> released = new WeakReference<>(account);
+        account = null;
+        for (int i = 0; i < 20 && released.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(released.get(), "account was not released");
+
+        BankAccount rebuilt = repository.getAccountByNumber(from);
+        assertEquals(-500, rebuilt.getBalance());
+        assertEquals(1_000, rebuilt.getTotalDeposited());
+        assertEquals(1_300, rebuilt.getTotalWithdrawn());
+        assertEquals(200, service.checkBalance(to));
+        Client owner = repository.getAccountOwner(from);
+        assertEquals("12345678A", owner.getDni());
+        assertSame(rebuilt, owner.getAccounts().get(0));
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+        assertThrows(IllegalStateException.class, () -> service.getLastMovements(to, 10));
+    }
+
+    @Test
+    void checkDigitsAreKeptAndRequired() {
+        TableBankRepository repository = new TableBankRepository(100);
+        BankService service = new BankService(repository, null, null,
+                AccountNumberGenerator.of(AccountNumberGenerator.Scheme.TIME_ORDERED, true));
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String account = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        service.deposit(account, 700);
+
+        assertEquals(account, repository.getAccountByNumber(account).getAccountNumber());
+        String uuid = account.substring(0, 36);
+        assertNull(repository.getAccountByNumber(uuid));
+        assertNull(repository.getAccountByNumber(uuid + (account.endsWith("0") ? "-01" : "-00")));
+        assertNull(repository.getAccountByNumber(uuid.toUpperCase()));
+
+        Client client = repository.getClientByDni("12345678A");
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.addAccount(client, new BankAccount(uuid, BankAccount.AccountType.AHORROS)));
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.addAccount(client, new BankAccount("ES01", BankAccount.AccountType.AHORROS)));
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.addClient(new Client("Otra", "Ruiz", "87654321B", "ana@xyzbank.com")));
+        assertEquals(1, client.getAccounts().size());
+    }
+
+    @Test
+    void bookSurvivesSnapshot() {
+        Path snapshotPath = directory.resolve("bank.snapshot");
+        String[] accounts = new String[50];
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("bank.journal"), SyncPolicy.INTERVAL, 10)) {
+            TableBankRepository repository = new TableBankRepository(accounts.length);
+            BankService service = new BankService(repository, journal);
+            for (int i = 0; i < accounts.length; i++) {
+                service.registerClient("Name" + i, "Surname" + i, "DNI" + i, "client" + i + "@xyzbank.com");
+                accounts[i] = service.openBankAccount("DNI" + i, BankAccount.AccountType.values()[i % 2]);
+                service.deposit(accounts[i], 100 + i);
+            }
+            new SnapshotManager(snapshotPath, repository, journal).takeSnapshot();
+        }
+
+        TableBankRepository repository = new TableBankRepository(accounts.length);
+        new SnapshotManager(snapshotPath, repository, null).load();
+        BankService service = new BankService(repository);
+        for (int i = 0; i < accounts.length; i++) {
+            assertEquals(100 + i, service.checkBalance(accounts[i]));
+        }
+        Client last = repository.getClientByEmail("client49@xyzbank.com");
+        assertEquals("DNI49", last.getDni());
+        assertNotNull(repository.getClientByDni("DNI0"));
+        assertEquals(accounts.length, repository.getAllClients().size());
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+}
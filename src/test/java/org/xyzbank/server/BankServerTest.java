@@ -0,0 +1,130 @@
+package org.xyzbank.server;
+
+import org.junit.jupiter.api.Test;
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BankServerTest {
+
+    @Test
+    void rejectsAccountNumbersWithWrongCheckDigits() {
+        BankService service = new BankService(new InMemoryBankRepository(), null, null,
+                AccountNumberGenerator.of(AccountNumberGenerator.Scheme.TIME_ORDERED, true));
+        try (BankServer server = new BankServer(service, 0)) {
+            assertEquals("OK", server.execute("REGISTER,Ana,Ruiz,12345678A,ana@xyzbank.com"));
+            String opened = server.execute("OPEN,12345678A,AHORROS");
+            assertTrue(opened.startsWith("OK,"), opened);
+            String account = opened.substring(3);
+            String mistyped = account.substring(0, account.length() - 1) + (account.endsWith("0") ? '1' : '0');
+
+            assertEquals("OK", server.execute("DEPOSIT," + account + ",10.00"));
+            assertEquals("ERROR,Invalid account number: " + mistyped, server.execute("BALANCE," + mistyped));
+            assertEquals("ERROR,Invalid account number: " + mistyped,
+                    server.execute("TRANSFER," + account + "," + mistyped + ",1.00"));
+            assertEquals("OK,10.00", server.execute("BALANCE," + account));
+        }
+    }
+
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository(), null);
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String first = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        String second = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        try (BankServer server = new BankServer(service, 0);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            // Una ráfaga sin esperar respuestas: los retiros solo están cubiertos si van tras sus depósitos.
+            StringBuilder burst = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                String account = i % 2 == 0 ? first : second;
+                burst.append("DEPOSIT,").append(account).append(",2.00\n");
+                burst.append("WITHDRAW,").append(account).append(",1.00\n");
+                burst.append(i % 50 == 0 ? "NOPE," + i + "\n" : "");
+            }
+            burst.append("BALANCE,").append(first).append('\n');
+            burst.append("TRANSFER,").append(first).append(',').append(second).append(",100.00\n");
+            burst.append("BALANCE,").append(second).append('\n');
+            OutputStream out = socket.getOutputStream();
+            out.write(burst.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            socket.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int i = 0; i < 200; i++) {
+                assertEquals("OK", in.readLine());
+                assertEquals("OK", in.readLine());
+                if (i % 50 == 0) {
+                    assertEquals("ERROR,Unknown command: NOPE", in.readLine());
+                }
+            }
+            assertEquals("OK,100.00", in.readLine());
+            assertEquals("OK", in.readLine());
+            assertEquals("OK,200.00", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void overlongLineIsRejectedWithoutLosingTheNextRequest() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository(), null);
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String account = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        try (BankServer server = new BankServer(service, 0);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            String request = "DEPOSIT," + account + ",1" + "0".repeat(100_000) + "\r\nBALANCE," + account + "\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("ERROR,Request longer than 4096 bytes", in.readLine());
+            assertEquals("OK,0.00", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void errorMessagesKeepTheFraming() {
+        assertEquals("ERROR,IllegalStateException", BankServer.error(new IllegalStateException()));
+        assertEquals("ERROR,a; b  c", BankServer.error(new IllegalArgumentException("a, b\r\nc")));
+    }
+
+    @Test
+    void requestFailingWithAnErrorClosesOnlyItsConnection() throws Exception {
+        InMemoryBankRepository repository = new InMemoryBankRepository() {
+            @Override
+            public BankAccount getAccountByNumber(String accountNumber) {
+                if (accountNumber.equals("BOOM")) {
+                    throw new AssertionError("boom");
+                }
+                return super.getAccountByNumber(accountNumber);
+            }
+        };
+        BankService service = new BankService(repository, null);
+        repository.addClient(new Client("Ana", "Ruiz", "12345678A", "ana@xyzbank.com"));
+        try (BankServer server = new BankServer(service, 0)) {
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.getOutputStream().write("BALANCE,BOOM\nBALANCE,ES1\n".getBytes(StandardCharsets.UTF_8));
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                assertNull(in.readLine());
+            }
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.getOutputStream().write("OPEN,12345678A,AHORROS\n".getBytes(StandardCharsets.UTF_8));
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                assertTrue(in.readLine().startsWith("OK,"));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.xyzbank.model.AccountNumberGenerator;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.InMemoryBankRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Con dígitos de control, un número de cuenta mal tecleado se rechaza como inválido antes de buscarlo.
+ */
+class AccountNumberValidationTest {
+
+    @Test
+    void mistypedNumberIsRejectedWithCheckDigits() {
+        BankService service = new BankService(new InMemoryBankRepository(), null, null,
+                AccountNumberGenerator.of(AccountNumberGenerator.Scheme.THREAD_SEEDED, true));
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String account = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        service.deposit(account, 1_000);
+
+        // Cambiar un carácter del número conserva el formato pero invalida los dígitos de control.
+        char first = account.charAt(0);
+        String mistyped = (first == '0' ? '1' : '0') + account.substring(1);
+        assertTrue(service.isValidAccountNumber(account));
+        assertFalse(service.isValidAccountNumber(mistyped));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> service.deposit(mistyped, 1));
+        assertTrue(error.getMessage().startsWith("Invalid account number"), error.getMessage());
+        assertEquals(1_000, service.checkBalance(account));
+    }
+
+    @Test
+    void anyNumberIsAcceptedWithoutCheckDigits() {
+        BankService service = new BankService(new InMemoryBankRepository());
+        assertTrue(service.isValidAccountNumber("not-a-uuid"));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> service.checkBalance("not-a-uuid"));
+        assertTrue(error.getMessage().startsWith("Account not found"), error.getMessage());
+    }
+}
@@ -0,0 +1,113 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.Client;
+import org.xyzbank.repository.BankAggregates;
+import org.xyzbank.repository.CachedBankRepository;
+import org.xyzbank.repository.FileKeyValueStore;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.snapshot.SnapshotManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Informe del banco: los volúmenes depositados y retirados sobreviven a una instantánea con su cola del
+ * diario y a reabrir el almacén, el almacén rechaza los extractos porque no guarda el historial, y el listado
+ * de clientes se pagina con un cursor.
+ */
+class BankReportTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void volumesSurviveSnapshotAndJournalReplay() {
+        Path journalPath = directory.resolve("bank.journal");
+        Path snapshotPath = directory.resolve("bank.snapshot");
+        String account;
+        try (TransactionJournal journal = new TransactionJournal(journalPath, SyncPolicy.EVERY_OP, 10)) {
+            InMemoryBankRepository repository = new InMemoryBankRepository();
+            BankService service = new BankService(repository, journal);
+            service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+            account = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+            service.deposit(account, 1_000);
+            service.withdraw(account, 300);
+            new SnapshotManager(snapshotPath, repository, journal).takeSnapshot();
+            // Posterior a la instantánea: solo está en la cola del diario.
+            service.deposit(account, 200);
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(journalPath, SyncPolicy.EVERY_OP, 10)) {
+            InMemoryBankRepository repository = new InMemoryBankRepository();
+            BankService service = new BankService(repository, journal);
+            service.recoverFromJournal(new SnapshotManager(snapshotPath, repository, journal).load());
+
+            BankAggregates aggregates = repository.getAggregates();
+            assertEquals(900, service.checkBalance(account));
+            assertEquals(1_200, aggregates.getTotalDeposited(BankAccount.AccountType.AHORROS));
+            assertEquals(300, aggregates.getTotalWithdrawn(BankAccount.AccountType.AHORROS));
+            assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+        }
+    }
+
+    @Test
+    void volumesSurviveStoreReopen() {
+        Path storePath = directory.resolve("bank.store");
+        String account;
+        try (CachedBankRepository repository = new CachedBankRepository(new FileKeyValueStore(storePath), 16, 10)) {
+            BankService service = new BankService(repository, null);
+            service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+            account = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+            service.deposit(account, 1_000);
+            service.withdraw(account, 1_400);
+        }
+
+        try (CachedBankRepository repository = new CachedBankRepository(new FileKeyValueStore(storePath), 16, 10)) {
+            BankService service = new BankService(repository, null);
+            BankAggregates aggregates = repository.getAggregates();
+            assertEquals(1_000, aggregates.getTotalDeposited(BankAccount.AccountType.CORRIENTE));
+            assertEquals(1_400, aggregates.getTotalWithdrawn(BankAccount.AccountType.CORRIENTE));
+            assertEquals(400, aggregates.getOverdraftExposure());
+            assertEquals(1_000, repository.getAccountByNumber(account).getTotalDeposited());
+            assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+            // Sin historial en el almacén, un extracto estaría vacío: se rechaza.
+            assertThrows(IllegalStateException.class, () -> service.getLastMovements(account, 10));
+            assertThrows(IllegalStateException.class, () -> service.getStatement(account, 0, Long.MAX_VALUE, 0, 10));
+        }
+    }
+
+    @Test
+    void clientListIsPagedWithCursor() {
+        BankService service = new BankService(new InMemoryBankRepository(), null);
+        for (int i = 0; i < 25; i++) {
+            service.registerClient("Name" + i, "Surname" + i, "DNI" + i, "client" + i + "@xyzbank.com");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+
+        Iterator<Client> clients = service.clientCursor();
+        assertEquals(10, service.writeClientsAndAccounts(out, clients, 10));
+        assertEquals(10, service.writeClientsAndAccounts(out, clients, 10));
+        assertEquals(5, service.writeClientsAndAccounts(out, clients, 10));
+        assertFalse(clients.hasNext());
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(25, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].contains("(DNI: DNI" + i + ","), lines[i]);
+        }
+    }
+}
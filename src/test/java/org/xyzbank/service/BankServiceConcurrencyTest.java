@@ -0,0 +1,117 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.InMemoryBankRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de estrés de BankService: muchos hilos hacen depósitos, retiros y transferencias sobre pocas
+ * cuentas a la vez, y se comprueba que no se pierde ninguna actualización (el dinero total cuadra con lo
+ * depositado y retirado) y que ninguna cuenta supera su límite en ningún momento.
+ */
+class BankServiceConcurrencyTest {
+
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    private static final long INITIAL_BALANCE = 1_000_00L;
+
+    @Test
+    void concurrentMovementsKeepBalancesAndLimits() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String[] accounts = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            service.registerClient("Name" + i, "Surname" + i, "DNI" + i, "client" + i + "@xyzbank.com");
+            BankAccount.AccountType type = i % 2 == 0 ? BankAccount.AccountType.AHORROS : BankAccount.AccountType.CORRIENTE;
+            accounts[i] = service.openBankAccount("DNI" + i, type);
+            service.deposit(accounts[i], INITIAL_BALANCE);
+        }
+
+        LongAdder deposited = new LongAdder();
+        LongAdder withdrawn = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> violation = new AtomicReference<>();
+        // Un observador comprueba los límites mientras se mueve el dinero, no solo al final.
+        Thread observer = new Thread(() -> {
+            while (running.get()) {
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    long balance = service.checkBalance(accounts[i]);
+                    long limit = i % 2 == 0 ? 0 : BankAccount.OVERDRAFT_LIMIT;
+                    if (balance < limit) {
+                        violation.compareAndSet(null, accounts[i] + " reached " + balance);
+                    }
+                }
+            }
+        });
+        observer.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String account = accounts[random.nextInt(ACCOUNTS)];
+                    long amount = 1 + random.nextInt(50_00);
+                    try {
+                        switch (random.nextInt(3)) {
+                            case 0 -> {
+                                service.deposit(account, amount);
+                                deposited.add(amount);
+                            }
+                            case 1 -> {
+                                service.withdraw(account, amount);
+                                withdrawn.add(amount);
+                            }
+                            default -> {
+                                String target = accounts[random.nextInt(ACCOUNTS)];
+                                if (!target.equals(account)) {
+                                    service.transfer(account, target, amount);
+                                }
+                            }
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // Retiro o transferencia rechazados por el límite: no mueven dinero.
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        running.set(false);
+        observer.join();
+
+        assertNull(violation.get());
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long balance = service.checkBalance(accounts[i]);
+            assertTrue(balance >= (i % 2 == 0 ? 0 : BankAccount.OVERDRAFT_LIMIT), accounts[i] + " = " + balance);
+            total += balance;
+        }
+        assertEquals(ACCOUNTS * INITIAL_BALANCE + deposited.sum() - withdrawn.sum(), total);
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+}
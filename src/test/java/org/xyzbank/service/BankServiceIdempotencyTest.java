@@ -0,0 +1,121 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.InMemoryBankRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Depósitos y retiros con clave de idempotencia: los reintentos simultáneos de una misma petición se
+ * aplican una sola vez, las claves son de cada cuenta, y un fallo después de aplicar no libera la clave.
+ */
+class BankServiceIdempotencyTest {
+
+    private static final int THREADS = 16;
+    private static final int KEYS = 2_000;
+    private static final long AMOUNT = 100;
+
+    @Test
+    void concurrentRetriesApplyOnce() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String account = openAccount(service, "12345678A", BankAccount.AccountType.AHORROS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                // Todos los hilos reintentan las mismas claves a la vez.
+                for (long key = 1; key <= KEYS; key++) {
+                    service.deposit(account, AMOUNT, key);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(KEYS * AMOUNT, service.checkBalance(account));
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+
+    @Test
+    void keysAreScopedPerAccount() {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String first = openAccount(service, "12345678A", BankAccount.AccountType.AHORROS);
+        String second = openAccount(service, "87654321B", BankAccount.AccountType.AHORROS);
+
+        service.deposit(first, AMOUNT, 1);
+        service.deposit(second, AMOUNT, 1);
+        service.deposit(first, AMOUNT, 1);
+
+        assertEquals(AMOUNT, service.checkBalance(first));
+        assertEquals(AMOUNT, service.checkBalance(second));
+    }
+
+    @Test
+    void reusedKeyForAnotherOperationIsRejected() {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String account = openAccount(service, "12345678A", BankAccount.AccountType.AHORROS);
+        service.deposit(account, 1_000, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> service.deposit(account, 999, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.withdraw(account, 1_000, 1));
+        assertEquals(1_000, service.checkBalance(account));
+    }
+
+    @Test
+    void rejectionIsReplayed() {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String account = openAccount(service, "12345678A", BankAccount.AccountType.AHORROS);
+
+        assertThrows(IllegalArgumentException.class, () -> service.withdraw(account, 500, 1));
+        service.deposit(account, 1_000);
+        // El reintento devuelve el rechazo original aunque ahora habría saldo.
+        assertThrows(IllegalArgumentException.class, () -> service.withdraw(account, 500, 1));
+        assertEquals(1_000, service.checkBalance(account));
+    }
+
+    @Test
+    void failureAfterApplyingKeepsKey() {
+        AtomicBoolean failNext = new AtomicBoolean();
+        InMemoryBankRepository repository = new InMemoryBankRepository() {
+            @Override
+            public void onBalanceChanged(BankAccount account) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("Simulated failure after the balance changed");
+                }
+            }
+        };
+        BankService service = new BankService(repository);
+        String account = openAccount(service, "12345678A", BankAccount.AccountType.AHORROS);
+
+        failNext.set(true);
+        assertThrows(IllegalStateException.class, () -> service.deposit(account, AMOUNT, 1));
+        assertEquals(AMOUNT, service.checkBalance(account));
+        service.deposit(account, AMOUNT, 1);
+        assertEquals(AMOUNT, service.checkBalance(account));
+    }
+
+    private static String openAccount(BankService service, String dni, BankAccount.AccountType type) {
+        service.registerClient("Name", "Surname", dni, dni.toLowerCase() + "@xyzbank.com");
+        return service.openBankAccount(dni, type);
+    }
+}
@@ -0,0 +1,115 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IdempotencyTable: ámbitos, huellas, liberación, caducidad y retirada por capacidad, y un modelo
+ * aleatorio comparado con un HashMap.
+ */
+class IdempotencyTableTest {
+
+    @Test
+    void sameKeyInAnotherScopeIsIndependent() {
+        IdempotencyTable table = new IdempotencyTable(1_000, 60_000);
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("ES01", 7, 100));
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("ES02", 7, 100));
+        assertEquals(IdempotencyTable.IN_PROGRESS, table.claim("ES01", 7, 100));
+        assertEquals(IdempotencyTable.MISMATCH, table.claim("ES01", 7, 200));
+        table.complete("ES01", 7, 0);
+        assertEquals(0, table.claim("ES01", 7, 100));
+        assertEquals(IdempotencyTable.IN_PROGRESS, table.claim("ES02", 7, 100));
+        assertEquals(1, table.getReplays());
+    }
+
+    @Test
+    void scopesAreComparedByValue() {
+        IdempotencyTable table = new IdempotencyTable(1_000, 60_000);
+        // "Aa" y "BB" tienen el mismo hashCode.
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("Aa", 1, 5));
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("BB", 1, 5));
+        table.complete("Aa", 1, 3);
+        assertEquals(3, table.claim(new String("Aa"), 1, 5));
+        assertEquals(IdempotencyTable.IN_PROGRESS, table.claim("BB", 1, 5));
+    }
+
+    @Test
+    void releaseOnlyForgetsPendingKeys() {
+        IdempotencyTable table = new IdempotencyTable(1_000, 60_000);
+        table.claim("ES01", 1, 100);
+        table.release("ES01", 1);
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("ES01", 1, 100));
+        table.complete("ES01", 1, 0);
+        table.release("ES01", 1);
+        assertEquals(0, table.claim("ES01", 1, 100));
+    }
+
+    @Test
+    void expiredKeysAreForgotten() throws InterruptedException {
+        IdempotencyTable table = new IdempotencyTable(1_000, 20);
+        table.claim("ES01", 1, 100);
+        table.complete("ES01", 1, 0);
+        Thread.sleep(50);
+        assertEquals(IdempotencyTable.CLAIMED, table.claim("ES01", 1, 999));
+    }
+
+    @Test
+    void fullTableEvictsOldestKeys() {
+        // Un segmento por cada 64 claves de capacidad: con 64 cabe una clave por segmento.
+        IdempotencyTable table = new IdempotencyTable(64, 60_000);
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(IdempotencyTable.CLAIMED, table.claim("ES01", key, key));
+            table.complete("ES01", key, 0);
+        }
+        assertTrue(table.size() <= 64, "size " + table.size());
+        assertEquals(10_000 - table.size(), table.getEvictions());
+    }
+
+    @Test
+    void matchesModelUnderRandomOperations() {
+        IdempotencyTable table = new IdempotencyTable(1 << 19, 60_000);   // Sin retiradas por capacidad
+        Map<String, long[]> model = new HashMap<>();   // ámbito/clave -> {huella, resultado o -1}
+        Random random = new Random(42);
+        String[] scopes = {"ES01", "ES02", "ES03", "Aa", "BB"};
+        for (int i = 0; i < 200_000; i++) {
+            String scope = scopes[random.nextInt(scopes.length)];
+            long key = random.nextInt(2_000);
+            long fingerprint = random.nextInt(3);
+            String id = scope + '/' + key;
+            long[] expected = model.get(id);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    int result = table.claim(scope, key, fingerprint);
+                    if (expected == null) {
+                        assertEquals(IdempotencyTable.CLAIMED, result, id);
+                        model.put(id, new long[]{fingerprint, -1});
+                    } else if (expected[0] != fingerprint) {
+                        assertEquals(IdempotencyTable.MISMATCH, result, id);
+                    } else {
+                        assertEquals(expected[1] < 0 ? IdempotencyTable.IN_PROGRESS : expected[1], result, id);
+                    }
+                }
+                case 1 -> {
+                    int result = random.nextInt(10);
+                    table.complete(scope, key, result);
+                    if (expected != null) {
+                        expected[1] = result;
+                    }
+                }
+                default -> {
+                    table.release(scope, key);
+                    if (expected != null && expected[1] < 0) {
+                        model.remove(id);
+                    }
+                }
+            }
+        }
+    }
+}
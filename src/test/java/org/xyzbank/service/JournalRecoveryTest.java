@@ -0,0 +1,159 @@
+package org.xyzbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.repository.InMemoryBankRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recuperación desde el diario: un proceso que hace depósitos se mata a mitad (SIGKILL) y el estado
+ * recuperado debe contener todo lo que se confirmó al llamador y, como mucho, la operación en curso de
+ * cada hilo. Además, si el diario falla al anotar, el repositorio no debe cambiar.
+ */
+class JournalRecoveryTest {
+
+    private static final int WRITERS = 4;
+    private static final long AMOUNT = 100;
+    private static final int ACKS_BEFORE_KILL = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversEverythingAcknowledgedAfterKill() throws Exception {
+        Path journalPath = directory.resolve("bank.journal");
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), Writer.class.getName(), journalPath.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String[] accounts = new String[WRITERS];
+        long[] acknowledged = new long[WRITERS];
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            int acks = 0;
+            String line;
+            while (acks < ACKS_BEFORE_KILL && (line = out.readLine()) != null) {
+                String[] fields = line.split(" ");
+                int writer = Integer.parseInt(fields[1]);
+                if (fields[0].equals("account")) {
+                    accounts[writer] = fields[2];
+                } else {
+                    acknowledged[writer] = Long.parseLong(fields[2]);
+                    acks++;
+                }
+            }
+            assertEquals(ACKS_BEFORE_KILL, acks, "writer process ended early");
+            process.destroyForcibly();
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        }
+        // Simular además un registro a medio escribir al final del fichero.
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(200).putInt(0x03000000).flip());
+        }
+
+        long[] recovered = recover(journalPath, accounts, AMOUNT);
+        for (int i = 0; i < WRITERS; i++) {
+            long deposits = recovered[i] / AMOUNT;
+            assertTrue(deposits >= acknowledged[i] && deposits <= acknowledged[i] + 1,
+                    "writer " + i + ": " + deposits + " recovered, " + acknowledged[i] + " acknowledged");
+        }
+        // La cola rota se descartó: el diario admite nuevos registros y se recupera igual otra vez.
+        assertEquals(recovered[0] + AMOUNT, recover(journalPath, accounts, AMOUNT)[0]);
+    }
+
+    /* Recupera el diario en un repositorio nuevo, deposita AMOUNT más en la primera cuenta si se indica, y
+     * devuelve los saldos recuperados (antes de ese depósito).
+     */
+    private static long[] recover(Path journalPath, String[] accounts, long extraDeposit) {
+        long[] balances = new long[accounts.length];
+        try (TransactionJournal journal = new TransactionJournal(journalPath, SyncPolicy.EVERY_OP, 10)) {
+            BankService service = new BankService(new InMemoryBankRepository(), journal);
+            service.recoverFromJournal();
+            for (int i = 0; i < accounts.length; i++) {
+                balances[i] = service.checkBalance(accounts[i]);
+            }
+            service.deposit(accounts[0], extraDeposit);
+        }
+        return balances;
+    }
+
+    @Test
+    void failedAppendLeavesRepositoryUnchanged() {
+        TransactionJournal journal = new TransactionJournal(directory.resolve("failing.journal"), SyncPolicy.EVERY_OP, 10);
+        InMemoryBankRepository repository = new InMemoryBankRepository();
+        BankService service = new BankService(repository, journal);
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String account = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        String other = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        service.deposit(account, 1_000);
+        // Con el canal cerrado, cualquier append falla.
+        journal.close();
+
+        assertThrows(RuntimeException.class, () -> service.deposit(account, 500));
+        assertThrows(RuntimeException.class, () -> service.withdraw(account, 500));
+        assertThrows(RuntimeException.class, () -> service.transfer(account, other, 500));
+        assertThrows(RuntimeException.class, () -> service.registerClient("Luis", "Gil", "87654321B", "luis@xyzbank.com"));
+        assertThrows(RuntimeException.class, () -> service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS));
+
+        assertEquals(1_000, service.checkBalance(account));
+        assertEquals(0, service.checkBalance(other));
+        assertEquals(1, service.getLastMovements(account, 10).size());
+        assertNull(repository.getClientByDni("87654321B"));
+        assertEquals(2, repository.getClientByDni("12345678A").getAccounts().size());
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+
+    /**
+     * Proceso hijo: abre el diario, crea una cuenta por hilo y deposita sin parar, escribiendo
+     * "ack hilo n" cada vez que un depósito se confirma (ya sincronizado a disco con EVERY_OP).
+     */
+    public static class Writer {
+
+        public static void main(String[] args) throws InterruptedException {
+            TransactionJournal journal = new TransactionJournal(Path.of(args[0]), SyncPolicy.EVERY_OP, 10);
+            BankService service = new BankService(new InMemoryBankRepository(), journal);
+            Thread[] threads = new Thread[WRITERS];
+            for (int i = 0; i < WRITERS; i++) {
+                String dni = "DNI" + i;
+                service.registerClient("Name" + i, "Surname" + i, dni, "client" + i + "@xyzbank.com");
+                String account = service.openBankAccount(dni, BankAccount.AccountType.AHORROS);
+                print("account " + i + " " + account);
+                int writer = i;
+                threads[i] = new Thread(() -> {
+                    for (long n = 1; ; n++) {
+                        service.deposit(account, AMOUNT);
+                        print("ack " + writer + " " + n);
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            threads[0].join();
+        }
+
+        private static synchronized void print(String line) {
+            System.out.println(line);
+            if (System.out.checkError()) {
+                throw new UncheckedIOException(new IOException("Parent closed the pipe"));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.xyzbank.shard;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xyzbank.journal.SyncPolicy;
+import org.xyzbank.journal.TransactionJournal;
+import org.xyzbank.model.BankAccount;
+import org.xyzbank.model.TransactionStatus;
+import org.xyzbank.repository.InMemoryBankRepository;
+import org.xyzbank.service.BankService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ShardedBankService: no arranca junto a un diario, una transferencia rechazada no mueve dinero, las cuentas
+ * abiertas después de crearlo también se atienden, y ninguna llamada queda sin respuesta al cerrarlo, ni
+ * siquiera con las colas llenas.
+ */
+class ShardedBankServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void refusesServiceWithJournal() {
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("bank.journal"), SyncPolicy.EVERY_OP, 10)) {
+            BankService service = new BankService(new InMemoryBankRepository(), journal);
+            assertThrows(IllegalStateException.class, () -> new ShardedBankService(service, 2, 16));
+        }
+    }
+
+    @Test
+    void movementsAndTransfersKeepTotal() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        String[] accounts = new String[8];
+        for (int i = 0; i < accounts.length; i++) {
+            service.registerClient("Name" + i, "Surname" + i, "DNI" + i, "client" + i + "@xyzbank.com");
+            accounts[i] = service.openBankAccount("DNI" + i, BankAccount.AccountType.AHORROS);
+            service.deposit(accounts[i], 1_000);
+        }
+        try (ShardedBankService sharded = new ShardedBankService(service, 4, 64)) {
+            List<CompletableFuture<TransactionStatus>> results = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                results.add(sharded.transfer(accounts[i % 8], accounts[(i * 3 + 1) % 8], 1 + i % 300));
+            }
+            for (CompletableFuture<TransactionStatus> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        }
+        long total = 0;
+        for (String account : accounts) {
+            total += service.checkBalance(account);
+        }
+        assertEquals(8_000, total);
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+
+    @Test
+    void localTransferRejectedByTargetMovesNothing() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String from = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        String to = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+        service.deposit(from, 1_000);
+        service.deposit(to, Long.MAX_VALUE - 10);
+        // Una sola partición: la transferencia es local.
+        try (ShardedBankService sharded = new ShardedBankService(service, 1, 16)) {
+            assertEquals(TransactionStatus.BALANCE_OVERFLOW, sharded.transfer(from, to, 100).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1_000, service.checkBalance(from));
+        assertEquals(Long.MAX_VALUE - 10, service.checkBalance(to));
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+
+    @Test
+    void accountsOpenedLaterAreServed() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String first = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        service.deposit(first, 1_000);
+        try (ShardedBankService sharded = new ShardedBankService(service, 4, 16)) {
+            String later = service.openBankAccount("12345678A", BankAccount.AccountType.AHORROS);
+            assertEquals(TransactionStatus.APPLIED, sharded.deposit(later, 500).get(10, TimeUnit.SECONDS));
+            assertEquals(TransactionStatus.APPLIED, sharded.transfer(first, later, 300).get(10, TimeUnit.SECONDS));
+            assertEquals(800, sharded.checkBalance(later).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(700, service.checkBalance(first));
+        assertTrue(service.checkAggregates().isEmpty(), service.checkAggregates().toString());
+    }
+
+    @Test
+    void everyCallCompletesWhenClosing() throws Exception {
+        BankService service = new BankService(new InMemoryBankRepository());
+        service.registerClient("Ana", "Ruiz", "12345678A", "ana@xyzbank.com");
+        String account = service.openBankAccount("12345678A", BankAccount.AccountType.CORRIENTE);
+        ShardedBankService sharded = new ShardedBankService(service, 1, 4);
+
+        // Muchos hilos llenan la cola mientras otro cierra el servicio.
+        List<CompletableFuture<TransactionStatus>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    CompletableFuture<TransactionStatus> result = sharded.deposit(account, 1);
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        Thread.sleep(5);
+        sharded.close();
+        for (Thread thread : threads) {
+            thread.join(10_000);
+            assertFalse(thread.isAlive(), "submitter blocked after close");
+        }
+
+        long applied = 0;
+        synchronized (results) {
+            for (CompletableFuture<TransactionStatus> result : results) {
+                try {
+                    assertEquals(TransactionStatus.APPLIED, result.get(10, TimeUnit.SECONDS));
+                    applied++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+            assertEquals(8 * 5_000, results.size());
+        }
+        assertEquals(applied, service.checkBalance(account));
+    }
+}